@@ -16,14 +16,13 @@
 
 package io.patriot_framework.network_simulator.docker;
 
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
 import io.patriot_framework.network.simulator.api.model.network.Network;
 import io.patriot_framework.network_simulator.docker.cleanup.Cleaner;
 import io.patriot_framework.network_simulator.docker.container.Container;
-import io.patriot_framework.network_simulator.docker.files.FileUtils;
 import io.patriot_framework.network_simulator.docker.image.docker.DockerImage;
+import io.patriot_framework.network_simulator.docker.image.docker.ImageBuildScheduler;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Cidr;
+import io.patriot_framework.network_simulator.docker.ipv4.SubnetAllocator;
 import io.patriot_framework.network_simulator.docker.manager.DockerManager;
 import io.patriot_framework.network_simulator.docker.network.DockerNetwork;
 
@@ -31,15 +30,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 
 /**
  * The type Docker controller.
  */
 public class DockerExample {
-    private DockerClient dockerClient = DockerClientBuilder.
-            getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build()).build();
     private DockerManager dockerManager = new DockerManager();
 
     /**
@@ -49,17 +45,17 @@ public class DockerExample {
         List<String> networks = new ArrayList<>();
         List<String> conts = new ArrayList<>();
         try {
-            DockerManager dockerManager = new DockerManager();
             String tagApp = "app_test:01";
             String tagRouter = "router_iproute:01";
 
             buildImages(tagApp, tagRouter);
 
+            SubnetAllocator subnets = dockerManager.newSubnetAllocator(Ipv4Cidr.parse("172.28.0.0/14"));
             DockerNetwork serverNetwork =
-                    (DockerNetwork) dockerManager.createNetwork("server_network", "172.28.0.0/16");
+                    (DockerNetwork) dockerManager.createNetwork("server_network", subnets.allocate(16));
             networks.add(serverNetwork.getName());
             DockerNetwork clientNetwork =
-                    (DockerNetwork) dockerManager.createNetwork("client_network", "172.29.0.0/16");
+                    (DockerNetwork) dockerManager.createNetwork("client_network", subnets.allocate(16));
             networks.add(clientNetwork.getName());
             Container router = dockerManager.createContainer("router", tagRouter);
             conts.add(connectAndStart(dockerManager, router, Arrays.asList(clientNetwork, serverNetwork)));
@@ -74,7 +70,7 @@ public class DockerExample {
 
         } catch (Exception e) {
             e.printStackTrace();
-            Cleaner cleaner = new Cleaner();
+            Cleaner cleaner = new Cleaner(dockerManager.getDockerClient());
             cleaner.cleanUp(networks, conts);
         }
 
@@ -102,12 +98,12 @@ public class DockerExample {
      * @param tagRouter the tag router
      */
     private void buildImages(String tagApp, String tagRouter) {
-
-        FileUtils fileUtils = new FileUtils();
         DockerImage dockerImage = new DockerImage(dockerManager);
+        ImageBuildScheduler scheduler = new ImageBuildScheduler(dockerImage.getBuildCache(), 2, System.out::println);
         try {
-            dockerImage.buildAppImage(new HashSet<>(Arrays.asList(tagApp)));
-            dockerImage.buildRouterImage(new HashSet<>(Arrays.asList(tagRouter)));
+            scheduler.submit(tagApp, DockerImage.classpathContext("/app/Dockerfile"))
+                    .submit(tagRouter, DockerImage.classpathContext("/router/Dockerfile"))
+                    .buildAll();
         } catch (IOException e) {
             e.printStackTrace();
         }
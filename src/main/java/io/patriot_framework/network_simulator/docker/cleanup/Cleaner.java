@@ -19,8 +19,7 @@ package io.patriot_framework.network_simulator.docker.cleanup;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.model.Container;
 import com.github.dockerjava.api.model.Network;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
+import io.patriot_framework.network_simulator.docker.client.DockerClientRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,8 +30,23 @@ import java.util.List;
  */
 public class Cleaner {
     private static final Logger LOGGER = LoggerFactory.getLogger(Cleaner.class);
-    private DockerClient dockerClient = DockerClientBuilder.
-            getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build()).build();
+    private DockerClient dockerClient;
+
+    /**
+     * Instantiates a new Cleaner using shared docker client from registry.
+     */
+    public Cleaner() {
+        this(DockerClientRegistry.sharedClient());
+    }
+
+    /**
+     * Instantiates a new Cleaner.
+     *
+     * @param dockerClient the docker client
+     */
+    public Cleaner(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
 
     /**
      * Clear instances of docker container from list (stop -&gt; delete) and networks (delete).
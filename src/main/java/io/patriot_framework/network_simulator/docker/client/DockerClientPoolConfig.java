@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.client;
+
+/**
+ * Configuration of HTTP connection pool used by shared docker client.
+ * All timeouts are in milliseconds, idle eviction time is in seconds.
+ */
+public class DockerClientPoolConfig {
+    private int maxTotalConnections = 100;
+    private int maxPerRouteConnections = 100;
+    private int connectTimeout = 5000;
+    private int readTimeout = 60000;
+    private int connectionRequestTimeout = 30000;
+    private int idleEvictionSeconds = 30;
+
+    /**
+     * Sets maximum number of connections in pool.
+     *
+     * @param maxTotalConnections the max total connections
+     * @return this config
+     */
+    public DockerClientPoolConfig withMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+        return this;
+    }
+
+    /**
+     * Sets maximum number of connections per route (docker daemon endpoint).
+     *
+     * @param maxPerRouteConnections the max per route connections
+     * @return this config
+     */
+    public DockerClientPoolConfig withMaxPerRouteConnections(int maxPerRouteConnections) {
+        this.maxPerRouteConnections = maxPerRouteConnections;
+        return this;
+    }
+
+    /**
+     * Sets socket connect timeout.
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @return this config
+     */
+    public DockerClientPoolConfig withConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * Sets socket read timeout.
+     *
+     * @param readTimeout the read timeout in milliseconds
+     * @return this config
+     */
+    public DockerClientPoolConfig withReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    /**
+     * Sets how long request waits for free connection from pool.
+     *
+     * @param connectionRequestTimeout the connection request timeout in milliseconds
+     * @return this config
+     */
+    public DockerClientPoolConfig withConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        return this;
+    }
+
+    /**
+     * Sets time after which idle pooled connections are closed, 0 disables eviction.
+     *
+     * @param idleEvictionSeconds the idle eviction time in seconds
+     * @return this config
+     */
+    public DockerClientPoolConfig withIdleEvictionSeconds(int idleEvictionSeconds) {
+        this.idleEvictionSeconds = idleEvictionSeconds;
+        return this;
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public int getMaxPerRouteConnections() {
+        return maxPerRouteConnections;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public int getIdleEvictionSeconds() {
+        return idleEvictionSeconds;
+    }
+}
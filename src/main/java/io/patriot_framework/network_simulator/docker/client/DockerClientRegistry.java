@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.client;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientBuilder;
+import com.github.dockerjava.jaxrs.JerseyDockerCmdExecFactory;
+import com.github.dockerjava.netty.NettyDockerCmdExecFactory;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide registry of docker client. All managers, cleaners and examples share one client, so
+ * whole simulation uses single HTTP connection pool instead of one pool per created object.
+ */
+public final class DockerClientRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DockerClientRegistry.class);
+    private static DockerClientRegistry instance;
+
+    private final DockerClientPoolConfig config;
+    private JerseyDockerCmdExecFactory execFactory;
+    private DockerClient dockerClient;
+    private DockerClient streamingClient;
+    private ScheduledExecutorService evictor;
+
+    private DockerClientRegistry(DockerClientPoolConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Gets registry instance, registry is created with default pool config if it was not configured.
+     *
+     * @return the registry
+     */
+    public static synchronized DockerClientRegistry getInstance() {
+        if (instance == null) {
+            instance = new DockerClientRegistry(new DockerClientPoolConfig());
+        }
+        return instance;
+    }
+
+    /**
+     * Configures connection pool of shared client. Has to be called before first client is created.
+     *
+     * @param config pool configuration
+     */
+    public static synchronized void configure(DockerClientPoolConfig config) {
+        if (instance != null && instance.dockerClient != null) {
+            throw new IllegalStateException("Docker client is already created, configure registry before first use");
+        }
+        instance = new DockerClientRegistry(config);
+    }
+
+    /**
+     * Shortcut for shared docker client.
+     *
+     * @return the shared docker client
+     */
+    public static DockerClient sharedClient() {
+        return getInstance().getClient();
+    }
+
+    /**
+     * Gets shared docker client, client is lazily created on first call.
+     *
+     * @return the docker client
+     */
+    public synchronized DockerClient getClient() {
+        if (dockerClient == null) {
+            execFactory = new JerseyDockerCmdExecFactory()
+                    .withMaxTotalConnections(config.getMaxTotalConnections())
+                    .withMaxPerRouteConnections(config.getMaxPerRouteConnections())
+                    .withConnectTimeout(config.getConnectTimeout())
+                    .withReadTimeout(config.getReadTimeout())
+                    .withConnectionRequestTimeout(config.getConnectionRequestTimeout());
+            dockerClient = DockerClientBuilder
+                    .getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build())
+                    .withDockerCmdExecFactory(execFactory)
+                    .build();
+            startEviction();
+            LOGGER.info("Shared docker client created with pool of " + config.getMaxTotalConnections()
+                    + " connections");
+        }
+        return dockerClient;
+    }
+
+    /**
+     * Gets shared client for attached streams, e.g. exec sessions with standard input. Jersey client used
+     * for other commands can not write to attached standard input, so this client uses netty transport.
+     *
+     * @return the streaming docker client
+     */
+    public synchronized DockerClient getStreamingClient() {
+        if (streamingClient == null) {
+            streamingClient = DockerClientBuilder
+                    .getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build())
+                    .withDockerCmdExecFactory(new NettyDockerCmdExecFactory()
+                            .withConnectTimeout(config.getConnectTimeout()))
+                    .build();
+        }
+        return streamingClient;
+    }
+
+    /**
+     * Gets metrics of connection pool.
+     *
+     * @return current pool metrics
+     */
+    public PoolMetrics getPoolMetrics() {
+        PoolingHttpClientConnectionManager connManager = findConnectionManager();
+        if (connManager == null) {
+            return PoolMetrics.unavailable();
+        }
+        PoolStats stats = connManager.getTotalStats();
+        return new PoolMetrics(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    /**
+     * Closes shared clients and connection pool. Next call of getClient creates new client.
+     */
+    public synchronized void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+        closeClient(dockerClient);
+        closeClient(streamingClient);
+        dockerClient = null;
+        streamingClient = null;
+        execFactory = null;
+    }
+
+    private static void closeClient(DockerClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            LOGGER.warn("Closing of docker client failed", e);
+        }
+    }
+
+    private void startEviction() {
+        if (config.getIdleEvictionSeconds() <= 0) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("docker-pool-evictor"));
+        long period = config.getIdleEvictionSeconds();
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    private void evictIdle() {
+        PoolingHttpClientConnectionManager connManager = findConnectionManager();
+        if (connManager != null) {
+            connManager.closeExpiredConnections();
+            connManager.closeIdleConnections(config.getIdleEvictionSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Jersey exec factory does not expose its connection manager, it is created lazily together
+     * with first command, so it is looked up on every metrics request.
+     */
+    private synchronized PoolingHttpClientConnectionManager findConnectionManager() {
+        if (execFactory == null) {
+            return null;
+        }
+        try {
+            Field field = JerseyDockerCmdExecFactory.class.getDeclaredField("connManager");
+            field.setAccessible(true);
+            Object connManager = field.get(execFactory);
+            if (connManager instanceof PoolingHttpClientConnectionManager) {
+                return (PoolingHttpClientConnectionManager) connManager;
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            LOGGER.debug("Connection manager of docker client is not accessible", e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.client;
+
+/**
+ * Snapshot of connection pool state of shared docker client. Values are -1 when pool
+ * statistics are not available (client not created yet or unknown connection manager).
+ */
+public class PoolMetrics {
+    private final int leased;
+    private final int idle;
+    private final int pending;
+    private final int max;
+
+    /**
+     * Instantiates a new Pool metrics.
+     *
+     * @param leased  connections currently used by requests
+     * @param idle    connections kept alive in pool
+     * @param pending requests waiting for connection
+     * @param max     maximum number of connections
+     */
+    public PoolMetrics(int leased, int idle, int pending, int max) {
+        this.leased = leased;
+        this.idle = idle;
+        this.pending = pending;
+        this.max = max;
+    }
+
+    /**
+     * Metrics used when pool statistics can not be gathered.
+     *
+     * @return unavailable metrics
+     */
+    public static PoolMetrics unavailable() {
+        return new PoolMetrics(-1, -1, -1, -1);
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getPending() {
+        return pending;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics[leased=" + leased + ", idle=" + idle + ", pending=" + pending + ", max=" + max + "]";
+    }
+}
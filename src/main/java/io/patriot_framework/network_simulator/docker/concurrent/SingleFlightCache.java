@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache of values with time to live. Concurrent requests for missing key are coalesced,
+ * so value is loaded only once and all callers wait for the same load. Failed loads are not cached.
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public class SingleFlightCache<K, V> {
+    private final Function<K, V> loader;
+    private final long ttlMillis;
+    private final Map<K, CompletableFuture<Entry<V>>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Single flight cache.
+     *
+     * @param loader    function loading value of key
+     * @param ttlMillis time in milliseconds for which loaded value is valid
+     */
+    public SingleFlightCache(Function<K, V> loader, long ttlMillis) {
+        this.loader = loader;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Gets value of key, value is loaded when it is missing or expired.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public V get(K key) {
+        CompletableFuture<Entry<V>> created = new CompletableFuture<>();
+        CompletableFuture<Entry<V>> current = entries.compute(key,
+            (k, existing) -> isUsable(existing) ? existing : created);
+        if (current == created) {
+            load(key, created);
+        }
+        try {
+            return current.join().value;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes value of key, next get loads it again.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Loads value into shared future. Any failure, errors included, removes the entry and fails the future,
+     * so coalesced callers never wait for load which ended.
+     */
+    private void load(K key, CompletableFuture<Entry<V>> future) {
+        try {
+            future.complete(new Entry<>(loader.apply(key), System.currentTimeMillis() + ttlMillis));
+        } catch (Throwable e) {
+            entries.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private boolean isUsable(CompletableFuture<Entry<V>> future) {
+        if (future == null || future.isCompletedExceptionally()) {
+            return false;
+        }
+        return !future.isDone() || future.join().expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Loaded value with its expiration time.
+     *
+     * @param <V> type of value
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
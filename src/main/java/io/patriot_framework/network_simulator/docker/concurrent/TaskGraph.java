@@ -0,0 +1,230 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Directed acyclic graph of tasks. Task is started as soon as all its dependencies are finished,
+ * so independent tasks run concurrently, limited only by executor. When any task fails no new tasks
+ * are started and rollback actions of already finished tasks are executed in reverse order.
+ */
+public class TaskGraph {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskGraph.class);
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+
+    /**
+     * Adds task without rollback action.
+     *
+     * @param id           unique task id
+     * @param action       action of task
+     * @param dependencies ids of tasks which have to finish before this one
+     * @return this graph
+     */
+    public TaskGraph addTask(String id, Runnable action, String... dependencies) {
+        return addTask(id, action, null, dependencies);
+    }
+
+    /**
+     * Adds task.
+     *
+     * @param id           unique task id
+     * @param action       action of task
+     * @param rollback     action reverting task, executed when other task of graph fails
+     * @param dependencies ids of tasks which have to finish before this one
+     * @return this graph
+     */
+    public TaskGraph addTask(String id, Runnable action, Runnable rollback, String... dependencies) {
+        if (tasks.containsKey(id)) {
+            throw new IllegalArgumentException("Task " + id + " is already in graph");
+        }
+        tasks.put(id, new Task(id, action, rollback, Arrays.asList(dependencies)));
+        return this;
+    }
+
+    /**
+     * Checks whether graph contains task.
+     *
+     * @param id task id
+     * @return true if task is present
+     */
+    public boolean contains(String id) {
+        return tasks.containsKey(id);
+    }
+
+    /**
+     * Gets number of tasks in graph.
+     *
+     * @return the size
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Executes all tasks and waits for them. Parallelism is given by executor.
+     *
+     * @param executor executor running tasks
+     * @throws TaskGraphException when any task fails or executor rejects it, completed tasks are rolled back
+     *                            before throwing
+     */
+    public void execute(Executor executor) {
+        List<Task> ordered = topologicalOrder();
+        Execution execution = new Execution();
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        for (Task task : ordered) {
+            CompletableFuture<?>[] deps = task.dependencies.stream().map(futures::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            futures.put(task.id, CompletableFuture.allOf(deps).thenRunAsync(() -> execution.run(task), executor));
+        }
+        RuntimeException joinFailure = null;
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException | CancellationException e) {
+            LOGGER.debug("Task graph execution failed", e);
+            joinFailure = e;
+        }
+        TaskGraphException failure = execution.failure.get();
+        if (failure == null && joinFailure != null) {
+            failure = notRun(ordered, futures, joinFailure);
+        }
+        if (failure != null) {
+            execution.rollback();
+            throw failure;
+        }
+    }
+
+    /**
+     * Describes failure of task which never ran, e.g. because executor rejected it. First failed task
+     * in topological order is reported, its dependants failed only because of it.
+     */
+    private static TaskGraphException notRun(List<Task> ordered, Map<String, CompletableFuture<Void>> futures,
+                                             RuntimeException joinFailure) {
+        for (Task task : ordered) {
+            CompletableFuture<Void> future = futures.get(task.id);
+            if (future.isCompletedExceptionally()) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    return new TaskGraphException(task.id, e.getCause() == null ? e : e.getCause());
+                } catch (CancellationException e) {
+                    return new TaskGraphException(task.id, e);
+                }
+            }
+        }
+        Throwable cause = joinFailure.getCause() == null ? joinFailure : joinFailure.getCause();
+        return new TaskGraphException(ordered.get(0).id, cause);
+    }
+
+    private List<Task> topologicalOrder() {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<Task>> dependants = new HashMap<>();
+        for (Task task : tasks.values()) {
+            inDegree.put(task.id, task.dependencies.size());
+            for (String dependency : task.dependencies) {
+                if (!tasks.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Task " + task.id + " depends on unknown task " + dependency);
+                }
+                dependants.computeIfAbsent(dependency, k -> new ArrayList<>()).add(task);
+            }
+        }
+        Deque<Task> ready = new ArrayDeque<>();
+        tasks.values().stream().filter(t -> t.dependencies.isEmpty()).forEach(ready::add);
+        List<Task> ordered = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            Task task = ready.poll();
+            ordered.add(task);
+            for (Task dependant : dependants.getOrDefault(task.id, new ArrayList<>())) {
+                if (inDegree.merge(dependant.id, -1, Integer::sum) == 0) {
+                    ready.add(dependant);
+                }
+            }
+        }
+        if (ordered.size() != tasks.size()) {
+            throw new IllegalArgumentException("Task graph contains cycle");
+        }
+        return ordered;
+    }
+
+    /**
+     * State of single graph execution.
+     */
+    private static class Execution {
+        private final AtomicReference<TaskGraphException> failure = new AtomicReference<>();
+        private final Deque<Task> completed = new ConcurrentLinkedDeque<>();
+
+        void run(Task task) {
+            if (failure.get() != null) {
+                throw new CancellationException("Task " + task.id + " skipped after failure");
+            }
+            try {
+                task.action.run();
+                completed.push(task);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, new TaskGraphException(task.id, e));
+                throw e;
+            }
+        }
+
+        void rollback() {
+            for (Task task : completed) {
+                if (task.rollback == null) {
+                    continue;
+                }
+                try {
+                    task.rollback.run();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Rollback of task " + task.id + " failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Node of graph.
+     */
+    private static class Task {
+        private final String id;
+        private final Runnable action;
+        private final Runnable rollback;
+        private final List<String> dependencies;
+
+        Task(String id, Runnable action, Runnable rollback, List<String> dependencies) {
+            this.id = id;
+            this.action = action;
+            this.rollback = rollback;
+            this.dependencies = dependencies;
+        }
+    }
+}
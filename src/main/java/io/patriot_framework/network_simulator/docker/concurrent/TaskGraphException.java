@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.concurrent;
+
+/**
+ * Exception thrown when task of {@link TaskGraph} fails. Completed tasks are already rolled back
+ * when this exception is thrown.
+ */
+public class TaskGraphException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final String taskId;
+
+    /**
+     * Instantiates a new Task graph exception.
+     *
+     * @param taskId id of failed task
+     * @param cause  failure of task
+     */
+    public TaskGraphException(String taskId, Throwable cause) {
+        super("Task " + taskId + " failed: " + cause.getMessage(), cause);
+        this.taskId = taskId;
+    }
+
+    /**
+     * Gets id of failed task.
+     *
+     * @return the task id
+     */
+    public String getTaskId() {
+        return taskId;
+    }
+}
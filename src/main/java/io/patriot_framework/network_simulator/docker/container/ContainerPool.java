@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.container;
+
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of already created and started containers for each image tag. Checked out container only has
+ * to be renamed and connected to networks, pool is refilled in background.
+ * Ready containers of image tag which was not used for idle timeout are removed.
+ * Ready and pending containers of all image tags together never exceed maximal size of pool.
+ */
+public class ContainerPool implements Closeable {
+    /**
+     * Name prefix of containers waiting in pool.
+     */
+    public static final String NAME_PREFIX = "pool_";
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerPool.class);
+    private final DockerManager dockerManager;
+    private final ContainerPoolConfig config;
+    private final Map<String, TagPool> pools = new ConcurrentHashMap<>();
+    private final ExecutorService refillExecutor;
+    private final ScheduledExecutorService evictor;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new Container pool.
+     *
+     * @param dockerManager manager used for container creation
+     * @param config        pool configuration
+     */
+    public ContainerPool(DockerManager dockerManager, ContainerPoolConfig config) {
+        this.dockerManager = dockerManager;
+        this.config = config;
+        this.refillExecutor = Executors.newFixedThreadPool(config.getRefillThreads(),
+                new DaemonThreadFactory("container-pool"));
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("container-pool-evictor"));
+        long period = Math.max(1, config.getIdleTimeoutSeconds() / 2);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts filling pool of image tag in background.
+     *
+     * @param tag image tag
+     */
+    public void warmUp(String tag) {
+        TagPool pool = pool(tag);
+        pool.lastUsed = System.currentTimeMillis();
+        refill(tag, pool);
+    }
+
+    /**
+     * Takes ready container of image tag from pool. Pool of tag is refilled in background.
+     * Container which cannot be unpaused is removed and checkout counts as miss.
+     *
+     * @param tag image tag
+     * @return started container or null when no container is ready
+     */
+    public Container checkout(String tag) {
+        TagPool pool = pool(tag);
+        pool.lastUsed = System.currentTimeMillis();
+        Container container = pool.ready.pollFirst();
+        refill(tag, pool);
+        if (container == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        outstanding.decrementAndGet();
+        if (config.isPaused()) {
+            try {
+                dockerManager.unpauseContainer(container);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Pool container " + container.getName() + " could not be unpaused, removing it", e);
+                destroyQuietly(container);
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        hits.incrementAndGet();
+        return container;
+    }
+
+    /**
+     * Gets pool metrics.
+     *
+     * @return the metrics
+     */
+    public ContainerPoolMetrics getMetrics() {
+        int ready = pools.values().stream().mapToInt(pool -> pool.ready.size()).sum();
+        return new ContainerPoolMetrics(hits.get(), misses.get(), created.get(), evicted.get(), ready);
+    }
+
+    /**
+     * Stops refilling, waits for containers which are being created and removes all ready containers.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        refillExecutor.shutdown();
+        try {
+            if (!refillExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Pool containers still being created are removed once they are ready");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (TagPool pool : pools.values()) {
+            drain(pool);
+        }
+    }
+
+    private TagPool pool(String tag) {
+        return pools.computeIfAbsent(tag, k -> new TagPool());
+    }
+
+    private void refill(String tag, TagPool pool) {
+        int missing;
+        synchronized (pool) {
+            missing = config.getTargetSize() - pool.ready.size() - pool.pending;
+            if (missing <= 0 || closed) {
+                return;
+            }
+            missing = reserve(missing);
+            if (missing == 0) {
+                return;
+            }
+            pool.pending += missing;
+        }
+        for (int i = 0; i < missing; i++) {
+            refillExecutor.execute(() -> createReady(tag, pool));
+        }
+    }
+
+    /**
+     * Reserves room for new containers within maximal size of pool.
+     *
+     * @return number of containers which may be created
+     */
+    private int reserve(int wanted) {
+        while (true) {
+            int current = outstanding.get();
+            int granted = Math.min(wanted, config.getMaxSize() - current);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (outstanding.compareAndSet(current, current + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * Creates ready container. Container created while pool is being closed is removed by creating thread,
+     * because close may have drained pool already.
+     */
+    private void createReady(String tag, TagPool pool) {
+        boolean added = false;
+        try {
+            if (!closed) {
+                Container container = dockerManager.createContainer(poolName(tag), tag);
+                dockerManager.startContainer(container);
+                if (config.isPaused()) {
+                    dockerManager.pauseContainer(container);
+                }
+                created.incrementAndGet();
+                pool.ready.addLast(container);
+                added = true;
+                if (closed) {
+                    drain(pool);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Pool container of image " + tag + " could not be created", e);
+        } finally {
+            if (!added) {
+                outstanding.decrementAndGet();
+            }
+            synchronized (pool) {
+                pool.pending--;
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long deadline = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(config.getIdleTimeoutSeconds());
+        for (Map.Entry<String, TagPool> entry : pools.entrySet()) {
+            if (entry.getValue().lastUsed < deadline) {
+                int removed = drain(entry.getValue());
+                if (removed > 0) {
+                    evicted.addAndGet(removed);
+                    LOGGER.info("Evicted " + removed + " idle pool containers of image " + entry.getKey());
+                }
+            }
+        }
+    }
+
+    private int drain(TagPool pool) {
+        List<Container> drained = new ArrayList<>();
+        Container container = pool.ready.pollFirst();
+        while (container != null) {
+            drained.add(container);
+            container = pool.ready.pollFirst();
+        }
+        drained.forEach(this::destroyQuietly);
+        outstanding.addAndGet(-drained.size());
+        return drained.size();
+    }
+
+    private void destroyQuietly(Container container) {
+        try {
+            dockerManager.destroyContainer(container);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Pool container " + container.getName() + " could not be removed", e);
+        }
+    }
+
+    private static String poolName(String tag) {
+        return NAME_PREFIX + tag.replaceAll("[^a-zA-Z0-9_.-]", "_") + "_"
+                + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Ready containers of single image tag.
+     */
+    private static class TagPool {
+        private final Deque<Container> ready = new ConcurrentLinkedDeque<>();
+        private int pending;
+        private volatile long lastUsed;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.container;
+
+/**
+ * Configuration of {@link ContainerPool}.
+ */
+public class ContainerPoolConfig {
+    private int targetSize = 2;
+    private int maxSize = 20;
+    private int idleTimeoutSeconds = 300;
+    private int refillThreads = 4;
+    private boolean paused = false;
+
+    /**
+     * Sets number of ready containers kept for each image tag.
+     *
+     * @param targetSize the target size
+     * @return this config
+     */
+    public ContainerPoolConfig withTargetSize(int targetSize) {
+        this.targetSize = targetSize;
+        return this;
+    }
+
+    /**
+     * Sets upper limit of ready containers and containers being created of all image tags together.
+     *
+     * @param maxSize the max size
+     * @return this config
+     */
+    public ContainerPoolConfig withMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Sets time after which ready containers of unused image tag are removed.
+     *
+     * @param idleTimeoutSeconds the idle timeout in seconds
+     * @return this config
+     */
+    public ContainerPoolConfig withIdleTimeoutSeconds(int idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        return this;
+    }
+
+    /**
+     * Sets number of threads creating containers in background.
+     *
+     * @param refillThreads the refill threads
+     * @return this config
+     */
+    public ContainerPoolConfig withRefillThreads(int refillThreads) {
+        this.refillThreads = refillThreads;
+        return this;
+    }
+
+    /**
+     * Sets whether ready containers are paused until they are checked out.
+     *
+     * @param paused true to keep ready containers paused
+     * @return this config
+     */
+    public ContainerPoolConfig withPaused(boolean paused) {
+        this.paused = paused;
+        return this;
+    }
+
+    public int getTargetSize() {
+        return Math.min(targetSize, maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    public int getRefillThreads() {
+        return refillThreads;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+}
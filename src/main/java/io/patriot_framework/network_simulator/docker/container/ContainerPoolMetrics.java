@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.container;
+
+/**
+ * Snapshot of {@link ContainerPool} counters.
+ */
+public class ContainerPoolMetrics {
+    private final long hits;
+    private final long misses;
+    private final long created;
+    private final long evicted;
+    private final int ready;
+
+    /**
+     * Instantiates a new Container pool metrics.
+     *
+     * @param hits    checkouts served by ready container
+     * @param misses  checkouts without ready container
+     * @param created containers created by pool
+     * @param evicted containers removed by idle eviction
+     * @param ready   containers currently ready for checkout
+     */
+    public ContainerPoolMetrics(long hits, long misses, long created, long evicted, int ready) {
+        this.hits = hits;
+        this.misses = misses;
+        this.created = created;
+        this.evicted = evicted;
+        this.ready = ready;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    public int getReady() {
+        return ready;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerPoolMetrics[hits=" + hits + ", misses=" + misses + ", created=" + created
+                + ", evicted=" + evicted + ", ready=" + ready + "]";
+    }
+}
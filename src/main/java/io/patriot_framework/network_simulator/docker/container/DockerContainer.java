@@ -119,6 +119,9 @@ public class DockerContainer implements Container {
      */
     @Override
     public boolean exists() {
+        if (dockerManager.getStateModel() != null) {
+            return dockerManager.getStateModel().containerExists(id);
+        }
         List<Container> aliveCont = dockerManager.listContainers().stream()
                 .filter(DockerContainer -> DockerContainer.getId().equals(this.id))
                 .collect(Collectors.toList());
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of containers and networks which exist in docker daemon, keyed by their names.
+ */
+public class ActualTopology {
+    private final Map<String, ActualDevice> devices = new HashMap<>();
+    private final Map<String, ActualNetwork> networks = new HashMap<>();
+
+    void addDevice(ActualDevice device) {
+        devices.put(device.getName(), device);
+    }
+
+    void addNetwork(ActualNetwork network) {
+        networks.put(network.getName(), network);
+    }
+
+    public Map<String, ActualDevice> getDevices() {
+        return Collections.unmodifiableMap(devices);
+    }
+
+    public Map<String, ActualNetwork> getNetworks() {
+        return Collections.unmodifiableMap(networks);
+    }
+
+    /**
+     * Existing container.
+     */
+    public static class ActualDevice {
+        private final String name;
+        private final String id;
+        private final String image;
+        private final boolean running;
+        private final boolean managed;
+        private final Set<String> networks;
+        private final List<String> envVars;
+
+        /**
+         * Instantiates a new Actual device.
+         *
+         * @param name     container name
+         * @param id       container id
+         * @param image    image container was created from
+         * @param running  whether container is running
+         * @param managed  whether container was created by simulator
+         * @param networks names of networks container is attached to
+         * @param envVars  environment of container, null when it was not read
+         */
+        ActualDevice(String name, String id, String image, boolean running, boolean managed,
+                     Set<String> networks, List<String> envVars) {
+            this.name = name;
+            this.id = id;
+            this.image = image;
+            this.running = running;
+            this.managed = managed;
+            this.networks = networks;
+            this.envVars = envVars;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getImage() {
+            return image;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        public boolean isManaged() {
+            return managed;
+        }
+
+        public Set<String> getNetworks() {
+            return networks;
+        }
+
+        public List<String> getEnvVars() {
+            return envVars;
+        }
+    }
+
+    /**
+     * Existing network.
+     */
+    public static class ActualNetwork {
+        private final String name;
+        private final String id;
+        private final String subnet;
+        private final boolean managed;
+
+        /**
+         * Instantiates a new Actual network.
+         *
+         * @param name    network name
+         * @param id      network id
+         * @param subnet  subnet of network in CIDR notation, null when network has no subnet
+         * @param managed whether network was created by simulator
+         */
+        ActualNetwork(String name, String id, String subnet, boolean managed) {
+            this.name = name;
+            this.id = id;
+            this.subnet = subnet;
+            this.managed = managed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getSubnet() {
+            return subnet;
+        }
+
+        public boolean isManaged() {
+            return managed;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import io.patriot_framework.network.simulator.api.model.devices.Device;
+import io.patriot_framework.network.simulator.api.model.network.Network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description of device deployment: image tag of device, its environment, networks it is attached to
+ * and optional static addresses in these networks.
+ */
+public class DeviceDeployment {
+    private final Device device;
+    private final String tag;
+    private List<String> envVars = new ArrayList<>();
+    private List<Network> networks = new ArrayList<>();
+    private final Map<String, String> staticIps = new HashMap<>();
+
+    /**
+     * Instantiates a new Device deployment.
+     *
+     * @param device deployed device
+     * @param tag    image tag of device
+     */
+    public DeviceDeployment(Device device, String tag) {
+        this.device = device;
+        this.tag = tag;
+    }
+
+    /**
+     * Sets environment variables of device container.
+     *
+     * @param envVars environment variables in NAME=value form
+     * @return this deployment
+     */
+    public DeviceDeployment withEnvVars(List<String> envVars) {
+        this.envVars = new ArrayList<>(envVars);
+        return this;
+    }
+
+    /**
+     * Sets networks to which device is connected.
+     *
+     * @param networks the networks
+     * @return this deployment
+     */
+    public DeviceDeployment withNetworks(List<Network> networks) {
+        this.networks = new ArrayList<>(networks);
+        return this;
+    }
+
+    /**
+     * Adds network with static IPv4 address of device.
+     *
+     * @param network     the network
+     * @param ipv4Address address of device in network
+     * @return this deployment
+     */
+    public DeviceDeployment withStaticIp(Network network, String ipv4Address) {
+        if (!networks.contains(network)) {
+            networks.add(network);
+        }
+        staticIps.put(network.getName(), ipv4Address);
+        return this;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public List<String> getEnvVars() {
+        return envVars;
+    }
+
+    public List<Network> getNetworks() {
+        return networks;
+    }
+
+    public Map<String, String> getStaticIps() {
+        return staticIps;
+    }
+}
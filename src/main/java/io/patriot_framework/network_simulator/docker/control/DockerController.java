@@ -19,25 +19,87 @@ package io.patriot_framework.network_simulator.docker.control;
 import io.patriot_framework.network.simulator.api.control.Controller;
 import io.patriot_framework.network.simulator.api.model.devices.Device;
 import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
 import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.container.ContainerPool;
 import io.patriot_framework.network_simulator.docker.container.DockerContainer;
+import io.patriot_framework.network_simulator.docker.exec.BulkExec;
+import io.patriot_framework.network_simulator.docker.exec.BulkExecMode;
+import io.patriot_framework.network_simulator.docker.exec.BulkExecResult;
+import io.patriot_framework.network_simulator.docker.exec.ExecOptions;
+import io.patriot_framework.network_simulator.docker.exec.ExecResult;
+import io.patriot_framework.network_simulator.docker.image.docker.ImageBuildCache;
+import io.patriot_framework.network_simulator.docker.ipv4.AddressIndex;
+import io.patriot_framework.network_simulator.docker.ipv4.AddressOwner;
+import io.patriot_framework.network_simulator.docker.ipv4.HostAllocator;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Address;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Cidr;
+import io.patriot_framework.network_simulator.docker.ipv4.SubnetAllocator;
 import io.patriot_framework.network_simulator.docker.manager.DockerManager;
 import io.patriot_framework.network_simulator.docker.network.DockerNetwork;
+import io.patriot_framework.network_simulator.docker.network.DockerNetworkUtilities;
+import io.patriot_framework.network_simulator.docker.network.FirewallRuleset;
+import io.patriot_framework.network_simulator.docker.network.IpBatchResult;
+import io.patriot_framework.network_simulator.docker.network.LinkProfile;
+import io.patriot_framework.network_simulator.docker.network.LinkProgram;
+import io.patriot_framework.network_simulator.docker.network.Route;
+import io.patriot_framework.network_simulator.docker.network.RouteProgram;
+import io.patriot_framework.network_simulator.docker.network.RoutingCompiler;
+import io.patriot_framework.network_simulator.docker.state.ContainerStatus;
+import io.patriot_framework.network_simulator.docker.state.DockerStateModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of Controller interface for Docker
  */
 public class DockerController implements Controller {
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerController.class);
+    /**
+     * Default supernet of automatically assigned subnets, it does not collide with docker default address pools.
+     */
+    public static final Ipv4Cidr DEFAULT_SUPERNET = Ipv4Cidr.parse("10.128.0.0/9");
+    /**
+     * Default prefix length of automatically assigned subnets.
+     */
+    public static final int DEFAULT_SUBNET_PREFIX = 24;
+    private static final int BATCH_PARALLELISM = 32;
     private DockerManager dockerManager;
+    private final Map<String, Container> containerIndex = new ConcurrentHashMap<>();
+    private final Map<String, Network> networks = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> attachments = new ConcurrentHashMap<>();
+    private final Map<String, List<Route>> appliedRoutes = new ConcurrentHashMap<>();
+    private final Map<String, String> appliedFirewalls = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> interfaces = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> appliedLinks = new ConcurrentHashMap<>();
+    private final Map<String, HostAllocator> hostAllocators = new ConcurrentHashMap<>();
+    private final Set<String> pausedDevices = ConcurrentHashMap.newKeySet();
+    private final AddressIndex addressIndex = new AddressIndex();
+    private Ipv4Cidr supernet = DEFAULT_SUPERNET;
+    private int subnetPrefix = DEFAULT_SUBNET_PREFIX;
+    private SubnetAllocator subnetAllocator;
+    private ImageBuildCache imageBuildCache;
+    private ContainerPool containerPool;
+    private StopMode stopMode = StopMode.KILL;
+    private ExecutorService batchExecutor;
 
     /**
      * Constructor
@@ -46,20 +108,74 @@ public class DockerController implements Controller {
         this.dockerManager = new DockerManager();
     }
 
+    /**
+     * Instantiates a new Docker controller.
+     *
+     * @param dockerManager the docker manager
+     */
+    public DockerController(DockerManager dockerManager) {
+        this.dockerManager = dockerManager;
+    }
+
+    /**
+     * Gets docker manager used by this controller.
+     *
+     * @return the docker manager
+     */
+    public DockerManager getDockerManager() {
+        return dockerManager;
+    }
+
+    /**
+     * Gets reverse index from IP addresses of deployed devices to devices and networks. Index is updated
+     * when devices are deployed, connected or disconnected and networks are created or destroyed.
+     *
+     * @return the address index
+     */
+    public AddressIndex getAddressIndex() {
+        return addressIndex;
+    }
+
+    /**
+     * Sets pool of ready containers used for device deployment.
+     *
+     * @param containerPool the container pool, null disables pooling
+     */
+    public void setContainerPool(ContainerPool containerPool) {
+        this.containerPool = containerPool;
+    }
+
     @Override
     public void connectDeviceToNetwork(Device device, Network network) {
-        stopDevice(device);
         Container container = getDeviceContainer(device);
+        unpauseIfPaused(device.getName(), container);
+        dockerManager.killContainer(container);
+        forgetRestarted(device.getName());
         dockerManager.connectContainerToNetwork(container, network);
         dockerManager.startContainer(container);
-        device.addAddressForNetwork(dockerManager.findIpAddress(container, network), network.getName());
+        String ip = dockerManager.findIpAddress(container, network);
+        device.addAddressForNetwork(ip, network.getName());
+        recordAttachment(device.getName(), network.getName(), ip);
         LOGGER.info("Container: " + device.getName() + "is connected to network: " + network.getName());
     }
 
+    /**
+     * Connects running device to networks without restarting it. Addresses of device are recorded as by
+     * {@link #connectDeviceToNetwork(Device, Network)}, stopped container has no address until it is started.
+     *
+     * @param device   the device
+     * @param networks networks device is connected to
+     */
     @Override
     public void connectDeviceToNetwork(Device device, List<Network> networks) {
+        Container container = getDeviceContainer(device);
         for (Network network : networks) {
-            dockerManager.connectContainerToNetwork(getDeviceContainer(device), network);
+            dockerManager.connectContainerToNetwork(container, network);
+            String ip = dockerManager.findIpAddress(container, network);
+            if (ip != null && !ip.isEmpty()) {
+                device.addAddressForNetwork(ip, network.getName());
+                recordAttachment(device.getName(), network.getName(), ip);
+            }
             LOGGER.info("Container: " + device.getName() + "is connected to network: " + network.getName());
         }
     }
@@ -67,28 +183,103 @@ public class DockerController implements Controller {
     @Override
     public void stopDevice(Device device) {
         LOGGER.info("Stopping device: " + device.getName());
-        dockerManager.killContainer(getDeviceContainer(device));
+        if (stopMode == StopMode.FREEZE) {
+            dockerManager.pauseContainer(getDeviceContainer(device));
+            pausedDevices.add(device.getName());
+        } else {
+            Container container = getDeviceContainer(device);
+            unpauseIfPaused(device.getName(), container);
+            dockerManager.killContainer(container);
+            forgetRestarted(device.getName());
+        }
+    }
+
+    /**
+     * Stops all devices concurrently.
+     *
+     * @param devices devices which will be stopped
+     */
+    public void stopDevices(List<Device> devices) {
+        runForAll(devices, this::stopDevice);
+    }
+
+    /**
+     * Starts all devices concurrently.
+     *
+     * @param devices devices which will be started
+     */
+    public void startDevices(List<Device> devices) {
+        runForAll(devices, this::startDevice);
     }
 
     @Override
     public void disconnectDevice(Device device, Network network) {
         LOGGER.info("Disconnecting device: " + device.getName() + " from network: " + network.getName());
         dockerManager.disconnectContainer(getDeviceContainer(device), network);
+        forgetAttachment(device.getName(), network.getName());
+    }
+
+    /**
+     * Forgets attachment of device to network which was disconnected, its address is returned to network
+     * and its link impairment is forgotten.
+     *
+     * @param deviceName  device name
+     * @param networkName network name
+     */
+    void forgetAttachment(String deviceName, String networkName) {
+        Map<String, String> deviceAttachments = attachments.get(deviceName);
+        if (deviceAttachments != null) {
+            forgetAddress(deviceName, networkName, deviceAttachments.remove(networkName));
+        }
+        forgetLink(deviceName, networkName);
     }
 
     @Override
     public void destroyDevice(Device device) {
         LOGGER.info("Destroying device: " + device.getName());
-        stopDevice(device);
-        dockerManager.destroyContainer(getDeviceContainer(device));
+        Container container = getDeviceContainer(device);
+        unpauseIfPaused(device.getName(), container);
+        dockerManager.killContainer(container);
+        dockerManager.destroyContainer(container);
+        invalidateDeviceContainer(device.getName());
     }
 
+    /**
+     * Creates network. Network without IP address gets free subnet of supernet set by
+     * {@link #setSubnetAllocation(Ipv4Cidr, int)}, its mask is used as prefix length when it is set. When daemon
+     * fails to create network, assigned subnet is released and network keeps no address.
+     *
+     * @param network the network
+     */
     @Override
     public void createNetwork(Network network) {
         LOGGER.info("Creating network: " + network.getName());
-        DockerNetwork dockerNetwork = (DockerNetwork) dockerManager.createNetwork(network.getName(),
-                network.getIPAddress() + "/" + network.getMask());
+        Integer requestedMask = network.getMask();
+        Ipv4Cidr assigned = null;
+        if (network.getIPAddress() == null) {
+            assigned = getSubnetAllocator().allocate(requestedMask == null || requestedMask == 0 ? subnetPrefix
+                    : requestedMask);
+            network.setIPAddress(assigned.getNetwork().toString());
+            network.setMask(assigned.getPrefix());
+            LOGGER.info("Network " + network.getName() + " was assigned subnet " + assigned);
+        } else {
+            reserveSubnet(subnetOf(network));
+        }
+        DockerNetwork dockerNetwork;
+        try {
+            dockerNetwork = (DockerNetwork) dockerManager.createNetwork(network.getName(), subnetOf(network));
+        } catch (RuntimeException e) {
+            if (assigned != null) {
+                releaseSubnet(assigned);
+                network.setIPAddress(null);
+                if (requestedMask != null) {
+                    network.setMask(requestedMask);
+                }
+            }
+            throw e;
+        }
         network.setId(dockerNetwork.getId());
+        registerNetwork(network);
 
     }
 
@@ -96,17 +287,113 @@ public class DockerController implements Controller {
     public void destroyNetwork(Network network) {
         LOGGER.info("Destroying network: " + network.getName());
         dockerManager.destroyNetwork(network);
+        networks.remove(network.getName());
+        hostAllocators.remove(network.getName());
+        if (network.getIPAddress() != null) {
+            addressIndex.removeNetwork(subnetOf(network));
+            releaseSubnet(subnetOf(network));
+        }
+    }
+
+    /**
+     * Sets supernet from which subnets of networks without IP address are allocated. Subnets of existing
+     * daemon networks are never allocated.
+     *
+     * @param supernet network from which subnets are allocated
+     * @param prefix   default prefix length of allocated subnets
+     */
+    public synchronized void setSubnetAllocation(Ipv4Cidr supernet, int prefix) {
+        this.supernet = supernet;
+        this.subnetPrefix = prefix;
+        this.subnetAllocator = null;
+    }
+
+    /**
+     * Allocates free host address in network for static assignment. Addresses of devices already attached
+     * to network are never returned.
+     *
+     * @param network created network
+     * @return the address
+     * @throws IllegalStateException when network is full
+     */
+    public String allocateAddress(Network network) {
+        return hostAllocators.computeIfAbsent(network.getName(), name -> {
+            HostAllocator allocator = new HostAllocator(subnetOf(network));
+            attachments.values().stream().map(deviceAttachments -> deviceAttachments.get(name))
+                    .filter(Objects::nonNull).forEach(ip -> allocator.reserve(Ipv4Address.parse(ip)));
+            return allocator;
+        }).allocate().toString();
+    }
+
+    /**
+     * Returns address obtained by {@link #allocateAddress(Network)} which was not used by any device.
+     * Addresses of attached devices are returned automatically when devices are disconnected or destroyed.
+     *
+     * @param network network of address
+     * @param ip      the address
+     */
+    public void releaseAddress(Network network, String ip) {
+        AddressOwner owner = addressIndex.findOwner(ip);
+        if (owner == null || !network.getName().equals(owner.getNetwork())) {
+            releaseHost(network.getName(), ip);
+        }
     }
 
     @Override
     public void deployDevice(Device device, String tag, List<String> envVars) {
         LOGGER.info("Deploying device: " + device.getName() + " from image tag: " + tag);
+        Container pooled = checkoutPooled(device.getName(), tag, envVars);
+        if (pooled != null) {
+            device.setIPAddress(dockerManager.findIpAddress(pooled));
+            return;
+        }
         DockerContainer dockerContainer = (DockerContainer) dockerManager.createContainer(device.getName(), tag);
+        registerDeviceContainer(device.getName(), dockerContainer);
         dockerManager.startContainer(dockerContainer);
         device.setIPAddress(dockerManager.findIpAddress(dockerContainer));
 
     }
 
+    /**
+     * Deploys device which is attached to its networks already at container creation, so it is started
+     * only once. Static addresses are written to device directly, other addresses are read after start.
+     * Pooled container is disconnected from default bridge first, so it has the same interfaces and
+     * default route as freshly created one. Pooled container which cannot be connected is removed and
+     * device container is created fresh.
+     *
+     * @param deployment deployment of device
+     */
+    public void deployDevice(DeviceDeployment deployment) {
+        Device device = deployment.getDevice();
+        LOGGER.info("Deploying device: " + device.getName() + " from image tag: " + deployment.getTag());
+        Container pooled = checkoutPooled(device.getName(), deployment.getTag(), deployment.getEnvVars());
+        if (pooled != null) {
+            try {
+                if (!deployment.getNetworks().isEmpty()) {
+                    dockerManager.disconnectContainer(pooled,
+                            new DockerNetwork(DockerManager.DEFAULT_NETWORK, DockerManager.DEFAULT_NETWORK));
+                }
+                for (Network network : deployment.getNetworks()) {
+                    dockerManager.connectContainerToNetwork(pooled, network,
+                            deployment.getStaticIps().get(network.getName()));
+                }
+            } catch (RuntimeException e) {
+                invalidateDeviceContainer(device.getName());
+                discardPooled(pooled, e);
+                pooled = null;
+            }
+        }
+        if (pooled != null) {
+            assignAddresses(deployment, pooled);
+            return;
+        }
+        Container container = dockerManager.createContainer(device.getName(), deployment.getTag(),
+                deployment.getEnvVars(), deployment.getNetworks(), deployment.getStaticIps());
+        registerDeviceContainer(device.getName(), container);
+        dockerManager.startContainer(container);
+        assignAddresses(deployment, container);
+    }
+
     @Override
     public void deployDevice(Device device, String tag) {
         deployDevice(device, tag, new ArrayList<>());
@@ -117,6 +404,7 @@ public class DockerController implements Controller {
         LOGGER.info("Deploying device: " + device.getName() + " from image tag: " + tag);
         DockerContainer dockerContainer = (DockerContainer) dockerManager.createContainer(device.getName(),
                 tag, monitoringIP, monitoringPort, envVars);
+        registerDeviceContainer(device.getName(), dockerContainer);
         dockerManager.startContainer(dockerContainer);
         device.setIPAddress(dockerManager.findIpAddress(dockerContainer));
     }
@@ -128,11 +416,11 @@ public class DockerController implements Controller {
 
     @Override
     public void deployDevice(Device device, File file) {
-        final String tag = "deviceTag";
+        String tag = getImageBuildCache().build(file, Collections.emptySet());
         LOGGER.info("Deploying device: " + device.getName() + " from image tag: " + tag);
-        buildImage(file, tag);
         DockerContainer dockerContainer =
                 (DockerContainer) dockerManager.createContainer(device.getName(), tag);
+        registerDeviceContainer(device.getName(), dockerContainer);
         device.setIPAddress(dockerManager.findIpAddress(dockerContainer));
 
     }
@@ -141,7 +429,7 @@ public class DockerController implements Controller {
     @Override
     public void buildImage(File file, String tag) {
         LOGGER.info("Building image from " + file.getPath() + " with tag: " + tag);
-        dockerManager.buildImage(file, new HashSet<>(Collections.singletonList(tag)));
+        getImageBuildCache().build(file, Collections.singleton(tag));
     }
 
     @Override
@@ -168,30 +456,589 @@ public class DockerController implements Controller {
 
     @Override
     public void executeCommand(Device device, String command) {
-        dockerManager.runCommand(getDeviceContainer(device), command);
+        ExecResult result = runCommand(device, command);
+        if (!result.isSuccess()) {
+            LOGGER.warn("Command " + command + " in device " + device.getName() + " failed: " + result);
+        }
+    }
+
+    /**
+     * Executes command in device and returns its result.
+     *
+     * @param device  the device
+     * @param command command split on whitespace
+     * @return result of command
+     */
+    public ExecResult runCommand(Device device, String command) {
+        return dockerManager.runCommand(getDeviceContainer(device), command);
+    }
+
+    /**
+     * Computes shortest path routes of all devices attached to known networks and applies changed routes.
+     * Only devices whose routes differ from last applied ones are touched, each in single exec.
+     *
+     * @param routers devices forwarding packets between networks
+     * @return results of applied route programs by device name
+     */
+    public Map<String, IpBatchResult> updateRoutes(Collection<Device> routers) {
+        Map<String, String> cidrs = new HashMap<>();
+        networks.values().forEach(network -> cidrs.put(network.getName(), subnetOf(network).toString()));
+        Set<String> routerNames = routers.stream().map(Device::getName).collect(Collectors.toSet());
+        Map<String, List<Route>> routes = new RoutingCompiler(cidrs, attachments, routerNames).compile();
+        Map<String, IpBatchResult> results = new ConcurrentHashMap<>();
+        DockerNetworkUtilities utilities = new DockerNetworkUtilities();
+        ExecutorService executor = getBatchExecutor();
+        CompletableFuture.allOf(routes.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(
+                        () -> applyRouteDelta(entry.getKey(), entry.getValue(), utilities, results), executor))
+                .toArray(CompletableFuture<?>[]::new)).join();
+        LOGGER.info("Routes of " + results.size() + " devices updated");
+        return results;
+    }
+
+    /**
+     * Replaces firewall of device by ruleset in single iptables-restore exec. Ruleset equal to last applied
+     * ruleset of device is skipped.
+     *
+     * @param device  the device
+     * @param ruleset complete ruleset of device
+     * @return true if ruleset was applied, false if it did not change
+     * @throws IllegalStateException when iptables-restore rejected ruleset, firewall of device is unchanged
+     */
+    public boolean applyFirewall(Device device, FirewallRuleset ruleset) {
+        String rendered = ruleset.render();
+        if (rendered.equals(appliedFirewalls.get(device.getName()))) {
+            return false;
+        }
+        ExecResult result = new DockerNetworkUtilities().applyFirewall(getDeviceContainer(device), ruleset,
+                dockerManager);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Firewall of device " + device.getName() + " was not applied: "
+                    + result.getStderr().trim());
+        }
+        appliedFirewalls.put(device.getName(), rendered);
+        return true;
+    }
+
+    /**
+     * Applies firewalls of many devices concurrently.
+     *
+     * @param rulesets complete rulesets by device
+     * @return names of devices whose ruleset changed and was applied
+     */
+    public Set<String> applyFirewalls(Map<Device, FirewallRuleset> rulesets) {
+        Set<String> applied = ConcurrentHashMap.newKeySet();
+        runForAll(new ArrayList<>(rulesets.keySet()), device -> {
+            if (applyFirewall(device, rulesets.get(device))) {
+                applied.add(device.getName());
+            }
+        });
+        return applied;
+    }
+
+    /**
+     * Sets impairment of link between device and network.
+     *
+     * @param device  the device
+     * @param network network device is attached to
+     * @param profile impairment of link, null removes impairment
+     * @return result of tc batch
+     */
+    public IpBatchResult setLinkProfile(Device device, Network network, LinkProfile profile) {
+        return setLinkProfiles(device, Collections.singletonMap(network, profile));
+    }
+
+    /**
+     * Sets impairments of links of device in single tc batch exec. Interface of each link is found by
+     * address of device in network. Impairment equal to last applied one is skipped, changed one
+     * replaces queueing discipline in place.
+     *
+     * @param device   the device
+     * @param profiles impairments by network device is attached to, null profile removes impairment
+     * @return result of tc batch
+     * @throws IllegalArgumentException when device is not attached to network
+     */
+    public IpBatchResult setLinkProfiles(Device device, Map<Network, LinkProfile> profiles) {
+        Map<String, String> applied = appliedLinks.computeIfAbsent(device.getName(),
+                k -> new ConcurrentHashMap<>());
+        Map<String, String> lines = new HashMap<>();
+        LinkProgram program = linkProgram(profiles, applied, lines, network -> findInterface(device, network));
+        IpBatchResult result = new DockerNetworkUtilities().applyLinks(getDeviceContainer(device), program,
+                dockerManager);
+        recordLinks(applied, profiles, lines, result);
+        return result;
+    }
+
+    /**
+     * Sets impairments of links of many devices concurrently, each device in single exec.
+     *
+     * @param profiles impairments by device and network
+     * @return results of tc batches by device name
+     */
+    public Map<String, IpBatchResult> setLinkProfiles(Map<Device, Map<Network, LinkProfile>> profiles) {
+        Map<String, IpBatchResult> results = new ConcurrentHashMap<>();
+        runForAll(new ArrayList<>(profiles.keySet()),
+                device -> results.put(device.getName(), setLinkProfiles(device, profiles.get(device))));
+        return results;
+    }
+
+    /**
+     * Executes command in all devices concurrently, at most 32 commands run at once.
+     *
+     * @param devices devices in which command is executed
+     * @param command command split on whitespace
+     * @param options timeout of command in each device and output limit
+     * @param mode    behaviour after failed command
+     * @return results by device name with summary
+     */
+    public BulkExecResult executeCommand(List<Device> devices, String command, ExecOptions options,
+                                         BulkExecMode mode) {
+        Map<String, Container> targets = new LinkedHashMap<>();
+        for (Device device : devices) {
+            targets.put(device.getName(), getDeviceContainer(device));
+        }
+        BulkExecResult result = new BulkExec(dockerManager, getBatchExecutor()).run(targets, command, options, mode);
+        LOGGER.info("Command " + command + " executed in " + devices.size() + " devices: " + result);
+        return result;
+    }
+
+    /**
+     * Executes commands in device over its exec session, so all commands share single attach.
+     *
+     * @param device   the device
+     * @param commands shell commands
+     * @return results in order of commands
+     */
+    public List<ExecResult> executeCommands(Device device, List<String> commands) {
+        return executeCommands(device, commands, new ExecOptions());
+    }
+
+    /**
+     * Executes commands in device over its exec session. Command which times out closes the session,
+     * next commands open new one.
+     *
+     * @param device   the device
+     * @param commands shell commands
+     * @param options  timeout of each command
+     * @return results in order of commands
+     * @throws io.patriot_framework.network_simulator.docker.exec.ExecException when command times out
+     */
+    public List<ExecResult> executeCommands(Device device, List<String> commands, ExecOptions options) {
+        return dockerManager.getExecSessions().executeAll(getDeviceContainer(device), commands, options);
+    }
+
+    /**
+     * Gets lifecycle status of device container.
+     *
+     * @param device the device
+     * @return the container status
+     */
+    public ContainerStatus getDeviceStatus(Device device) {
+        Container container = getDeviceContainer(device);
+        return container == null ? ContainerStatus.REMOVED : dockerManager.getContainerStatus(container);
     }
 
     @Override
     public void startDevice(Device device) {
-        dockerManager.startContainer(getDeviceContainer(device));
+        Container container = getDeviceContainer(device);
+        if (!unpauseIfPaused(device.getName(), container)) {
+            forgetRestarted(device.getName());
+            dockerManager.startContainer(container);
+        }
+    }
+
+    /**
+     * Unpauses container frozen by stop of device, daemon refuses to kill or start paused container.
+     * Only devices paused by this controller are unpaused, so status of container is not inspected.
+     *
+     * @param deviceName device name
+     * @param container  the container
+     * @return true when container was paused
+     */
+    private boolean unpauseIfPaused(String deviceName, Container container) {
+        if (!pausedDevices.remove(deviceName)) {
+            return false;
+        }
+        try {
+            dockerManager.unpauseContainer(container);
+        } catch (RuntimeException e) {
+            pausedDevices.add(deviceName);
+            throw e;
+        }
+        return true;
     }
 
     /**
-     * Finds container from device name. If container is not found returns null.
+     * Gets way how devices are stopped and started.
+     *
+     * @return the stop mode
+     */
+    public StopMode getStopMode() {
+        return stopMode;
+    }
+
+    /**
+     * Sets way how devices are stopped and started. Default mode is KILL.
+     *
+     * @param stopMode the stop mode
+     */
+    public void setStopMode(StopMode stopMode) {
+        this.stopMode = stopMode;
+    }
+
+    /**
+     * Finds container from device name. Containers of deployed devices are kept in index, on index miss
+     * container is looked up by name in docker. If container is not found returns null.
      *
      * @param device
      * @return Device container
      */
     private Container getDeviceContainer(Device device) {
-        List<Container> dockerContainers = dockerManager.listContainers();
+        return getDeviceContainer(device.getName());
+    }
+
+    private Container getDeviceContainer(String deviceName) {
+        Container container = containerIndex.get(deviceName);
+        if (container == null) {
+            container = findContainer(deviceName);
+            if (container != null) {
+                containerIndex.put(deviceName, container);
+            }
+        }
+        return container;
+    }
+
+    private Container findContainer(String name) {
+        DockerStateModel stateModel = dockerManager.getStateModel();
+        if (stateModel != null) {
+            String id = stateModel.findContainerId(name);
+            return id == null ? null : new DockerContainer(name, id, dockerManager);
+        }
+        return dockerManager.findContainer(name);
+    }
+
+    /**
+     * Runs action for every device on batch executor and waits for all of them.
+     *
+     * @param devices devices
+     * @param action  action executed for each device
+     */
+    private void runForAll(List<Device> devices, Consumer<Device> action) {
+        ExecutorService executor = getBatchExecutor();
+        CompletableFuture.allOf(devices.stream()
+                .map(device -> CompletableFuture.runAsync(() -> action.accept(device), executor))
+                .toArray(CompletableFuture<?>[]::new)).join();
+    }
+
+    private synchronized void reserveSubnet(Ipv4Cidr subnet) {
+        if (subnetAllocator != null) {
+            subnetAllocator.reserve(subnet);
+        }
+    }
+
+    private synchronized void releaseSubnet(Ipv4Cidr subnet) {
+        if (subnetAllocator != null) {
+            subnetAllocator.release(subnet);
+        }
+    }
+
+    private synchronized ImageBuildCache getImageBuildCache() {
+        if (imageBuildCache == null) {
+            imageBuildCache = new ImageBuildCache(dockerManager);
+        }
+        return imageBuildCache;
+    }
+
+    private synchronized SubnetAllocator getSubnetAllocator() {
+        if (subnetAllocator == null) {
+            subnetAllocator = dockerManager.newSubnetAllocator(supernet);
+        }
+        return subnetAllocator;
+    }
+
+    private synchronized ExecutorService getBatchExecutor() {
+        if (batchExecutor == null) {
+            batchExecutor = Executors.newFixedThreadPool(BATCH_PARALLELISM, new DaemonThreadFactory("controller"));
+        }
+        return batchExecutor;
+    }
+
+    /**
+     * Takes started container from pool and renames it to device name. Pool is used only for devices
+     * without environment variables, because environment of container is fixed at its creation.
+     * Container which cannot be renamed is removed, pool no longer owns it.
+     *
+     * @param deviceName name of device
+     * @param tag        image tag of device
+     * @param envVars    environment variables of device
+     * @return renamed container or null when pool is not set, has no ready container or rename failed
+     */
+    private Container checkoutPooled(String deviceName, String tag, List<String> envVars) {
+        if (containerPool == null || !envVars.isEmpty()) {
+            return null;
+        }
+        Container pooled = containerPool.checkout(tag);
+        if (pooled == null) {
+            return null;
+        }
+        Container container;
+        try {
+            container = dockerManager.renameContainer(pooled, deviceName);
+        } catch (RuntimeException e) {
+            discardPooled(pooled, e);
+            return null;
+        }
+        registerDeviceContainer(deviceName, container);
+        return container;
+    }
+
+    /**
+     * Removes checked out pool container which could not be wired to device, device is created fresh instead.
+     */
+    private void discardPooled(Container container, RuntimeException cause) {
+        LOGGER.warn("Pool container " + container.getName() + " could not be prepared, creating device container"
+                + " instead", cause);
+        try {
+            dockerManager.destroyContainer(container);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Pool container " + container.getName() + " could not be removed", e);
+        }
+    }
+
+    /**
+     * Writes addresses of started container into its device.
+     *
+     * @param deployment deployment of device
+     * @param container  started container of device
+     */
+    void assignAddresses(DeviceDeployment deployment, Container container) {
+        Device device = deployment.getDevice();
+        if (deployment.getNetworks().isEmpty()) {
+            device.setIPAddress(dockerManager.findIpAddress(container));
+            return;
+        }
+        for (Network network : deployment.getNetworks()) {
+            String ip = deployment.getStaticIps().get(network.getName());
+            if (ip == null) {
+                ip = dockerManager.findIpAddress(container, network);
+            }
+            device.addAddressForNetwork(ip, network.getName());
+            recordAttachment(device.getName(), network.getName(), ip);
+            if (device.getIPAddress() == null) {
+                device.setIPAddress(ip);
+            }
+        }
+    }
+
+    /**
+     * Registers container of device into name index.
+     *
+     * @param deviceName name of device
+     * @param container  container of device
+     */
+    void registerDeviceContainer(String deviceName, Container container) {
+        containerIndex.put(deviceName, container);
+    }
+
+    /**
+     * Removes container of device from name index.
+     *
+     * @param deviceName name of device
+     */
+    void invalidateDeviceContainer(String deviceName) {
+        containerIndex.remove(deviceName);
+        pausedDevices.remove(deviceName);
+        Map<String, String> deviceAttachments = attachments.remove(deviceName);
+        if (deviceAttachments != null) {
+            deviceAttachments.forEach((network, ip) -> forgetAddress(deviceName, network, ip));
+        }
+        appliedRoutes.remove(deviceName);
+        appliedFirewalls.remove(deviceName);
+        forgetLinks(deviceName);
+    }
+
+    /**
+     * Gets subnet of network, host bits of network address are ignored.
+     *
+     * @param network network with IP address and mask
+     * @return the subnet
+     */
+    static Ipv4Cidr subnetOf(Network network) {
+        return Ipv4Cidr.of(network.getIPAddress(), network.getMask());
+    }
+
+    /**
+     * Registers network whose routes are computed by routing compiler.
+     *
+     * @param network network with IP address and mask
+     */
+    void registerNetwork(Network network) {
+        networks.put(network.getName(), network);
+        if (network.getIPAddress() != null) {
+            addressIndex.putNetwork(subnetOf(network), network.getName());
+        }
+    }
+
+    /**
+     * Applies changed routes of device. Only routes which were applied are recorded, failure of device
+     * is reported in its result and does not stop updates of other devices.
+     */
+    private void applyRouteDelta(String deviceName, List<Route> routes, DockerNetworkUtilities utilities,
+                                 Map<String, IpBatchResult> results) {
+        List<Route> previous = appliedRoutes.getOrDefault(deviceName, Collections.emptyList());
+        RouteProgram program = RoutingCompiler.delta(previous, routes);
+        if (program.isEmpty()) {
+            return;
+        }
+        IpBatchResult result;
+        try {
+            Container container = getDeviceContainer(deviceName);
+            if (container == null) {
+                throw new IllegalStateException("Device " + deviceName + " has no container");
+            }
+            result = utilities.applyRoutes(container, program, dockerManager);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Routes of device " + deviceName + " were not updated", e);
+            result = new IpBatchResult(Collections.singletonMap(program.toBatch().trim(), String.valueOf(e)));
+        }
+        results.put(deviceName, result);
+        appliedRoutes.put(deviceName, RoutingCompiler.applied(previous, routes, result));
+    }
+
+    private void recordAttachment(String deviceName, String networkName, String ip) {
+        String previous = attachments.computeIfAbsent(deviceName, k -> new ConcurrentHashMap<>())
+                .put(networkName, ip);
+        if (!ip.equals(previous)) {
+            forgetAddress(deviceName, networkName, previous);
+        }
+        addressIndex.putAddress(ip, deviceName, networkName);
+        HostAllocator hosts = hostAllocators.get(networkName);
+        if (hosts != null) {
+            hosts.reserve(Ipv4Address.parse(ip));
+        }
+        forgetLink(deviceName, networkName);
+    }
+
+    /**
+     * Forgets state applied inside network namespace of device, killed container gets new namespace
+     * when it is started again, so everything has to be applied again.
+     */
+    private void forgetRestarted(String deviceName) {
+        appliedRoutes.remove(deviceName);
+        appliedFirewalls.remove(deviceName);
+        forgetLinks(deviceName);
+    }
+
+    /**
+     * Removes address from index and returns it to host allocator of network unless it was already taken
+     * over by another device.
+     */
+    private void forgetAddress(String deviceName, String networkName, String ip) {
+        AddressOwner owner = ip == null ? null : addressIndex.findOwner(ip);
+        if (owner != null && owner.getDevice().equals(deviceName)) {
+            addressIndex.removeAddress(ip);
+            releaseHost(networkName, ip);
+        }
+    }
+
+    private void releaseHost(String networkName, String ip) {
+        HostAllocator hosts = hostAllocators.get(networkName);
+        if (hosts != null) {
+            hosts.release(Ipv4Address.parse(ip));
+        }
+    }
+
+    /**
+     * Forgets interfaces and impairments of device, they are lost when device is restarted or destroyed.
+     */
+    private void forgetLinks(String deviceName) {
+        interfaces.remove(deviceName);
+        appliedLinks.remove(deviceName);
+    }
+
+    /**
+     * Forgets impairment of single link whose interface was removed or replaced, interfaces of other
+     * networks keep their impairments. Interfaces of device are listed again on next use.
+     */
+    private void forgetLink(String deviceName, String networkName) {
+        interfaces.remove(deviceName);
+        Map<String, String> applied = appliedLinks.get(deviceName);
+        if (applied != null) {
+            applied.remove(networkName);
+        }
+    }
 
-        for (Container c : dockerContainers) {
-            String cName = c.getName().replace("[/", "");
-            cName = cName.replace("]", "");
-            if (cName.equals(device.getName())) {
-                return c;
+    /**
+     * Builds tc batch changing links whose impairment differs from applied one.
+     *
+     * @param profiles    impairments by network, null profile removes impairment
+     * @param applied     netem arguments of applied impairments by network name
+     * @param lines       receives rendered batch line by network name
+     * @param interfaceOf finds interface of device in network
+     * @return the program
+     */
+    static LinkProgram linkProgram(Map<Network, LinkProfile> profiles, Map<String, String> applied,
+                                   Map<String, String> lines, Function<String, String> interfaceOf) {
+        LinkProgram program = new LinkProgram();
+        for (Map.Entry<Network, LinkProfile> entry : profiles.entrySet()) {
+            String network = entry.getKey().getName();
+            LinkProfile profile = entry.getValue();
+            String args = profile == null ? null : profile.toNetemArgs();
+            if (args == null ? !applied.containsKey(network) : args.equals(applied.get(network))) {
+                continue;
             }
+            String name = interfaceOf.apply(network);
+            if (profile == null) {
+                program.clear(name);
+            } else {
+                program.set(name, profile);
+            }
+            lines.put(network, program.getLines().get(program.getLines().size() - 1));
+        }
+        return program;
+    }
+
+    /**
+     * Records impairments of lines which succeeded, failed lines keep previous impairment. When failure
+     * cannot be matched to line, whole batch is treated as failed.
+     *
+     * @param applied  netem arguments of applied impairments by network name, updated in place
+     * @param profiles impairments by network
+     * @param lines    rendered batch line by network name
+     * @param result   result of tc batch
+     */
+    static void recordLinks(Map<String, String> applied, Map<Network, LinkProfile> profiles,
+                            Map<String, String> lines, IpBatchResult result) {
+        Set<String> failed = result.getFailures().keySet();
+        if (!lines.values().containsAll(failed)) {
+            return;
+        }
+        for (Map.Entry<Network, LinkProfile> entry : profiles.entrySet()) {
+            String network = entry.getKey().getName();
+            String line = lines.get(network);
+            if (line == null || failed.contains(line)) {
+                continue;
+            }
+            if (entry.getValue() == null) {
+                applied.remove(network);
+            } else {
+                applied.put(network, entry.getValue().toNetemArgs());
+            }
+        }
+    }
+
+    private String findInterface(Device device, String network) {
+        Map<String, String> deviceAttachments = attachments.getOrDefault(device.getName(), Collections.emptyMap());
+        String ip = deviceAttachments.get(network);
+        if (ip == null) {
+            throw new IllegalArgumentException("Device " + device.getName() + " is not attached to network "
+                    + network);
+        }
+        String name = interfaces.computeIfAbsent(device.getName(), k -> new DockerNetworkUtilities()
+                .findInterfaces(getDeviceContainer(device), dockerManager)).get(ip);
+        if (name == null) {
+            throw new IllegalStateException("Device " + device.getName() + " has no interface with address " + ip);
         }
-        return null;
+        return name;
     }
 }
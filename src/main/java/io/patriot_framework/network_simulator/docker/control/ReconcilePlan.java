@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Operations which transform actual topology to desired one.
+ */
+public class ReconcilePlan {
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Kind of reconcile operation.
+     */
+    public enum Action {
+        CREATE_NETWORK, DESTROY_NETWORK, CREATE_DEVICE, DESTROY_DEVICE, CONNECT, DISCONNECT, START
+    }
+
+    /**
+     * Adds operation to plan.
+     *
+     * @param action  the action
+     * @param device  name of device, null for network operations
+     * @param network name of network, null for device operations
+     */
+    void add(Action action, String device, String network) {
+        operations.add(new Operation(action, device, network));
+    }
+
+    /**
+     * Checks whether plan contains operation.
+     *
+     * @param action  the action
+     * @param device  name of device, null for network operations
+     * @param network name of network, null for device operations
+     * @return true if operation is planned
+     */
+    public boolean contains(Action action, String device, String network) {
+        return operations.contains(new Operation(action, device, network));
+    }
+
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Checks whether actual topology already matches desired one.
+     *
+     * @return true if there is nothing to do
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Counts operations of action.
+     *
+     * @param action the action
+     * @return number of operations
+     */
+    public long count(Action action) {
+        return operations.stream().filter(o -> o.action == action).count();
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcilePlan" + operations;
+    }
+
+    /**
+     * Single reconcile operation.
+     */
+    public static class Operation {
+        private final Action action;
+        private final String device;
+        private final String network;
+
+        Operation(Action action, String device, String network) {
+            this.action = action;
+            this.device = device;
+            this.network = network;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public String getDevice() {
+            return device;
+        }
+
+        public String getNetwork() {
+            return network;
+        }
+
+        /**
+         * Gets unique id of operation.
+         *
+         * @return the id
+         */
+        public String getId() {
+            return action + ":" + device + ":" + network;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Operation)) {
+                return false;
+            }
+            Operation other = (Operation) o;
+            return action == other.action && Objects.equals(device, other.device)
+                    && Objects.equals(network, other.network);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(action, device, network);
+        }
+
+        @Override
+        public String toString() {
+            return getId();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+/**
+ * Way how devices are stopped and started by {@link DockerController}.
+ */
+public enum StopMode {
+    /**
+     * Device container is killed and started again from scratch, state of its processes is lost.
+     */
+    KILL,
+    /**
+     * Device container is frozen by cgroup freezer (pause) and resumed (unpause) where it stopped.
+     */
+    FREEZE
+}
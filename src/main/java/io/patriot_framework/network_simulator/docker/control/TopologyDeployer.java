@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import io.patriot_framework.network_simulator.docker.concurrent.TaskGraph;
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deploys whole topology at once. Deployment is split into graph of steps
+ * (image build, network creation, creation of container attached to its networks and start) and independent steps
+ * run concurrently, so deployment time is given by the longest chain of dependent steps.
+ * When any step fails, already created containers and networks are removed.
+ */
+public class TopologyDeployer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopologyDeployer.class);
+    private final DockerController controller;
+    private final DockerManager dockerManager;
+    private final int parallelism;
+    private final Map<String, File> images = new LinkedHashMap<>();
+    private final List<Network> networks = new ArrayList<>();
+    private final List<DeviceDeployment> devices = new ArrayList<>();
+    private final Map<String, Container> containers = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Topology deployer.
+     *
+     * @param controller  controller used for deployment
+     * @param parallelism maximum number of concurrently executed steps
+     */
+    public TopologyDeployer(DockerController controller, int parallelism) {
+        this.controller = controller;
+        this.dockerManager = controller.getDockerManager();
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Adds image which is built before containers using its tag are created.
+     *
+     * @param tag        image tag
+     * @param dockerfile dockerfile of image
+     * @return this deployer
+     */
+    public TopologyDeployer addImage(String tag, File dockerfile) {
+        images.put(tag, dockerfile);
+        return this;
+    }
+
+    /**
+     * Adds network which is created during deployment.
+     *
+     * @param network the network
+     * @return this deployer
+     */
+    public TopologyDeployer addNetwork(Network network) {
+        networks.add(network);
+        return this;
+    }
+
+    /**
+     * Adds device which is created, connected to its networks and started during deployment.
+     *
+     * @param deployment deployment of device
+     * @return this deployer
+     */
+    public TopologyDeployer addDevice(DeviceDeployment deployment) {
+        devices.add(deployment);
+        return this;
+    }
+
+    /**
+     * Deploys topology and waits until all devices are started.
+     *
+     * @throws io.patriot_framework.network_simulator.docker.concurrent.TaskGraphException when deployment fails,
+     *         topology is rolled back before throwing
+     */
+    public void deploy() {
+        TaskGraph graph = buildGraph();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("deployer"));
+        try {
+            long start = System.currentTimeMillis();
+            graph.execute(executor);
+            LOGGER.info("Topology with " + devices.size() + " devices deployed in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private TaskGraph buildGraph() {
+        TaskGraph graph = new TaskGraph();
+        images.forEach((tag, dockerfile) -> graph.addTask(imageTask(tag),
+                () -> dockerManager.buildImage(dockerfile, new HashSet<>(Collections.singletonList(tag)))));
+        for (Network network : networks) {
+            graph.addTask(networkTask(network), () -> controller.createNetwork(network),
+                    () -> controller.destroyNetwork(network));
+        }
+        for (DeviceDeployment deployment : devices) {
+            addDeviceTasks(graph, deployment);
+        }
+        return graph;
+    }
+
+    private void addDeviceTasks(TaskGraph graph, DeviceDeployment deployment) {
+        String name = deployment.getDevice().getName();
+        String createTask = "container:" + name;
+        List<String> createDeps = new ArrayList<>();
+        if (images.containsKey(deployment.getTag())) {
+            createDeps.add(imageTask(deployment.getTag()));
+        }
+        for (Network network : deployment.getNetworks()) {
+            if (graph.contains(networkTask(network))) {
+                createDeps.add(networkTask(network));
+            }
+        }
+        graph.addTask(createTask, () -> create(deployment), () -> destroy(name),
+                createDeps.toArray(new String[0]));
+        graph.addTask("start:" + name, () -> start(deployment), createTask);
+    }
+
+    private void create(DeviceDeployment deployment) {
+        String name = deployment.getDevice().getName();
+        Container container = dockerManager.createContainer(name, deployment.getTag(), deployment.getEnvVars(),
+                deployment.getNetworks(), deployment.getStaticIps());
+        containers.put(name, container);
+        controller.registerDeviceContainer(name, container);
+    }
+
+    private void destroy(String name) {
+        controller.invalidateDeviceContainer(name);
+        dockerManager.destroyContainer(containers.remove(name));
+    }
+
+    private void start(DeviceDeployment deployment) {
+        Container container = containers.get(deployment.getDevice().getName());
+        dockerManager.startContainer(container);
+        controller.assignAddresses(deployment, container);
+    }
+
+    private static String imageTask(String tag) {
+        return "image:" + tag;
+    }
+
+    private static String networkTask(Network network) {
+        return "network:" + network.getName();
+    }
+}
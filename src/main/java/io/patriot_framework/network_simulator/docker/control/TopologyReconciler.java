@@ -0,0 +1,446 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Network.Ipam;
+import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import io.patriot_framework.network_simulator.docker.concurrent.TaskGraph;
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.container.ContainerPool;
+import io.patriot_framework.network_simulator.docker.container.DockerContainer;
+import io.patriot_framework.network_simulator.docker.control.ActualTopology.ActualDevice;
+import io.patriot_framework.network_simulator.docker.control.ActualTopology.ActualNetwork;
+import io.patriot_framework.network_simulator.docker.control.ReconcilePlan.Action;
+import io.patriot_framework.network_simulator.docker.control.ReconcilePlan.Operation;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Cidr;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import io.patriot_framework.network_simulator.docker.network.DockerNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Brings docker daemon to desired topology. Actual state is read once by list calls, compared with
+ * desired topology and only operations needed to reach it are executed, independent operations concurrently.
+ * Containers and networks created by simulator are recognized by label, so objects which are not part
+ * of desired topology any more are removed, while foreign objects are never touched, plan fails when
+ * they are in the way.
+ * Reconciliation is idempotent: when it fails, running it again continues from reached state.
+ */
+public class TopologyReconciler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopologyReconciler.class);
+    private final DockerController controller;
+    private final DockerManager dockerManager;
+    private final int parallelism;
+
+    /**
+     * Instantiates a new Topology reconciler.
+     *
+     * @param controller  controller used for deployment
+     * @param parallelism maximum number of concurrently executed operations
+     */
+    public TopologyReconciler(DockerController controller, int parallelism) {
+        this.controller = controller;
+        this.dockerManager = controller.getDockerManager();
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Computes operations needed to reach desired topology without executing them.
+     *
+     * @param spec desired topology
+     * @return the plan
+     */
+    public ReconcilePlan plan(TopologySpec spec) {
+        ExecutorService executor = newExecutor();
+        try {
+            return diff(spec, readActual(spec, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Brings docker to desired topology and writes addresses of all desired devices.
+     *
+     * @param spec desired topology
+     * @return executed plan
+     * @throws io.patriot_framework.network_simulator.docker.concurrent.TaskGraphException when operation fails
+     */
+    public ReconcilePlan reconcile(TopologySpec spec) {
+        ExecutorService executor = newExecutor();
+        try {
+            long start = System.currentTimeMillis();
+            ActualTopology actual = readActual(spec, executor);
+            ReconcilePlan plan = diff(spec, actual);
+            new Execution(spec, actual).buildGraph(plan).execute(executor);
+            LOGGER.info("Topology reconciled with " + plan.getOperations().size() + " operations in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return plan;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Reads actual topology. Environment is inspected only for containers which are part of desired topology.
+     *
+     * @param spec     desired topology
+     * @param executor executor of inspections
+     * @return actual topology
+     */
+    ActualTopology readActual(TopologySpec spec, ExecutorService executor) {
+        DockerClient client = dockerManager.getDockerClient();
+        ActualTopology actual = new ActualTopology();
+        for (com.github.dockerjava.api.model.Network network : client.listNetworksCmd().exec()) {
+            actual.addNetwork(new ActualNetwork(network.getName(), network.getId(), subnet(network.getIpam()),
+                    isManaged(network.getLabels())));
+        }
+        List<CompletableFuture<ActualDevice>> devices = new ArrayList<>();
+        for (com.github.dockerjava.api.model.Container container
+                : client.listContainersCmd().withShowAll(true).exec()) {
+            devices.add(CompletableFuture.supplyAsync(() -> readDevice(spec, container), executor));
+        }
+        devices.forEach(device -> actual.addDevice(device.join()));
+        return actual;
+    }
+
+    private ActualDevice readDevice(TopologySpec spec, com.github.dockerjava.api.model.Container container) {
+        String name = container.getNames()[0].substring(1);
+        Set<String> networks = new HashSet<>();
+        if (container.getNetworkSettings() != null && container.getNetworkSettings().getNetworks() != null) {
+            networks.addAll(container.getNetworkSettings().getNetworks().keySet());
+        }
+        List<String> envVars = null;
+        if (spec.findDevice(name) != null) {
+            String[] env = dockerManager.inspectContainer(new DockerContainer(name, container.getId()))
+                    .getConfig().getEnv();
+            envVars = env == null ? new ArrayList<>() : Arrays.asList(env);
+        }
+        return new ActualDevice(name, container.getId(), container.getImage(), isRunning(container.getState()),
+                isManaged(container.getLabels()), networks, envVars);
+    }
+
+    /**
+     * Decides whether container in given daemon state needs no start. Paused container counts as running,
+     * it was frozen by stop of device and daemon refuses to start it.
+     *
+     * @param state state of container reported by daemon
+     * @return true when container is running or paused
+     */
+    static boolean isRunning(String state) {
+        return "running".equals(state) || "paused".equals(state);
+    }
+
+    /**
+     * Computes operations transforming actual topology to desired one.
+     *
+     * @param spec   desired topology
+     * @param actual actual topology
+     * @return the plan
+     */
+    static ReconcilePlan diff(TopologySpec spec, ActualTopology actual) {
+        ReconcilePlan plan = new ReconcilePlan();
+        Set<String> recreatedNetworks = diffNetworks(spec, actual, plan);
+        for (DeviceDeployment deployment : spec.getDevices()) {
+            diffDevice(deployment, actual.getDevices().get(deployment.getDevice().getName()), recreatedNetworks, plan);
+        }
+        for (ActualDevice device : actual.getDevices().values()) {
+            if (spec.findDevice(device.getName()) == null && device.isManaged()
+                    && !device.getName().startsWith(ContainerPool.NAME_PREFIX)) {
+                plan.add(Action.DESTROY_DEVICE, device.getName(), null);
+            }
+        }
+        for (ActualDevice device : actual.getDevices().values()) {
+            for (String network : device.getNetworks()) {
+                if (plan.contains(Action.DESTROY_NETWORK, null, network)
+                        && !plan.contains(Action.DESTROY_DEVICE, device.getName(), null)
+                        && !plan.contains(Action.DISCONNECT, device.getName(), network)) {
+                    checkManaged(device, network);
+                    plan.add(Action.DISCONNECT, device.getName(), network);
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Foreign container attached to network which has to be removed is not disconnected, plan fails instead.
+     */
+    private static void checkManaged(ActualDevice device, String network) {
+        if (!device.isManaged()) {
+            throw new IllegalStateException("Network " + network + " has to be removed, but container "
+                    + device.getName() + " which was not created by simulator is attached to it");
+        }
+    }
+
+    private static Set<String> diffNetworks(TopologySpec spec, ActualTopology actual, ReconcilePlan plan) {
+        Set<String> recreated = new HashSet<>();
+        for (Network network : spec.getNetworks()) {
+            ActualNetwork existing = actual.getNetworks().get(network.getName());
+            if (existing != null && network.getIPAddress() != null
+                    && !DockerController.subnetOf(network).toString().equals(existing.getSubnet())) {
+                if (!existing.isManaged()) {
+                    throw new IllegalStateException("Network " + network.getName()
+                            + " exists with different subnet and was not created by simulator");
+                }
+                plan.add(Action.DESTROY_NETWORK, null, network.getName());
+                recreated.add(network.getName());
+            }
+            if (existing == null || recreated.contains(network.getName())) {
+                plan.add(Action.CREATE_NETWORK, null, network.getName());
+            }
+        }
+        for (ActualNetwork network : actual.getNetworks().values()) {
+            if (network.isManaged() && spec.findNetwork(network.getName()) == null) {
+                plan.add(Action.DESTROY_NETWORK, null, network.getName());
+            }
+        }
+        return recreated;
+    }
+
+    private static void diffDevice(DeviceDeployment deployment, ActualDevice existing, Set<String> recreatedNetworks,
+                                   ReconcilePlan plan) {
+        String name = deployment.getDevice().getName();
+        if (existing != null && !existing.isManaged()) {
+            throw new IllegalStateException("Container " + name + " exists and was not created by simulator");
+        }
+        if (existing == null || !sameConfiguration(deployment, existing)) {
+            if (existing != null) {
+                plan.add(Action.DESTROY_DEVICE, name, null);
+            }
+            plan.add(Action.CREATE_DEVICE, name, null);
+            plan.add(Action.START, name, null);
+            return;
+        }
+        Set<String> desiredNetworks = new HashSet<>();
+        for (Network network : deployment.getNetworks()) {
+            desiredNetworks.add(network.getName());
+            boolean attached = existing.getNetworks().contains(network.getName());
+            if (attached && recreatedNetworks.contains(network.getName())) {
+                plan.add(Action.DISCONNECT, name, network.getName());
+            }
+            if (!attached || recreatedNetworks.contains(network.getName())) {
+                plan.add(Action.CONNECT, name, network.getName());
+            }
+        }
+        diffDetached(plan, name, existing, desiredNetworks);
+        if (!existing.isRunning()) {
+            plan.add(Action.START, name, null);
+        }
+    }
+
+    private static void diffDetached(ReconcilePlan plan, String name, ActualDevice existing,
+                                     Set<String> desiredNetworks) {
+        if (desiredNetworks.isEmpty()) {
+            return;
+        }
+        for (String network : existing.getNetworks()) {
+            if (!desiredNetworks.contains(network)) {
+                plan.add(Action.DISCONNECT, name, network);
+            }
+        }
+    }
+
+    /**
+     * Compares image and environment of existing container with desired ones. Environment of container
+     * contains also variables of its image, so desired variables only have to be present in it.
+     */
+    private static boolean sameConfiguration(DeviceDeployment deployment, ActualDevice existing) {
+        String tag = deployment.getTag();
+        boolean sameImage = tag.equals(existing.getImage())
+                || (!tag.contains(":") && (tag + ":latest").equals(existing.getImage()));
+        return sameImage
+                && (existing.getEnvVars() == null || existing.getEnvVars().containsAll(deployment.getEnvVars()));
+    }
+
+    private static String subnet(Ipam ipam) {
+        if (ipam == null || ipam.getConfig() == null || ipam.getConfig().isEmpty()) {
+            return null;
+        }
+        return ipam.getConfig().get(0).getSubnet();
+    }
+
+    private static boolean isManaged(Map<String, String> labels) {
+        return labels != null && labels.containsKey(DockerManager.MANAGED_LABEL);
+    }
+
+    private ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("reconciler"));
+    }
+
+    /**
+     * Execution of single plan, keeps containers and networks which operations work with.
+     */
+    private class Execution {
+        private final TopologySpec spec;
+        private final ActualTopology actual;
+        private final Map<String, Container> containers = new ConcurrentHashMap<>();
+
+        Execution(TopologySpec spec, ActualTopology actual) {
+            this.spec = spec;
+            this.actual = actual;
+            actual.getDevices().values().forEach(device -> containers.put(device.getName(),
+                    new DockerContainer(device.getName(), device.getId(), dockerManager)));
+            for (Network network : spec.getNetworks()) {
+                ActualNetwork existing = actual.getNetworks().get(network.getName());
+                if (existing != null) {
+                    network.setId(existing.getId());
+                    adoptSubnet(network, existing);
+                    controller.registerNetwork(network);
+                }
+            }
+        }
+
+        /**
+         * Network without IP address takes subnet of existing network, so it keeps subnet assigned earlier.
+         */
+        private void adoptSubnet(Network network, ActualNetwork existing) {
+            if (network.getIPAddress() == null && existing.getSubnet() != null) {
+                Ipv4Cidr subnet = Ipv4Cidr.parse(existing.getSubnet());
+                network.setIPAddress(subnet.getNetwork().toString());
+                network.setMask(subnet.getPrefix());
+            }
+        }
+
+        TaskGraph buildGraph(ReconcilePlan plan) {
+            TaskGraph graph = new TaskGraph();
+            for (Operation operation : plan.getOperations()) {
+                List<String> deps = new ArrayList<>();
+                for (Operation other : plan.getOperations()) {
+                    if (dependsOn(operation, other)) {
+                        deps.add(other.getId());
+                    }
+                }
+                graph.addTask(operation.getId(), () -> apply(operation), deps.toArray(new String[0]));
+            }
+            for (DeviceDeployment deployment : spec.getDevices()) {
+                String name = deployment.getDevice().getName();
+                graph.addTask("sync:" + name, () -> sync(deployment), tasksOf(plan, name));
+            }
+            return graph;
+        }
+
+        private boolean dependsOn(Operation operation, Operation other) {
+            boolean sameDevice = other.getDevice() != null && other.getDevice().equals(operation.getDevice());
+            boolean sameNetwork = other.getNetwork() != null && other.getNetwork().equals(operation.getNetwork());
+            switch (operation.getAction()) {
+                case CREATE_NETWORK:
+                    return other.getAction() == Action.DESTROY_NETWORK && sameNetwork;
+                case DESTROY_NETWORK:
+                    return (other.getAction() == Action.DISCONNECT && sameNetwork)
+                            || (other.getAction() == Action.DESTROY_DEVICE
+                            && wasAttached(other.getDevice(), operation.getNetwork()));
+                case CREATE_DEVICE:
+                    return (other.getAction() == Action.DESTROY_DEVICE && sameDevice)
+                            || (other.getAction() == Action.CREATE_NETWORK
+                            && spec.findDevice(operation.getDevice()).getNetworks().stream()
+                            .anyMatch(network -> network.getName().equals(other.getNetwork())));
+                case CONNECT:
+                    return (other.getAction() == Action.CREATE_NETWORK && sameNetwork)
+                            || (other.getAction() == Action.DISCONNECT && sameNetwork && sameDevice);
+                case START:
+                    return (other.getAction() == Action.CREATE_DEVICE || other.getAction() == Action.CONNECT)
+                            && sameDevice;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean wasAttached(String device, String network) {
+            return actual.getDevices().get(device).getNetworks().contains(network);
+        }
+
+        private String[] tasksOf(ReconcilePlan plan, String device) {
+            return plan.getOperations().stream().filter(o -> device.equals(o.getDevice()))
+                    .map(Operation::getId).toArray(String[]::new);
+        }
+
+        private void apply(Operation operation) {
+            switch (operation.getAction()) {
+                case CREATE_NETWORK:
+                    controller.createNetwork(spec.findNetwork(operation.getNetwork()));
+                    break;
+                case DESTROY_NETWORK:
+                    controller.destroyNetwork(actualNetwork(operation.getNetwork()));
+                    break;
+                case CREATE_DEVICE:
+                    create(spec.findDevice(operation.getDevice()));
+                    break;
+                case DESTROY_DEVICE:
+                    controller.invalidateDeviceContainer(operation.getDevice());
+                    dockerManager.destroyContainer(containers.remove(operation.getDevice()));
+                    break;
+                case CONNECT:
+                    connect(spec.findDevice(operation.getDevice()), spec.findNetwork(operation.getNetwork()));
+                    break;
+                case DISCONNECT:
+                    dockerManager.disconnectContainer(containers.get(operation.getDevice()),
+                            actualNetwork(operation.getNetwork()));
+                    controller.forgetAttachment(operation.getDevice(), operation.getNetwork());
+                    break;
+                default:
+                    dockerManager.startContainer(containers.get(operation.getDevice()));
+            }
+        }
+
+        private void create(DeviceDeployment deployment) {
+            String name = deployment.getDevice().getName();
+            containers.put(name, dockerManager.createContainer(name, deployment.getTag(), deployment.getEnvVars(),
+                    deployment.getNetworks(), deployment.getStaticIps()));
+        }
+
+        private void connect(DeviceDeployment deployment, Network network) {
+            dockerManager.connectContainerToNetwork(containers.get(deployment.getDevice().getName()), network,
+                    deployment.getStaticIps().get(network.getName()));
+        }
+
+        /**
+         * Network as it exists in daemon, with its actual subnet, so controller releases the subnet
+         * which the network really had.
+         */
+        private Network actualNetwork(String name) {
+            ActualNetwork network = actual.getNetworks().get(name);
+            Network dockerNetwork = new DockerNetwork(network.getName(), network.getId());
+            if (network.getSubnet() != null) {
+                Ipv4Cidr subnet = Ipv4Cidr.parse(network.getSubnet());
+                dockerNetwork.setIPAddress(subnet.getNetwork().toString());
+                dockerNetwork.setMask(subnet.getPrefix());
+            }
+            return dockerNetwork;
+        }
+
+        private void sync(DeviceDeployment deployment) {
+            Container container = containers.get(deployment.getDevice().getName());
+            controller.registerDeviceContainer(deployment.getDevice().getName(), container);
+            controller.assignAddresses(deployment, container);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import io.patriot_framework.network.simulator.api.model.network.Network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Desired topology: networks with their subnets and devices with their images, environment and networks.
+ */
+public class TopologySpec {
+    private final List<Network> networks = new ArrayList<>();
+    private final List<DeviceDeployment> devices = new ArrayList<>();
+
+    /**
+     * Adds network to topology. Network has to have IP address and mask set.
+     *
+     * @param network the network
+     * @return this spec
+     */
+    public TopologySpec addNetwork(Network network) {
+        networks.add(network);
+        return this;
+    }
+
+    /**
+     * Adds device to topology.
+     *
+     * @param deployment deployment of device
+     * @return this spec
+     */
+    public TopologySpec addDevice(DeviceDeployment deployment) {
+        devices.add(deployment);
+        return this;
+    }
+
+    public List<Network> getNetworks() {
+        return networks;
+    }
+
+    public List<DeviceDeployment> getDevices() {
+        return devices;
+    }
+
+    /**
+     * Finds network by name.
+     *
+     * @param name network name
+     * @return the network or null when topology does not contain it
+     */
+    public Network findNetwork(String name) {
+        return networks.stream().filter(n -> n.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    /**
+     * Finds device deployment by device name.
+     *
+     * @param name device name
+     * @return the deployment or null when topology does not contain it
+     */
+    public DeviceDeployment findDevice(String name) {
+        return devices.stream().filter(d -> d.getDevice().getName().equals(name)).findFirst().orElse(null);
+    }
+}
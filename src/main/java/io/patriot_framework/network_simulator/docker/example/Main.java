@@ -16,9 +16,6 @@
 
 package io.patriot_framework.network_simulator.docker.example;
 
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
 import io.patriot_framework.network_simulator.docker.DockerExample;
 import io.patriot_framework.network_simulator.docker.args.CommandLineParser;
 import io.patriot_framework.network_simulator.docker.cleanup.Cleaner;
@@ -55,8 +52,6 @@ public class Main {
 
         if (cmdArgs.isClean()) {
             LOGGER.info("Cleaning docker.");
-            DockerClient dockerClient = DockerClientBuilder.
-                    getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build()).build();
             Cleaner cleaner = new Cleaner();
             cleaner.cleanUp(Arrays.asList("client_network", "server_network"),
                     Arrays.asList("comm_client", "comm_server", "router"));
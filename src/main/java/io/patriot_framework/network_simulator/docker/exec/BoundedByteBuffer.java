@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Byte buffer which keeps only first bytes up to its capacity and remembers that rest was dropped.
+ */
+class BoundedByteBuffer {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final int capacity;
+    private boolean truncated;
+
+    BoundedByteBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void write(byte[] bytes, int offset, int length) {
+        int free = capacity - buffer.size();
+        if (length > free) {
+            truncated = true;
+        }
+        buffer.write(bytes, offset, Math.max(0, Math.min(free, length)));
+    }
+
+    synchronized void write(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    synchronized byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+
+    synchronized boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes same command in many containers at once. Number of concurrently executed commands is bounded
+ * by size of executor, each command has its own timeout given by exec options.
+ */
+public class BulkExec {
+    private final DockerManager dockerManager;
+    private final ExecutorService executor;
+
+    /**
+     * Instantiates a new Bulk exec.
+     *
+     * @param dockerManager manager executing commands
+     * @param executor      executor of commands, its size limits concurrency
+     */
+    public BulkExec(DockerManager dockerManager, ExecutorService executor) {
+        this.dockerManager = dockerManager;
+        this.executor = executor;
+    }
+
+    /**
+     * Executes command in all containers and waits for all results.
+     *
+     * @param targets containers by target name
+     * @param command command which will be executed, split on whitespace
+     * @param options timeout of command in each container and output limit
+     * @param mode    behaviour after failed command
+     * @return aggregated result
+     */
+    public BulkExecResult run(Map<String, Container> targets, String command, ExecOptions options,
+                              BulkExecMode mode) {
+        CompletionService<ExecResult> completion = new ExecutorCompletionService<>(executor);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Set<String> skipped = ConcurrentHashMap.newKeySet();
+        Map<Future<ExecResult>, String> futures = new LinkedHashMap<>();
+        targets.forEach((name, container) -> futures.put(completion.submit(() -> {
+            if (stopped.get()) {
+                skipped.add(name);
+                return null;
+            }
+            return dockerManager.runCommand(container, command, options);
+        }), name));
+        Map<String, ExecResult> results = new LinkedHashMap<>();
+        Map<String, Throwable> errors = new LinkedHashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<ExecResult> future = take(completion, futures);
+            String name = futures.get(future);
+            if (!skipped.contains(name) && collect(future, name, results, errors) && mode == BulkExecMode.FAIL_FAST) {
+                stopped.set(true);
+            }
+        }
+        return new BulkExecResult(results, errors, new HashSet<>(skipped));
+    }
+
+    private static Future<ExecResult> take(CompletionService<ExecResult> completion,
+                                           Map<Future<ExecResult>, String> futures) {
+        try {
+            return completion.take();
+        } catch (InterruptedException e) {
+            futures.keySet().forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ExecException("Waiting for bulk execution interrupted", e);
+        }
+    }
+
+    private static boolean collect(Future<ExecResult> future, String name, Map<String, ExecResult> results,
+                                   Map<String, Throwable> errors) {
+        try {
+            ExecResult result = future.get();
+            results.put(name, result);
+            return !result.isSuccess();
+        } catch (ExecutionException e) {
+            errors.put(name, e.getCause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecException("Waiting for bulk execution interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+/**
+ * Behaviour of bulk execution when command fails in some container.
+ */
+public enum BulkExecMode {
+    /**
+     * Commands which did not start yet are skipped after first failure. Commands which were already
+     * running finish and their results are reported.
+     */
+    FAIL_FAST,
+    /**
+     * Command is executed in all containers regardless of failures.
+     */
+    COLLECT_ALL
+}
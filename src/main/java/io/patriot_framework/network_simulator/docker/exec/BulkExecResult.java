@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aggregated result of command executed in many containers. Command failed in container when it exited with
+ * non-zero exit code or could not be executed at all.
+ */
+public class BulkExecResult {
+    private final Map<String, ExecResult> results;
+    private final Map<String, Throwable> errors;
+    private final Set<String> skipped;
+    private final long[] durations;
+
+    /**
+     * Instantiates a new Bulk exec result.
+     *
+     * @param results results of finished commands by target name
+     * @param errors  errors of commands which could not be executed by target name
+     * @param skipped targets where command was not started after failure
+     */
+    public BulkExecResult(Map<String, ExecResult> results, Map<String, Throwable> errors, Set<String> skipped) {
+        this.results = Collections.unmodifiableMap(results);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.skipped = Collections.unmodifiableSet(skipped);
+        this.durations = results.values().stream().mapToLong(ExecResult::getDurationMillis).sorted().toArray();
+    }
+
+    public Map<String, ExecResult> getResults() {
+        return results;
+    }
+
+    public Map<String, Throwable> getErrors() {
+        return errors;
+    }
+
+    public Set<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Counts targets where command exited with zero exit code.
+     *
+     * @return number of successful commands
+     */
+    public long getSucceeded() {
+        return results.values().stream().filter(ExecResult::isSuccess).count();
+    }
+
+    /**
+     * Counts targets where command exited with non-zero exit code or could not be executed.
+     *
+     * @return number of failed commands
+     */
+    public long getFailed() {
+        return results.size() - getSucceeded() + errors.size();
+    }
+
+    /**
+     * Checks whether command succeeded in all targets.
+     *
+     * @return true if there is no failed or skipped target
+     */
+    public boolean isSuccess() {
+        return getFailed() == 0 && skipped.isEmpty();
+    }
+
+    /**
+     * Gets median duration of finished commands.
+     *
+     * @return the duration in milliseconds, 0 when no command finished
+     */
+    public long getP50DurationMillis() {
+        return percentile(durations, 50);
+    }
+
+    /**
+     * Gets 99th percentile of duration of finished commands.
+     *
+     * @return the duration in milliseconds, 0 when no command finished
+     */
+    public long getP99DurationMillis() {
+        return percentile(durations, 99);
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     *
+     * @param sorted     sorted values
+     * @param percentile percentile in range 1 to 100
+     * @return value of percentile, 0 for no values
+     */
+    static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "BulkExecResult[succeeded=" + getSucceeded() + ", failed=" + getFailed() + ", skipped=" + skipped.size()
+                + ", p50=" + getP50DurationMillis() + " ms, p99=" + getP99DurationMillis() + " ms]";
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+/**
+ * Thrown when command in container could not be executed or waiting for it failed.
+ */
+public class ExecException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new Exec exception.
+     *
+     * @param message description of failure
+     * @param cause   cause of failure
+     */
+    public ExecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
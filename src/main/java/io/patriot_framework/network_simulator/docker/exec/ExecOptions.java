@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+/**
+ * Options of command execution in container.
+ */
+public class ExecOptions {
+    /**
+     * Default time after which command is abandoned.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+    /**
+     * Default number of bytes kept from each output stream.
+     */
+    public static final int DEFAULT_MAX_OUTPUT_BYTES = 1024 * 1024;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private int maxOutputBytes = DEFAULT_MAX_OUTPUT_BYTES;
+    private byte[] stdin;
+
+    /**
+     * Sets time after which waiting for command is abandoned. Docker can not kill exec process,
+     * so command may still be running in container.
+     *
+     * @param timeoutMillis the timeout in milliseconds, 0 waits without limit
+     * @return these options
+     */
+    public ExecOptions withTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets number of bytes kept from standard and error output, rest of output is dropped.
+     *
+     * @param maxOutputBytes the max output bytes
+     * @return these options
+     */
+    public ExecOptions withMaxOutputBytes(int maxOutputBytes) {
+        this.maxOutputBytes = maxOutputBytes;
+        return this;
+    }
+
+    /**
+     * Sets data written to standard input of command, input is closed after data are written.
+     * Large inputs do not hit argument length limits of shell commands.
+     *
+     * @param stdin the input
+     * @return these options
+     */
+    public ExecOptions withStdin(byte[] stdin) {
+        this.stdin = stdin;
+        return this;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getMaxOutputBytes() {
+        return maxOutputBytes;
+    }
+
+    public byte[] getStdin() {
+        return stdin;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Result of command executed in container. Outputs are bounded, see {@link ExecOptions#withMaxOutputBytes(int)}.
+ */
+public class ExecResult {
+    /**
+     * Exit code used when daemon did not report exit code of command.
+     */
+    public static final int UNKNOWN_EXIT_CODE = -1;
+    private final int exitCode;
+    private final byte[] stdout;
+    private final byte[] stderr;
+    private final boolean truncated;
+    private final long durationMillis;
+
+    /**
+     * Instantiates a new Exec result.
+     *
+     * @param exitCode       exit code of command
+     * @param stdout         standard output of command
+     * @param stderr         error output of command
+     * @param truncated      whether part of output was dropped
+     * @param durationMillis time from command start to its end
+     */
+    public ExecResult(int exitCode, byte[] stdout, byte[] stderr, boolean truncated, long durationMillis) {
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.truncated = truncated;
+        this.durationMillis = durationMillis;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Gets standard output decoded as UTF-8.
+     *
+     * @return the stdout
+     */
+    public String getStdout() {
+        return new String(stdout, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets error output decoded as UTF-8.
+     *
+     * @return the stderr
+     */
+    public String getStderr() {
+        return new String(stderr, StandardCharsets.UTF_8);
+    }
+
+    public byte[] getStdoutBytes() {
+        return stdout.clone();
+    }
+
+    public byte[] getStderrBytes() {
+        return stderr.clone();
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Checks whether command exited with zero exit code.
+     *
+     * @return true if command succeeded
+     */
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecResult[exitCode=" + exitCode + ", duration=" + durationMillis + " ms, stdout=" + getStdout()
+                + ", stderr=" + getStderr() + "]";
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.ExecStartCmd;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.dockerjava.core.async.ResultCallbackTemplate;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Runs single commands in containers through exec create and start. Output is collected into bounded
+ * buffers or streamed to consumer, exit code is read from exec inspection after stream ends.
+ * Cancelling returned future or reaching timeout closes attached stream. Commands with standard input
+ * need client which supports attached input, see DockerClientRegistry#getStreamingClient().
+ */
+public class ExecRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecRunner.class);
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = timeoutScheduler("exec-timeout");
+    private final DockerClient dockerClient;
+
+    /**
+     * Instantiates a new Exec runner.
+     *
+     * @param dockerClient the docker client
+     */
+    public ExecRunner(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * Runs command and waits for its result.
+     *
+     * @param containerId id of running container
+     * @param command     command with arguments
+     * @param options     execution options
+     * @return result of command
+     * @throws ExecException when command times out, fails or waiting is interrupted
+     */
+    public ExecResult run(String containerId, String[] command, ExecOptions options) {
+        CompletableFuture<ExecResult> future = submit(containerId, command, options);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ExecException("Waiting for command in container " + containerId + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ExecException("Command in container " + containerId + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Starts command, its output is collected into bounded buffers.
+     *
+     * @param containerId id of running container
+     * @param command     command with arguments
+     * @param options     execution options
+     * @return future completed with result of command, fails with TimeoutException on timeout
+     */
+    public CompletableFuture<ExecResult> submit(String containerId, String[] command, ExecOptions options) {
+        BoundedByteBuffer stdout = new BoundedByteBuffer(options.getMaxOutputBytes());
+        BoundedByteBuffer stderr = new BoundedByteBuffer(options.getMaxOutputBytes());
+        return start(containerId, command, options, frame -> {
+            (frame.getStreamType() == StreamType.STDERR ? stderr : stdout).write(frame.getPayload());
+        }, (exitCode, duration) -> new ExecResult(exitCode, stdout.toByteArray(), stderr.toByteArray(),
+                stdout.isTruncated() || stderr.isTruncated(), duration));
+    }
+
+    /**
+     * Starts command, its output frames are passed to consumer as they arrive and are not kept.
+     *
+     * @param containerId id of running container
+     * @param command     command with arguments
+     * @param options     execution options, output limit is not used
+     * @param consumer    consumer of output frames, called from stream thread
+     * @return future completed with result of command without output
+     */
+    public CompletableFuture<ExecResult> stream(String containerId, String[] command, ExecOptions options,
+                                                Consumer<Frame> consumer) {
+        return start(containerId, command, options, consumer,
+                (exitCode, duration) -> new ExecResult(exitCode, new byte[0], new byte[0], false, duration));
+    }
+
+    /**
+     * Creates and starts exec, failure of daemon calls completes returned future instead of being thrown.
+     */
+    private CompletableFuture<ExecResult> start(String containerId, String[] command, ExecOptions options,
+                                                Consumer<Frame> consumer, ResultFactory resultFactory) {
+        long start = System.currentTimeMillis();
+        CompletableFuture<ExecResult> future = new CompletableFuture<>();
+        ExecCallback callback;
+        try {
+            String execId = createExec(containerId, command, options.getStdin() != null);
+            ExecStartCmd startCmd = dockerClient.execStartCmd(execId);
+            if (options.getStdin() != null) {
+                startCmd.withStdIn(new ByteArrayInputStream(options.getStdin()));
+            }
+            callback = startCmd.exec(new ExecCallback(consumer, () ->
+                    future.complete(resultFactory.create(exitCode(execId), System.currentTimeMillis() - start)),
+                    future::completeExceptionally));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        ScheduledFuture<?> timeout = options.getTimeoutMillis() <= 0 ? null
+                : TIMEOUTS.schedule(() -> future.completeExceptionally(new TimeoutException("Command "
+                    + String.join(" ", command) + " timed out")), options.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        future.whenComplete((result, failure) -> {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (failure != null) {
+                callback.closeQuietly();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates scheduler of timeouts which drops cancelled timeouts at once, so finished commands and their
+     * output are not kept until their timeout would expire.
+     *
+     * @param threadName name of scheduler thread
+     * @return the scheduler
+     */
+    static ScheduledThreadPoolExecutor timeoutScheduler(String threadName) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory(threadName));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private String createExec(String containerId, String[] command, boolean attachStdin) {
+        return dockerClient.execCreateCmd(containerId)
+                .withPrivileged(true)
+                .withAttachStdin(attachStdin)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .withCmd(command)
+                .withUser("root")
+                .exec()
+                .getId();
+    }
+
+    private int exitCode(String execId) {
+        Integer exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCode();
+        return exitCode == null ? ExecResult.UNKNOWN_EXIT_CODE : exitCode;
+    }
+
+    /**
+     * Creates result when command ends.
+     */
+    private interface ResultFactory {
+        ExecResult create(int exitCode, long durationMillis);
+    }
+
+    /**
+     * Callback of attached exec output.
+     */
+    private static class ExecCallback extends ResultCallbackTemplate<ExecCallback, Frame> {
+        private final Consumer<Frame> consumer;
+        private final Runnable onEnd;
+        private final Consumer<Throwable> onFailure;
+
+        ExecCallback(Consumer<Frame> consumer, Runnable onEnd, Consumer<Throwable> onFailure) {
+            this.consumer = consumer;
+            this.onEnd = onEnd;
+            this.onFailure = onFailure;
+        }
+
+        @Override
+        public void onNext(Frame frame) {
+            consumer.accept(frame);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onFailure.accept(throwable);
+            super.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                onEnd.run();
+            } catch (RuntimeException e) {
+                onFailure.accept(e);
+            }
+            super.onComplete();
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException e) {
+                LOGGER.debug("Closing of exec stream failed", e);
+            }
+        }
+    }
+}
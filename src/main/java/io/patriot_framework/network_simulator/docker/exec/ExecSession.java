@@ -0,0 +1,433 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.dockerjava.core.async.ResultCallbackTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shell kept attached in container. Commands are written to its standard input one after another,
+ * each followed by marker lines carrying its exit code, so output of every command is cut from the
+ * stream and returned to its caller. Sequence of commands costs single exec create and attach.
+ * Each command runs in its own sh -c, so syntax errors or exit in command do not end the session.
+ * Command which reaches its timeout closes the session, as commands queued behind it would never run.
+ */
+public class ExecSession implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecSession.class);
+    private static final ScheduledThreadPoolExecutor TIMEOUTS =
+            ExecRunner.timeoutScheduler("exec-session-timeout");
+    private final DockerClient dockerClient;
+    private final String containerId;
+    private final String marker = "__patriot_exec_" + UUID.randomUUID().toString().replace("-", "");
+    private final StdinStream stdin = new StdinStream();
+    private final Deque<PendingCommand> awaitingStdout = new ArrayDeque<>();
+    private final Deque<PendingCommand> awaitingStderr = new ArrayDeque<>();
+    private final int maxOutputBytes;
+    private Closeable stream;
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new Exec session. Session has to be opened before first command.
+     *
+     * @param dockerClient docker client supporting attached standard input
+     * @param containerId  id of running container
+     */
+    public ExecSession(DockerClient dockerClient, String containerId) {
+        this(dockerClient, containerId, ExecOptions.DEFAULT_MAX_OUTPUT_BYTES);
+    }
+
+    /**
+     * Instantiates a new Exec session with limit of kept output. Session has to be opened before first command.
+     *
+     * @param dockerClient   docker client supporting attached standard input
+     * @param containerId    id of running container
+     * @param maxOutputBytes maximal number of kept bytes of standard and error output of each command
+     */
+    public ExecSession(DockerClient dockerClient, String containerId, int maxOutputBytes) {
+        this.dockerClient = dockerClient;
+        this.containerId = containerId;
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    /**
+     * Starts shell in container and attaches to it.
+     */
+    public synchronized void open() {
+        ExecCreateCmdResponse response = dockerClient.execCreateCmd(containerId)
+                .withAttachStdin(true)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .withPrivileged(true)
+                .withUser("root")
+                .withCmd("/bin/sh")
+                .exec();
+        stream = dockerClient.execStartCmd(response.getId()).withStdIn(stdin).exec(new SessionCallback());
+        LOGGER.debug("Exec session opened in container " + containerId);
+    }
+
+    /**
+     * Sends command to shell without waiting for it, so more commands can be pipelined.
+     * Command times out after default timeout.
+     *
+     * @param command shell command
+     * @return future completed with result of command
+     * @throws IllegalStateException when session is closed
+     */
+    public CompletableFuture<ExecResult> submit(String command) {
+        return submit(command, new ExecOptions());
+    }
+
+    /**
+     * Sends command to shell without waiting for it, so more commands can be pipelined. Output limit
+     * of session is used instead of limit of options.
+     *
+     * @param command shell command
+     * @param options timeout of command
+     * @return future completed with result of command, fails with TimeoutException on timeout
+     * @throws IllegalStateException when session is closed
+     */
+    public synchronized CompletableFuture<ExecResult> submit(String command, ExecOptions options) {
+        if (closed) {
+            throw new IllegalStateException("Exec session of container " + containerId + " is closed");
+        }
+        PendingCommand pending = new PendingCommand(marker, maxOutputBytes);
+        awaitingStdout.addLast(pending);
+        awaitingStderr.addLast(pending);
+        stdin.write(script(command).getBytes(StandardCharsets.UTF_8));
+        if (options.getTimeoutMillis() > 0) {
+            ScheduledFuture<?> timeout = TIMEOUTS.schedule(() -> timeout(pending, command),
+                    options.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            pending.future.whenComplete((result, failure) -> timeout.cancel(false));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Executes command and waits for its result.
+     *
+     * @param command shell command
+     * @return result of command
+     * @throws ExecException when command times out or session ends
+     */
+    public ExecResult execute(String command) {
+        return execute(command, new ExecOptions());
+    }
+
+    /**
+     * Executes command and waits for its result.
+     *
+     * @param command shell command
+     * @param options timeout of command
+     * @return result of command
+     * @throws ExecException when command times out or session ends
+     */
+    public ExecResult execute(String command, ExecOptions options) {
+        return await(submit(command, options));
+    }
+
+    /**
+     * Executes commands in order, all commands are sent at once.
+     *
+     * @param commands shell commands
+     * @return results in order of commands
+     * @throws ExecException when any command times out or session ends
+     */
+    public List<ExecResult> executeAll(List<String> commands) {
+        return executeAll(commands, new ExecOptions());
+    }
+
+    /**
+     * Executes commands in order, all commands are sent at once.
+     *
+     * @param commands shell commands
+     * @param options  timeout of each command
+     * @return results in order of commands
+     * @throws ExecException when any command times out or session ends
+     */
+    public List<ExecResult> executeAll(List<String> commands, ExecOptions options) {
+        List<CompletableFuture<ExecResult>> futures = new ArrayList<>();
+        for (String command : commands) {
+            futures.add(submit(command, options));
+        }
+        List<ExecResult> results = new ArrayList<>();
+        futures.forEach(future -> results.add(await(future)));
+        return results;
+    }
+
+    /**
+     * Checks whether session accepts commands.
+     *
+     * @return true if session is open
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Ends shell and fails commands which did not finish.
+     */
+    @Override
+    public void close() {
+        stdin.close();
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                LOGGER.debug("Closing of exec stream failed", e);
+            }
+        }
+        terminate();
+    }
+
+    /**
+     * Passes frame of attached stream to pending commands.
+     *
+     * @param type    stream of frame
+     * @param payload frame content
+     */
+    synchronized void onFrame(StreamType type, byte[] payload) {
+        boolean stdout = type != StreamType.STDERR;
+        Deque<PendingCommand> awaiting = stdout ? awaitingStdout : awaitingStderr;
+        String text = new String(payload, StandardCharsets.ISO_8859_1);
+        while (!text.isEmpty() && !awaiting.isEmpty()) {
+            PendingCommand pending = awaiting.peekFirst();
+            CommandOutput output = stdout ? pending.stdout : pending.stderr;
+            text = output.append(text);
+            if (text == null) {
+                return;
+            }
+            awaiting.pollFirst();
+            pending.finish(stdout, output.getMarkerLine().substring(marker.length()).trim());
+        }
+    }
+
+    private ExecResult await(CompletableFuture<ExecResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecException("Waiting for command in container " + containerId + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ExecException("Command in container " + containerId + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Fails command which did not finish in time and closes session, shell is busy with the command.
+     */
+    private void timeout(PendingCommand pending, String command) {
+        if (pending.future.completeExceptionally(new TimeoutException("Command " + command + " timed out"))) {
+            LOGGER.warn("Command in exec session of container " + containerId + " timed out, closing session");
+            close();
+        }
+    }
+
+    String getMarker() {
+        return marker;
+    }
+
+    private String script(String command) {
+        return "sh -c '" + command.replace("'", "'\\''") + "' < /dev/null\n"
+                + "printf '\\n%s %d\\n' " + marker + " $?\n"
+                + "printf '\\n%s\\n' " + marker + " >&2\n";
+    }
+
+    private synchronized void terminate() {
+        closed = true;
+        IllegalStateException ended = new IllegalStateException("Exec session of container " + containerId + " ended");
+        for (PendingCommand pending : awaitingStdout) {
+            pending.future.completeExceptionally(ended);
+        }
+        for (PendingCommand pending : awaitingStderr) {
+            pending.future.completeExceptionally(ended);
+        }
+        awaitingStdout.clear();
+        awaitingStderr.clear();
+    }
+
+    /**
+     * Command waiting for its marker lines.
+     */
+    private static class PendingCommand {
+        private final CompletableFuture<ExecResult> future = new CompletableFuture<>();
+        private final CommandOutput stdout;
+        private final CommandOutput stderr;
+        private final long start = System.currentTimeMillis();
+        private Integer exitCode;
+        private boolean stderrDone;
+
+        PendingCommand(String marker, int maxOutputBytes) {
+            this.stdout = new CommandOutput(marker, maxOutputBytes);
+            this.stderr = new CommandOutput(marker, maxOutputBytes);
+        }
+
+        void finish(boolean fromStdout, String exitCodeText) {
+            if (fromStdout) {
+                exitCode = Integer.valueOf(exitCodeText);
+            } else {
+                stderrDone = true;
+            }
+            if (exitCode != null && stderrDone) {
+                BoundedByteBuffer out = stdout.buffer;
+                BoundedByteBuffer err = stderr.buffer;
+                future.complete(new ExecResult(exitCode, out.toByteArray(), err.toByteArray(),
+                        out.isTruncated() || err.isTruncated(), System.currentTimeMillis() - start));
+            }
+        }
+    }
+
+    /**
+     * Output of single stream of command. Output is written into bounded buffer as it arrives, only end
+     * which may contain beginning of marker line is held back until next frame.
+     */
+    private static class CommandOutput {
+        private final String separator;
+        private final BoundedByteBuffer buffer;
+        private final StringBuilder tail = new StringBuilder();
+        private String markerLine;
+
+        CommandOutput(String marker, int maxOutputBytes) {
+            this.separator = "\n" + marker;
+            this.buffer = new BoundedByteBuffer(maxOutputBytes);
+        }
+
+        /**
+         * Appends text of frame.
+         *
+         * @return text following marker line or null when marker line did not end yet
+         */
+        String append(String text) {
+            tail.append(text);
+            int end = tail.indexOf(separator);
+            if (end < 0) {
+                commit(Math.max(0, tail.length() - separator.length() + 1));
+                return null;
+            }
+            commit(end);
+            int lineEnd = tail.indexOf("\n", 1);
+            if (lineEnd < 0) {
+                return null;
+            }
+            markerLine = tail.substring(1, lineEnd);
+            String rest = tail.substring(lineEnd + 1);
+            tail.setLength(0);
+            return rest;
+        }
+
+        String getMarkerLine() {
+            return markerLine;
+        }
+
+        private void commit(int length) {
+            buffer.write(tail.substring(0, length).getBytes(StandardCharsets.ISO_8859_1));
+            tail.delete(0, length);
+        }
+    }
+
+    /**
+     * Callback of attached shell streams.
+     */
+    private class SessionCallback extends ResultCallbackTemplate<SessionCallback, Frame> {
+        @Override
+        public void onNext(Frame frame) {
+            onFrame(frame.getStreamType(), frame.getPayload());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOGGER.warn("Exec session of container " + containerId + " failed", throwable);
+            terminate();
+            super.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            terminate();
+            super.onComplete();
+        }
+    }
+
+    /**
+     * Standard input of shell. Unlike piped streams it does not depend on liveness of writing threads.
+     */
+    private static class StdinStream extends InputStream {
+        private static final byte[] EOF = new byte[0];
+        private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+        private byte[] current;
+        private int position;
+
+        void write(byte[] bytes) {
+            chunks.add(bytes);
+        }
+
+        @Override
+        public void close() {
+            chunks.add(EOF);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (current == null || position == current.length) {
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Reading of exec input interrupted", e);
+                }
+                position = 0;
+                if (current == EOF) {
+                    chunks.add(EOF);
+                    return -1;
+                }
+            }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
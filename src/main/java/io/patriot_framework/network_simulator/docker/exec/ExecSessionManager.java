@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import com.github.dockerjava.api.DockerClient;
+import io.patriot_framework.network_simulator.docker.container.Container;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one exec session per container. Session is opened on first command and opened again
+ * when its shell ended, e.g. after container restart.
+ */
+public class ExecSessionManager implements Closeable {
+    private final DockerClient dockerClient;
+    private final Map<String, ExecSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Exec session manager.
+     *
+     * @param dockerClient docker client supporting attached standard input
+     */
+    public ExecSessionManager(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * Gets open session of container.
+     *
+     * @param container running container
+     * @return the session
+     */
+    public ExecSession session(Container container) {
+        return sessions.compute(container.getId(), (id, session) -> {
+            if (session != null && session.isOpen()) {
+                return session;
+            }
+            ExecSession opened = new ExecSession(dockerClient, id);
+            opened.open();
+            return opened;
+        });
+    }
+
+    /**
+     * Sends command to session of container without waiting for it.
+     *
+     * @param container running container
+     * @param command   shell command
+     * @return future completed with result of command
+     */
+    public CompletableFuture<ExecResult> submit(Container container, String command) {
+        return session(container).submit(command);
+    }
+
+    /**
+     * Executes command in container and waits for its result.
+     *
+     * @param container running container
+     * @param command   shell command
+     * @return result of command
+     */
+    public ExecResult execute(Container container, String command) {
+        return session(container).execute(command);
+    }
+
+    /**
+     * Executes commands in container over single session.
+     *
+     * @param container running container
+     * @param commands  shell commands
+     * @return results in order of commands
+     */
+    public List<ExecResult> executeAll(Container container, List<String> commands) {
+        return session(container).executeAll(commands);
+    }
+
+    /**
+     * Executes commands in container over single session. Session of command which times out is closed
+     * and opened again on next use.
+     *
+     * @param container running container
+     * @param commands  shell commands
+     * @param options   timeout of each command
+     * @return results in order of commands
+     */
+    public List<ExecResult> executeAll(Container container, List<String> commands, ExecOptions options) {
+        return session(container).executeAll(commands, options);
+    }
+
+    /**
+     * Closes session of container, e.g. before container is removed.
+     *
+     * @param container the container
+     */
+    public void close(Container container) {
+        ExecSession session = sessions.remove(container.getId());
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        sessions.values().forEach(ExecSession::close);
+        sessions.clear();
+    }
+}
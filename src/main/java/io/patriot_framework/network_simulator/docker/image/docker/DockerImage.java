@@ -16,18 +16,17 @@
 
 package io.patriot_framework.network_simulator.docker.image.docker;
 
-import io.patriot_framework.network_simulator.docker.files.FileUtils;
 import io.patriot_framework.network_simulator.docker.image.Image;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.DockerFileBuilder;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.TarBuildContext;
 import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Set;
 
 /**
@@ -35,8 +34,7 @@ import java.util.Set;
  */
 public class DockerImage implements Image {
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerImage.class);
-    private Path tmpDockerDir;
-    private FileUtils fileUtils;
+    private ImageBuildCache buildCache;
 
     private DockerManager dockerManager;
 
@@ -47,7 +45,7 @@ public class DockerImage implements Image {
      */
     public DockerImage(DockerManager dockerManager) {
         this.dockerManager = dockerManager;
-        this.fileUtils = new FileUtils();
+        this.buildCache = new ImageBuildCache(dockerManager);
     }
 
     /**
@@ -60,21 +58,64 @@ public class DockerImage implements Image {
         dockerManager.buildImage(new File(path), tag);
     }
 
-    public void buildRouterImage(Set<String> tag) throws IOException {
-        InputStream in = getClass().getResourceAsStream("/router/Dockerfile");
-        if (tmpDockerDir == null) tmpDockerDir = Files.createTempDirectory(Paths.get("/tmp"), "tmpTestDir");
-        Path testFile = Files.createTempFile(tmpDockerDir, "RouterDockerfile", "");
+    /**
+     * Builds router image unless image with the same Dockerfile exists.
+     *
+     * @param tag Set of image tags
+     * @return content tag of image
+     * @throws IOException when Dockerfile could not be read
+     */
+    public String buildRouterImage(Set<String> tag) throws IOException {
+        return buildClasspathImage("/router/Dockerfile", tag);
+    }
+
+    /**
+     * Builds application image unless image with the same Dockerfile exists.
+     *
+     * @param tag Set of image tags
+     * @return content tag of image
+     * @throws IOException when Dockerfile could not be read
+     */
+    public String buildAppImage(Set<String> tag) throws IOException {
+        return buildClasspathImage("/app/Dockerfile", tag);
+    }
 
-        dockerManager.buildImage(new File(fileUtils.convertToFile(in, testFile.toString())), tag);
+    private String buildClasspathImage(String resource, Set<String> tag) throws IOException {
+        return buildCache.build(classpathContext(resource), tag);
     }
 
-    public void buildAppImage(Set<String> tag) throws IOException {
+    /**
+     * Creates build context from Dockerfile on classpath.
+     *
+     * @param resource classpath location of Dockerfile
+     * @return build context without sources
+     * @throws IOException when Dockerfile could not be read
+     */
+    public static TarBuildContext classpathContext(String resource) throws IOException {
+        try (InputStream in = DockerImage.class.getResourceAsStream(resource)) {
+            return new TarBuildContext(IOUtils.toByteArray(in));
+        }
+    }
 
-        InputStream in = getClass().getResourceAsStream("/app/Dockerfile");
-        if (tmpDockerDir == null) tmpDockerDir = Files.createTempDirectory(Paths.get("/tmp"), "tmpTestDir");
-        Path testFile = Files.createTempFile(tmpDockerDir, "AppDockerfile", "");
+    /**
+     * Gets cache used for builds of this image.
+     *
+     * @return the build cache
+     */
+    public ImageBuildCache getBuildCache() {
+        return buildCache;
+    }
 
-        dockerManager.buildImage(new File(fileUtils.convertToFile(in, testFile.toString())), tag);
+    /**
+     * Builds image from builder unless image with the same content exists. Build context is streamed
+     * directly from rendered Dockerfile and added sources.
+     *
+     * @param builder the builder
+     * @param tag     Set of image tags
+     * @return content tag of image
+     */
+    public String buildImage(DockerFileBuilder builder, Set<String> tag) {
+        return buildCache.build(new TarBuildContext(builder), tag);
     }
 
     @Override
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker;
+
+import io.patriot_framework.network_simulator.docker.image.docker.builder.TarBuildContext;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cache of built images addressed by content. Image is labeled with SHA-256 of its Dockerfile and
+ * build context and tagged by it, so build is skipped when image with the same content already exists
+ * locally. Concurrent builds of the same content in this process are coalesced into one build.
+ */
+public class ImageBuildCache {
+    /**
+     * Label holding content hash of image.
+     */
+    public static final String HASH_LABEL = DockerManager.MANAGED_LABEL + ".content-hash";
+    /**
+     * Repository of content tags.
+     */
+    public static final String REPOSITORY = "patriot-build";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageBuildCache.class);
+    private static final int HASH_TAG_LENGTH = 16;
+    private final DockerManager dockerManager;
+    private final Map<String, CompletableFuture<String>> builds = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Image build cache.
+     *
+     * @param dockerManager the docker manager
+     */
+    public ImageBuildCache(DockerManager dockerManager) {
+        this.dockerManager = dockerManager;
+    }
+
+    /**
+     * Builds image from Dockerfile unless image with the same content exists.
+     *
+     * @param dockerfile Dockerfile, its directory is build context
+     * @param tags       additional tags of image
+     * @return content tag of image
+     */
+    public String build(File dockerfile, Set<String> tags) {
+        String hash = hash(readAll(dockerfile.toPath()), dockerfile.getParentFile().toPath());
+        return build(hash, tags, (contentTags, labels) -> dockerManager.buildImage(dockerfile, contentTags, labels));
+    }
+
+    /**
+     * Builds image from streamed context unless image with the same content exists.
+     *
+     * @param context Dockerfile with sources
+     * @param tags    additional tags of image
+     * @return content tag of image
+     */
+    public String build(TarBuildContext context, Set<String> tags) {
+        return build(context, tags, line -> { });
+    }
+
+    /**
+     * Builds image from streamed context unless image with the same content exists and reports build output.
+     *
+     * @param context  Dockerfile with sources
+     * @param tags     additional tags of image
+     * @param progress receives output lines of build
+     * @return content tag of image
+     */
+    public String build(TarBuildContext context, Set<String> tags, Consumer<String> progress) {
+        return build(hash(context), tags, (contentTags, labels) -> {
+            try (InputStream tar = context.open()) {
+                return dockerManager.buildImage(tar, contentTags, labels, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Build context could not be streamed", e);
+            }
+        });
+    }
+
+    /**
+     * Builds image of content hash unless it exists. Image has to be built with given tags and labels.
+     * Image found by label gets content tag again, since the tag may have moved to other image.
+     * Requested tags are added afterwards to image id, also when build was skipped.
+     *
+     * @param hash    content hash of Dockerfile and build context
+     * @param tags    additional tags of image
+     * @param builder builds image with tags and labels and returns its id
+     * @return content tag of image
+     */
+    public String build(String hash, Set<String> tags, BiFunction<Set<String>, Map<String, String>, String> builder) {
+        String contentTag = contentTag(hash);
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> current = builds.putIfAbsent(hash, created);
+        String id;
+        if (current == null) {
+            try {
+                id = buildIfMissing(hash, contentTag, builder);
+                created.complete(id);
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                builds.remove(hash, created);
+            }
+        } else {
+            id = await(current);
+        }
+        for (String tag : tags) {
+            dockerManager.tagImage(id, tag);
+        }
+        return contentTag;
+    }
+
+    /**
+     * Checks whether image of content hash exists locally.
+     *
+     * @param hash content hash
+     * @return true if image exists
+     */
+    public boolean contains(String hash) {
+        return dockerManager.findImageByLabel(HASH_LABEL, hash) != null;
+    }
+
+    /**
+     * Computes content tag of content hash.
+     *
+     * @param hash content hash
+     * @return the content tag
+     */
+    public static String contentTag(String hash) {
+        return REPOSITORY + ":" + hash.substring(0, HASH_TAG_LENGTH);
+    }
+
+    /**
+     * Computes SHA-256 of Dockerfile and all regular files of build context. Files are hashed in order
+     * of their relative paths together with the paths, so renamed file changes hash.
+     *
+     * @param dockerfile content of Dockerfile
+     * @param context    build context directory, may be null
+     * @return hex encoded hash
+     */
+    public static String hash(byte[] dockerfile, Path context) {
+        Map<String, Path> files = new LinkedHashMap<>();
+        if (context != null) {
+            for (Path file : listFiles(context)) {
+                files.put(context.relativize(file).toString().replace(File.separatorChar, '/'), file);
+            }
+        }
+        return hash(dockerfile, files);
+    }
+
+    /**
+     * Computes SHA-256 of Dockerfile and sources of streamed context.
+     *
+     * @param context Dockerfile with sources
+     * @return hex encoded hash
+     */
+    public static String hash(TarBuildContext context) {
+        try {
+            return hash(context.getDockerfile(), context.listEntries());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Build context could not be listed", e);
+        }
+    }
+
+    private static String hash(byte[] dockerfile, Map<String, Path> files) {
+        MessageDigest digest = newDigest();
+        update(digest, dockerfile);
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            update(digest, file.getKey().getBytes(StandardCharsets.UTF_8));
+            updateFile(digest, file.getValue());
+        }
+        return toHex(digest.digest());
+    }
+
+    private String buildIfMissing(String hash, String contentTag,
+                                  BiFunction<Set<String>, Map<String, String>, String> builder) {
+        String existing = dockerManager.findImageByLabel(HASH_LABEL, hash);
+        if (existing != null) {
+            LOGGER.info("Image " + contentTag + " is up to date, build skipped");
+            dockerManager.tagImage(existing, contentTag);
+            return existing;
+        }
+        long start = System.currentTimeMillis();
+        String id = builder.apply(Collections.singleton(contentTag), Collections.singletonMap(HASH_LABEL, hash));
+        LOGGER.info("Image " + contentTag + " built in " + (System.currentTimeMillis() - start) + " ms");
+        return id;
+    }
+
+    private static String await(CompletableFuture<String> build) {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static List<Path> listFiles(Path context) {
+        try (Stream<Path> files = Files.walk(context)) {
+            return files.filter(Files::isRegularFile)
+                    .sorted((a, b) -> context.relativize(a).toString().compareTo(context.relativize(b).toString()))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Build context " + context + " could not be listed", e);
+        }
+    }
+
+    private static void updateFile(MessageDigest digest, Path file) {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            digest.update(longBytes(Files.size(file)));
+            int read = in.read(buffer);
+            while (read >= 0) {
+                digest.update(buffer, 0, read);
+                read = in.read(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("File " + file + " could not be hashed", e);
+        }
+    }
+
+    /**
+     * Hashes length before content, so boundaries of hashed parts are unambiguous.
+     */
+    private static void update(MessageDigest digest, byte[] bytes) {
+        digest.update(longBytes(bytes.length));
+        digest.update(bytes);
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (value >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    private static byte[] readAll(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Dockerfile " + file + " could not be read", e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker;
+
+/**
+ * Progress of image build reported by {@link ImageBuildScheduler}.
+ */
+public class ImageBuildEvent {
+    /**
+     * Kind of event.
+     */
+    public enum Type {
+        /**
+         * Build of image started.
+         */
+        STARTED,
+        /**
+         * Build reached next Dockerfile step.
+         */
+        STEP,
+        /**
+         * Output line of build which does not start new step.
+         */
+        OUTPUT,
+        /**
+         * Image with the same content exists, build was skipped.
+         */
+        CACHED,
+        /**
+         * Image was built.
+         */
+        FINISHED,
+        /**
+         * Build failed.
+         */
+        FAILED
+    }
+
+    private final String tag;
+    private final Type type;
+    private final String message;
+    private final long elapsedMillis;
+    private final long stepMillis;
+
+    /**
+     * Instantiates a new Image build event.
+     *
+     * @param tag           tag of built image
+     * @param type          kind of event
+     * @param message       build output or error message, may be null
+     * @param elapsedMillis time since start of build
+     * @param stepMillis    duration of previous step for STEP events, duration of last step for FINISHED events
+     */
+    public ImageBuildEvent(String tag, Type type, String message, long elapsedMillis, long stepMillis) {
+        this.tag = tag;
+        this.type = type;
+        this.message = message;
+        this.elapsedMillis = elapsedMillis;
+        this.stepMillis = stepMillis;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getStepMillis() {
+        return stepMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + tag + " " + type + " " + elapsedMillis + " ms]" + (message == null ? "" : " " + message);
+    }
+}
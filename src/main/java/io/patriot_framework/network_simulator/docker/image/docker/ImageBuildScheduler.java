@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker;
+
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import io.patriot_framework.network_simulator.docker.concurrent.TaskGraph;
+import io.patriot_framework.network_simulator.docker.image.docker.ImageBuildEvent.Type;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.TarBuildContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Builds many images concurrently. Requests of the same tag are built once, images are built in order
+ * of their FROM dependencies on other requested images and independent images concurrently up to limit.
+ * FROM of requested image is pinned to content tag of its base, so changed base also changes hash of
+ * dependent image and cached dependent images are never stale.
+ */
+public class ImageBuildScheduler {
+    private final ImageBuildCache cache;
+    private final int parallelism;
+    private final Consumer<ImageBuildEvent> listener;
+    private final Map<String, TarBuildContext> requests = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a new Image build scheduler.
+     *
+     * @param cache       cache used for builds
+     * @param parallelism maximum number of concurrent builds
+     * @param listener    receives progress of builds, called from build threads
+     */
+    public ImageBuildScheduler(ImageBuildCache cache, int parallelism, Consumer<ImageBuildEvent> listener) {
+        this.cache = cache;
+        this.parallelism = parallelism;
+        this.listener = listener;
+    }
+
+    /**
+     * Requests build of image. Repeated request of tag with the same content is ignored.
+     *
+     * @param tag     tag of image
+     * @param context Dockerfile with sources
+     * @return this scheduler
+     * @throws IllegalArgumentException when tag was requested with different content
+     */
+    public synchronized ImageBuildScheduler submit(String tag, TarBuildContext context) {
+        String key = normalize(tag);
+        TarBuildContext existing = requests.get(key);
+        if (existing == null) {
+            requests.put(key, context);
+        } else if (!ImageBuildCache.hash(existing).equals(ImageBuildCache.hash(context))) {
+            throw new IllegalArgumentException("Image " + tag + " is already requested with different content");
+        }
+        return this;
+    }
+
+    /**
+     * Builds all requested images and waits for them.
+     *
+     * @return content tags by requested tag
+     * @throws io.patriot_framework.network_simulator.docker.concurrent.TaskGraphException when build fails,
+     *                                                                                      dependants are not built
+     */
+    public synchronized Map<String, String> buildAll() {
+        Map<String, String> built = new ConcurrentHashMap<>();
+        TaskGraph graph = new TaskGraph();
+        for (Map.Entry<String, TarBuildContext> request : requests.entrySet()) {
+            List<String> bases = requestedBases(request.getValue());
+            graph.addTask(request.getKey(), () -> build(request.getKey(), request.getValue(), built),
+                    bases.toArray(new String[0]));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("image-build"));
+        try {
+            graph.execute(executor);
+        } finally {
+            executor.shutdown();
+        }
+        return new LinkedHashMap<>(built);
+    }
+
+    /**
+     * Finds base images of all stages of Dockerfile, stages based on previous stage are skipped.
+     *
+     * @param dockerfile content of Dockerfile
+     * @return base images in order of FROM instructions
+     */
+    public static List<String> baseImages(byte[] dockerfile) {
+        List<String> bases = new ArrayList<>();
+        Set<String> stages = new HashSet<>();
+        for (String line : new String(dockerfile, StandardCharsets.UTF_8).split("\n")) {
+            String base = baseImage(line, stages);
+            if (base != null) {
+                bases.add(base);
+            }
+        }
+        return bases;
+    }
+
+    private List<String> requestedBases(TarBuildContext context) {
+        List<String> bases = new ArrayList<>();
+        for (String base : baseImages(context.getDockerfile())) {
+            if (requests.containsKey(normalize(base)) && !bases.contains(normalize(base))) {
+                bases.add(normalize(base));
+            }
+        }
+        return bases;
+    }
+
+    private void build(String tag, TarBuildContext context, Map<String, String> built) {
+        TarBuildContext pinned = context.withDockerfile(pin(context.getDockerfile(), built));
+        Progress progress = new Progress(tag);
+        try {
+            boolean cached = cache.contains(ImageBuildCache.hash(pinned));
+            listener.accept(progress.event(cached ? Type.CACHED : Type.STARTED, null));
+            built.put(tag, cache.build(pinned, Collections.singleton(tag), progress));
+            listener.accept(progress.finished());
+        } catch (RuntimeException e) {
+            listener.accept(progress.event(Type.FAILED, e.getMessage()));
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces requested base images in FROM instructions by their content tags.
+     *
+     * @param dockerfile content of Dockerfile
+     * @param built      content tags of built images by normalized tag
+     * @return pinned Dockerfile
+     */
+    public static byte[] pin(byte[] dockerfile, Map<String, String> built) {
+        StringBuilder pinned = new StringBuilder();
+        Set<String> stages = new HashSet<>();
+        for (String line : new String(dockerfile, StandardCharsets.UTF_8).split("\n", -1)) {
+            String base = baseImage(line, stages);
+            String contentTag = base == null ? null : built.get(normalize(base));
+            pinned.append(contentTag == null ? line : replaceBase(line, contentTag)).append('\n');
+        }
+        pinned.setLength(pinned.length() - 1);
+        return pinned.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses base image of FROM instruction and remembers name of stage.
+     *
+     * @return base image or null when line is not FROM or it is based on previous stage
+     */
+    private static String baseImage(String line, Set<String> stages) {
+        String[] words = line.trim().split("\\s+");
+        if (words.length < 2 || !"FROM".equalsIgnoreCase(words[0])) {
+            return null;
+        }
+        int index = baseIndex(words);
+        String base = stages.contains(words[index].toLowerCase()) ? null : words[index];
+        if (index + 2 < words.length && "AS".equalsIgnoreCase(words[index + 1])) {
+            stages.add(words[index + 2].toLowerCase());
+        }
+        return base;
+    }
+
+    /**
+     * Rebuilds FROM instruction from its words with base image replaced, so flags and keyword are kept.
+     */
+    private static String replaceBase(String line, String contentTag) {
+        String[] words = line.trim().split("\\s+");
+        words[baseIndex(words)] = contentTag;
+        return String.join(" ", words);
+    }
+
+    private static int baseIndex(String[] words) {
+        int index = 1;
+        while (index < words.length - 1 && words[index].startsWith("--")) {
+            index++;
+        }
+        return index;
+    }
+
+    private static String normalize(String tag) {
+        return tag.lastIndexOf(':') > tag.lastIndexOf('/') ? tag : tag + ":latest";
+    }
+
+    /**
+     * Turns build output of single image into events with step timings.
+     */
+    private class Progress implements Consumer<String> {
+        private final String tag;
+        private final long start = System.currentTimeMillis();
+        private long stepStart = start;
+
+        Progress(String tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public void accept(String line) {
+            if (line.startsWith("Step ")) {
+                long now = System.currentTimeMillis();
+                listener.accept(new ImageBuildEvent(tag, Type.STEP, line, now - start, now - stepStart));
+                stepStart = now;
+            } else {
+                listener.accept(event(Type.OUTPUT, line));
+            }
+        }
+
+        ImageBuildEvent event(Type type, String message) {
+            return new ImageBuildEvent(tag, type, message, System.currentTimeMillis() - start, 0);
+        }
+
+        ImageBuildEvent finished() {
+            long now = System.currentTimeMillis();
+            return new ImageBuildEvent(tag, Type.FINISHED, null, now - start, now - stepStart);
+        }
+    }
+}
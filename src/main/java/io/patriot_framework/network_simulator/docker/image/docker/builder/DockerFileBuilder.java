@@ -18,6 +18,7 @@ package io.patriot_framework.network_simulator.docker.image.docker.builder;
 
 import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerAddCmd;
 import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerCmdCmd;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerCopyCmd;
 import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerEntryCmd;
 import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerEnvCmd;
 import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerFilePart;
@@ -32,14 +33,17 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * The type Docker file builder.
+ * The type Docker file builder. Content of builder is the last stage of Dockerfile, previous stages
+ * of multi-stage build are created by {@link #stage(String, String)} and rendered before it.
  */
 public class DockerFileBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerFileBuilder.class);
     private List<DockerFilePart> fileContent = new ArrayList<>();
+    private List<DockerFileBuilder> stages = new ArrayList<>();
 
     /**
      * Gets file content.
@@ -63,6 +67,56 @@ public class DockerFileBuilder {
         return this;
     }
 
+    /**
+     * From docker file builder, stage is named so later stages can refer to it.
+     *
+     * @param baseImage the base image
+     * @param stageName name of stage
+     * @return the docker file builder
+     */
+    public DockerFileBuilder from(String baseImage, String stageName) {
+        DockerFilePart dockerFilePart = new DockerFromCmd();
+        ((DockerFromCmd) dockerFilePart).setRequest(baseImage, stageName);
+        this.fileContent.add(0, dockerFilePart);
+        return this;
+    }
+
+    /**
+     * Adds build stage rendered before content of this builder. Stages are rendered in order of creation.
+     *
+     * @param baseImage the base image
+     * @param stageName name of stage
+     * @return builder of the stage
+     */
+    public DockerFileBuilder stage(String baseImage, String stageName) {
+        DockerFileBuilder stage = new DockerFileBuilder().from(baseImage, stageName);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Gets builders of stages preceding content of this builder.
+     *
+     * @return the stages
+     */
+    public List<DockerFileBuilder> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Gets parts of all stages in order of rendering.
+     *
+     * @return parts of Dockerfile
+     */
+    public List<DockerFilePart> getAllParts() {
+        List<DockerFilePart> parts = new ArrayList<>();
+        for (DockerFileBuilder stage : stages) {
+            parts.addAll(stage.getAllParts());
+        }
+        parts.addAll(fileContent);
+        return parts;
+    }
+
     /**
      * Cmd docker file builder.
      *
@@ -143,6 +197,62 @@ public class DockerFileBuilder {
         return this;
     }
 
+    /**
+     * Copy docker file builder.
+     *
+     * @param newFile  the new file
+     * @param filePath the file path
+     * @return the docker file builder
+     */
+    public DockerFileBuilder copy(Path newFile, Path filePath) {
+        DockerFilePart copyDockerFilePart = new DockerCopyCmd();
+        ((DockerCopyCmd) copyDockerFilePart).setRequest(newFile.toString(), filePath.toString());
+        fileContent.add(copyDockerFilePart);
+        return this;
+    }
+
+    /**
+     * Copy docker file builder from previous stage, only copied files get into image of this stage.
+     *
+     * @param stageName name of stage
+     * @param newFile   path of file in stage
+     * @param filePath  the file path
+     * @return the docker file builder
+     */
+    public DockerFileBuilder copyFrom(String stageName, Path newFile, Path filePath) {
+        DockerFilePart copyDockerFilePart = new DockerCopyCmd();
+        ((DockerCopyCmd) copyDockerFilePart).setRequest(stageName, newFile.toString(), filePath.toString());
+        fileContent.add(copyDockerFilePart);
+        return this;
+    }
+
+    /**
+     * Optimizes created Dockerfile with default {@link DockerFileOptimizer}, parts are changed in place.
+     * Every stage is optimized separately.
+     *
+     * @return report of changes
+     */
+    public OptimizationReport optimize() {
+        OptimizationReport report = new DockerFileOptimizer().optimize(fileContent);
+        for (DockerFileBuilder stage : stages) {
+            report = report.plus(stage.optimize());
+        }
+        return report;
+    }
+
+    /**
+     * Renders created Dockerfile, one line per part.
+     *
+     * @return content of Dockerfile
+     */
+    public String render() {
+        StringBuilder dockerfile = new StringBuilder();
+        for (DockerFilePart part : getAllParts()) {
+            dockerfile.append(part.translate()).append(System.lineSeparator());
+        }
+        return dockerfile.toString();
+    }
+
     /**
      * Write created Dockerfile into temporary file.
      *
@@ -151,9 +261,7 @@ public class DockerFileBuilder {
      */
     public DockerFileBuilder write(Path filePath) {
         try (PrintWriter pw = new PrintWriter(new FileWriter(filePath.toString()))) {
-            for (DockerFilePart part : fileContent) {
-                pw.println(part.translate());
-            }
+            pw.print(render());
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker.builder;
+
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerAddCmd;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerEnvCmd;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerFilePart;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerFromCmd;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerRunCmd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Optional pass over parts of {@link DockerFileBuilder} which reduces number of image layers.
+ * Stable instructions (ENV and package installs) are moved ahead of ADD of artifacts, so changed artifact
+ * does not invalidate cached layers of packages. Adjacent shell RUN instructions are merged into one
+ * and package cache is removed in the last RUN using package manager within stage.
+ * The pass is conservative, instructions are never moved across anything else than ADD, package installs
+ * are never moved across ADD into /etc and RUN which changes shell state (cd, export...) is never merged
+ * with following RUN.
+ */
+public class DockerFileOptimizer {
+    private static final String ENV_PREFIX = "^(\\w+=\\S*\\s+)*";
+    private static final Pattern PACKAGE_MANAGER = Pattern.compile(ENV_PREFIX + "(apt-get|apt|apk|yum|dnf)\\s.*");
+    private static final Pattern SHELL_STATE = Pattern.compile("^(cd|export|set|unset|source|alias|\\.)(\\s.*)?$");
+    private static final Pattern SEPARATOR = Pattern.compile("&&|\\|\\||;");
+    private static final Map<Pattern, String> CLEANUPS = new LinkedHashMap<>();
+
+    static {
+        CLEANUPS.put(Pattern.compile(ENV_PREFIX + "apt(-get)?\\s.*"), "rm -rf /var/lib/apt/lists/*");
+        CLEANUPS.put(Pattern.compile(ENV_PREFIX + "apk\\s.*"), "rm -rf /var/cache/apk/*");
+        CLEANUPS.put(Pattern.compile(ENV_PREFIX + "yum\\s.*"), "yum clean all");
+        CLEANUPS.put(Pattern.compile(ENV_PREFIX + "dnf\\s.*"), "dnf clean all");
+    }
+
+    private boolean reorder = true;
+    private boolean cleanup = true;
+
+    /**
+     * Enables moving of stable instructions ahead of ADD, enabled by default.
+     *
+     * @param reorder true to move instructions
+     * @return this optimizer
+     */
+    public DockerFileOptimizer withReorder(boolean reorder) {
+        this.reorder = reorder;
+        return this;
+    }
+
+    /**
+     * Enables removal of package cache, enabled by default.
+     *
+     * @param cleanup true to append cleanup
+     * @return this optimizer
+     */
+    public DockerFileOptimizer withCleanup(boolean cleanup) {
+        this.cleanup = cleanup;
+        return this;
+    }
+
+    /**
+     * Optimizes parts in place.
+     *
+     * @param parts parts of Dockerfile, usually {@link DockerFileBuilder#getFileContent()}
+     * @return report of changes
+     */
+    public OptimizationReport optimize(List<DockerFilePart> parts) {
+        int instructions = parts.size();
+        int layers = countLayers(parts);
+        int moved = reorder ? moveStable(parts) : 0;
+        int merged = mergeRuns(parts);
+        int cleaned = cleanup ? appendCleanup(parts) : 0;
+        return new OptimizationReport(instructions, parts.size(), layers, countLayers(parts), merged, moved, cleaned);
+    }
+
+    private static int countLayers(List<DockerFilePart> parts) {
+        int layers = 0;
+        for (DockerFilePart part : parts) {
+            String instruction = part.translate().split("\\s", 2)[0];
+            if ("RUN".equals(instruction) || "ADD".equals(instruction) || "COPY".equals(instruction)) {
+                layers++;
+            }
+        }
+        return layers;
+    }
+
+    private static int moveStable(List<DockerFilePart> parts) {
+        int moved = 0;
+        for (int i = 1; i < parts.size(); i++) {
+            if (!isStable(parts.get(i))) {
+                continue;
+            }
+            int position = i;
+            while (position > 0 && parts.get(position - 1) instanceof DockerAddCmd
+                    && canPass(parts.get(position), (DockerAddCmd) parts.get(position - 1))) {
+                Collections.swap(parts, position - 1, position);
+                position--;
+            }
+            if (position != i) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static boolean isStable(DockerFilePart part) {
+        if (part instanceof DockerEnvCmd) {
+            return true;
+        }
+        if (!(part instanceof DockerRunCmd) || ((DockerRunCmd) part).isExecForm()) {
+            return false;
+        }
+        List<String> segments = segments((DockerRunCmd) part);
+        return !segments.isEmpty() && segments.stream().allMatch(s -> PACKAGE_MANAGER.matcher(s).matches()
+                || s.startsWith("rm -rf /var/lib/apt/lists") || s.startsWith("rm -rf /var/cache/apk"));
+    }
+
+    /**
+     * Stable instruction may be moved ahead of ADD unless ADD expands variable, RUN uses added file
+     * or ADD may configure package manager (destination under /etc or relative to working directory).
+     */
+    private static boolean canPass(DockerFilePart part, DockerAddCmd add) {
+        String added = add.translate().substring("ADD ".length());
+        if (part instanceof DockerEnvCmd) {
+            return !added.contains("$");
+        }
+        String destination = destination(add, added);
+        if (!destination.startsWith("/") || destination.equals("/etc") || destination.startsWith("/etc/")) {
+            return false;
+        }
+        String command = String.join(" ", ((DockerRunCmd) part).getCommands());
+        for (String path : added.trim().split("\\s+")) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            if (!path.startsWith("--") && (command.contains(path) || !name.isEmpty() && command.contains(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String destination(DockerAddCmd add, String added) {
+        if (add.getDestination() != null) {
+            return add.getDestination();
+        }
+        String[] paths = added.trim().split("\\s+");
+        return paths[paths.length - 1];
+    }
+
+    private static int mergeRuns(List<DockerFilePart> parts) {
+        int merged = 0;
+        int i = 1;
+        while (i < parts.size()) {
+            if (canMerge(parts.get(i - 1), parts.get(i))) {
+                List<String> commands = new ArrayList<>(((DockerRunCmd) parts.get(i - 1)).getCommands());
+                commands.addAll(((DockerRunCmd) parts.get(i)).getCommands());
+                parts.set(i - 1, run(commands));
+                parts.remove(i);
+                merged++;
+            } else {
+                i++;
+            }
+        }
+        return merged;
+    }
+
+    private static boolean canMerge(DockerFilePart first, DockerFilePart second) {
+        if (!isShellRun(first) || !isShellRun(second)) {
+            return false;
+        }
+        return segments((DockerRunCmd) first).stream().noneMatch(s -> SHELL_STATE.matcher(s).matches());
+    }
+
+    /**
+     * Checks whether RUN is executed by shell and its commands can be joined by &amp;&amp;. Commands with
+     * comments or line breaks are left alone.
+     */
+    private static boolean isShellRun(DockerFilePart part) {
+        if (!(part instanceof DockerRunCmd) || ((DockerRunCmd) part).isExecForm()) {
+            return false;
+        }
+        for (String command : ((DockerRunCmd) part).getCommands()) {
+            if (command == null || command.trim().isEmpty() || command.contains("#") || command.contains("\n")
+                    || command.trim().endsWith("&")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int appendCleanup(List<DockerFilePart> parts) {
+        int cleaned = 0;
+        Set<String> stageCleanups = new HashSet<>();
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            if (parts.get(i) instanceof DockerFromCmd) {
+                stageCleanups.clear();
+            } else if (isShellRun(parts.get(i))) {
+                List<String> missing = missingCleanups((DockerRunCmd) parts.get(i), stageCleanups);
+                if (!missing.isEmpty()) {
+                    List<String> commands = new ArrayList<>(((DockerRunCmd) parts.get(i)).getCommands());
+                    commands.addAll(missing);
+                    parts.set(i, run(commands));
+                    cleaned++;
+                }
+            }
+        }
+        return cleaned;
+    }
+
+    /**
+     * Finds cleanups of package managers used by RUN which are not used by later RUN in stage.
+     */
+    private static List<String> missingCleanups(DockerRunCmd run, Set<String> stageCleanups) {
+        List<String> segments = segments(run);
+        String command = String.join(" ", run.getCommands());
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<Pattern, String> cleanup : CLEANUPS.entrySet()) {
+            boolean used = segments.stream().anyMatch(s -> cleanup.getKey().matcher(s).matches());
+            if (used && stageCleanups.add(cleanup.getValue()) && !command.contains(cleanup.getValue())
+                    && !(cleanup.getValue().contains("apk") && command.contains("--no-cache"))) {
+                missing.add(cleanup.getValue());
+            }
+        }
+        return missing;
+    }
+
+    private static List<String> segments(DockerRunCmd run) {
+        List<String> segments = new ArrayList<>();
+        for (String command : run.getCommands()) {
+            for (String segment : SEPARATOR.split(command == null ? "" : command)) {
+                if (!segment.trim().isEmpty()) {
+                    segments.add(segment.trim());
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static DockerRunCmd run(List<String> commands) {
+        DockerRunCmd run = new DockerRunCmd();
+        run.setRequest(commands);
+        return run;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker.builder;
+
+/**
+ * Result of {@link DockerFileOptimizer} pass. Layers are counted as instructions which change file system
+ * of image (RUN, ADD and COPY), other instructions only change metadata of image.
+ */
+public class OptimizationReport {
+    private final int instructionsBefore;
+    private final int instructionsAfter;
+    private final int layersBefore;
+    private final int layersAfter;
+    private final int mergedRuns;
+    private final int movedInstructions;
+    private final int cleanedRuns;
+
+    /**
+     * Instantiates a new Optimization report.
+     *
+     * @param instructionsBefore number of instructions before optimization
+     * @param instructionsAfter  number of instructions after optimization
+     * @param layersBefore       number of layers before optimization
+     * @param layersAfter        number of layers after optimization
+     * @param mergedRuns         number of RUN instructions merged into preceding RUN
+     * @param movedInstructions  number of stable instructions moved ahead of ADD
+     * @param cleanedRuns        number of RUN instructions with appended package cache cleanup
+     */
+    public OptimizationReport(int instructionsBefore, int instructionsAfter, int layersBefore, int layersAfter,
+                              int mergedRuns, int movedInstructions, int cleanedRuns) {
+        this.instructionsBefore = instructionsBefore;
+        this.instructionsAfter = instructionsAfter;
+        this.layersBefore = layersBefore;
+        this.layersAfter = layersAfter;
+        this.mergedRuns = mergedRuns;
+        this.movedInstructions = movedInstructions;
+        this.cleanedRuns = cleanedRuns;
+    }
+
+    public int getInstructionsBefore() {
+        return instructionsBefore;
+    }
+
+    public int getInstructionsAfter() {
+        return instructionsAfter;
+    }
+
+    public int getLayersBefore() {
+        return layersBefore;
+    }
+
+    public int getLayersAfter() {
+        return layersAfter;
+    }
+
+    /**
+     * Gets number of file system layers removed by optimization.
+     *
+     * @return the layers saved
+     */
+    public int getLayersSaved() {
+        return layersBefore - layersAfter;
+    }
+
+    public int getMergedRuns() {
+        return mergedRuns;
+    }
+
+    public int getMovedInstructions() {
+        return movedInstructions;
+    }
+
+    public int getCleanedRuns() {
+        return cleanedRuns;
+    }
+
+    /**
+     * Sums reports, used for optimization of multiple stages.
+     *
+     * @param other the other report
+     * @return the sum
+     */
+    public OptimizationReport plus(OptimizationReport other) {
+        return new OptimizationReport(instructionsBefore + other.instructionsBefore,
+                instructionsAfter + other.instructionsAfter, layersBefore + other.layersBefore,
+                layersAfter + other.layersAfter, mergedRuns + other.mergedRuns,
+                movedInstructions + other.movedInstructions, cleanedRuns + other.cleanedRuns);
+    }
+
+    @Override
+    public String toString() {
+        return "layers " + layersBefore + " -> " + layersAfter + " (saved " + getLayersSaved() + "), instructions "
+                + instructionsBefore + " -> " + instructionsAfter + ", merged runs " + mergedRuns
+                + ", moved instructions " + movedInstructions + ", cleaned runs " + cleanedRuns;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker.builder;
+
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerAddCmd;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerCopyCmd;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.parts.DockerFilePart;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Build context streamed to docker as tar without temporary files. Context holds rendered Dockerfile and
+ * sources of ADD and COPY instructions, which are renamed to paths inside context, so Dockerfile does not depend
+ * on location of sources on host. Tar is written by background thread while docker reads it.
+ */
+public class TarBuildContext {
+    /**
+     * Name of Dockerfile in context.
+     */
+    public static final String DOCKERFILE = "Dockerfile";
+    private static final Logger LOGGER = LoggerFactory.getLogger(TarBuildContext.class);
+    private static final String SOURCES_DIR = "context/";
+    private static final int PIPE_SIZE = 64 * 1024;
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("build-context"));
+    private final byte[] dockerfile;
+    private final Map<String, Path> sources;
+
+    /**
+     * Instantiates a new context with Dockerfile only.
+     *
+     * @param dockerfile content of Dockerfile
+     */
+    public TarBuildContext(byte[] dockerfile) {
+        this.dockerfile = dockerfile.clone();
+        this.sources = Collections.emptyMap();
+    }
+
+    /**
+     * Instantiates a new context from builder. Local sources of ADD and COPY instructions are added to context.
+     *
+     * @param builder the builder
+     */
+    public TarBuildContext(DockerFileBuilder builder) {
+        Map<String, Path> added = new LinkedHashMap<>();
+        StringBuilder rendered = new StringBuilder();
+        for (DockerFilePart part : builder.getAllParts()) {
+            if (part instanceof DockerAddCmd && isLocal(((DockerAddCmd) part).getSource())) {
+                DockerAddCmd add = (DockerAddCmd) part;
+                rendered.append("ADD ").append(addSource(add.getSource(), added)).append(' ')
+                        .append(add.getDestination());
+            } else if (part instanceof DockerCopyCmd && ((DockerCopyCmd) part).getStage() == null
+                    && isLocal(((DockerCopyCmd) part).getSource())) {
+                DockerCopyCmd copy = (DockerCopyCmd) part;
+                rendered.append("COPY ").append(addSource(copy.getSource(), added)).append(' ')
+                        .append(copy.getDestination());
+            } else {
+                rendered.append(part.translate());
+            }
+            rendered.append('\n');
+        }
+        this.dockerfile = rendered.toString().getBytes(StandardCharsets.UTF_8);
+        this.sources = Collections.unmodifiableMap(added);
+    }
+
+    private TarBuildContext(byte[] dockerfile, Map<String, Path> sources) {
+        this.dockerfile = dockerfile.clone();
+        this.sources = sources;
+    }
+
+    /**
+     * Creates context with the same sources and other Dockerfile.
+     *
+     * @param newDockerfile content of Dockerfile
+     * @return the context
+     */
+    public TarBuildContext withDockerfile(byte[] newDockerfile) {
+        return new TarBuildContext(newDockerfile, sources);
+    }
+
+    /**
+     * Gets Dockerfile of context.
+     *
+     * @return content of Dockerfile
+     */
+    public byte[] getDockerfile() {
+        return dockerfile.clone();
+    }
+
+    /**
+     * Gets sources of context.
+     *
+     * @return source files and directories by their paths in context
+     */
+    public Map<String, Path> getSources() {
+        return sources;
+    }
+
+    /**
+     * Opens stream of tar, which is written in background while it is read. Failure of writing is reported
+     * by the stream once all written data were read.
+     *
+     * @return the tar stream
+     * @throws IOException when pipe could not be created
+     */
+    public InputStream open() throws IOException {
+        PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+        PipedOutputStream out = new PipedOutputStream(in);
+        TarStream stream = new TarStream(in);
+        WRITERS.execute(() -> {
+            try {
+                writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                stream.failure = e;
+            } finally {
+                closeQuietly(out);
+            }
+        });
+        return stream;
+    }
+
+    /**
+     * Writes tar of context.
+     *
+     * @param out target stream, it is not closed
+     * @throws IOException when source could not be read or stream written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        TarArchiveEntry entry = new TarArchiveEntry(DOCKERFILE);
+        entry.setSize(dockerfile.length);
+        entry.setModTime(0);
+        tar.putArchiveEntry(entry);
+        tar.write(dockerfile);
+        tar.closeArchiveEntry();
+        for (Map.Entry<String, Path> file : listEntries().entrySet()) {
+            tar.putArchiveEntry(new TarArchiveEntry(file.getValue().toFile(), file.getKey()));
+            Files.copy(file.getValue(), tar);
+            tar.closeArchiveEntry();
+        }
+        tar.finish();
+    }
+
+    /**
+     * Lists regular files of sources, directories are walked in order of paths.
+     *
+     * @return files by their paths in context, without Dockerfile
+     * @throws IOException when directory could not be listed
+     */
+    public Map<String, Path> listEntries() throws IOException {
+        Map<String, Path> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> source : sources.entrySet()) {
+            try (Stream<Path> files = Files.walk(source.getValue())) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                    String relative = source.getValue().relativize(file).toString().replace('\\', '/');
+                    entries.put(relative.isEmpty() ? source.getKey() : source.getKey() + "/" + relative, file);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOGGER.debug("Build context pipe could not be closed", e);
+        }
+    }
+
+    private static boolean isLocal(String source) {
+        return source != null && !source.contains("://");
+    }
+
+    /**
+     * Adds local source to context.
+     *
+     * @return path of source in context
+     */
+    private static String addSource(String source, Map<String, Path> added) {
+        Path path = Paths.get(source);
+        String name = SOURCES_DIR + added.size() + "/" + path.getFileName();
+        added.put(name, path);
+        return name;
+    }
+
+    /**
+     * Reading end of pipe which reports failure of writer.
+     */
+    private static final class TarStream extends FilterInputStream {
+        private volatile Exception failure;
+
+        TarStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return check(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return check(super.read(b, off, len));
+        }
+
+        private int check(int result) throws IOException {
+            if (result < 0 && failure != null) {
+                throw new IOException("Build context could not be written", failure);
+            }
+            return result;
+        }
+    }
+}
@@ -24,10 +24,14 @@ public class DockerAddCmd implements DockerFilePart {
      * String line representing part of command line in Dockerfile.
      */
     private String plainLine;
+    private String source;
+    private String destination;
 
     @Override
     public void setRequest(String plainLine) {
         this.plainLine = plainLine;
+        this.source = null;
+        this.destination = null;
     }
 
     /**
@@ -38,6 +42,26 @@ public class DockerAddCmd implements DockerFilePart {
      */
     public void setRequest(String newFile, String filePath) {
         setRequest(newFile + " " + filePath);
+        this.source = newFile;
+        this.destination = filePath;
+    }
+
+    /**
+     * Gets source of added file.
+     *
+     * @return the source, null when request was set as plain line
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets destination of added file in image.
+     *
+     * @return the destination, null when request was set as plain line
+     */
+    public String getDestination() {
+        return destination;
     }
 
     @Override
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image.docker.builder.parts;
+
+/**
+ * The type Copy docker file part.
+ */
+public class DockerCopyCmd implements DockerFilePart {
+    /**
+     * String line representing part of command line in Dockerfile.
+     */
+    private String plainLine;
+    private String stage;
+    private String source;
+    private String destination;
+
+    @Override
+    public void setRequest(String plainLine) {
+        this.plainLine = plainLine;
+        this.stage = null;
+        this.source = null;
+        this.destination = null;
+    }
+
+    /**
+     * Prepare COPY request of file from build context.
+     *
+     * @param newFile  the new file
+     * @param filePath the file path
+     */
+    public void setRequest(String newFile, String filePath) {
+        setRequest(newFile + " " + filePath);
+        this.source = newFile;
+        this.destination = filePath;
+    }
+
+    /**
+     * Prepare COPY request of file from previous build stage.
+     *
+     * @param fromStage name of stage or image
+     * @param newFile   path of file in stage
+     * @param filePath  the file path
+     */
+    public void setRequest(String fromStage, String newFile, String filePath) {
+        setRequest("--from=" + fromStage + " " + newFile + " " + filePath);
+        this.stage = fromStage;
+        this.source = newFile;
+        this.destination = filePath;
+    }
+
+    /**
+     * Gets stage from which file is copied.
+     *
+     * @return the stage, null when file is copied from build context
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * Gets source of copied file.
+     *
+     * @return the source, null when request was set as plain line
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets destination of copied file in image.
+     *
+     * @return the destination, null when request was set as plain line
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public String translate() {
+        return "COPY " + plainLine;
+    }
+}
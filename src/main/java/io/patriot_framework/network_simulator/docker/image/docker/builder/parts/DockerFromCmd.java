@@ -21,10 +21,32 @@ package io.patriot_framework.network_simulator.docker.image.docker.builder.parts
  */
 public class DockerFromCmd implements DockerFilePart {
     private String plainLine;
+    private String stageName;
 
     @Override
     public void setRequest(String plainLine) {
         this.plainLine = plainLine;
+        this.stageName = null;
+    }
+
+    /**
+     * Prepare FROM request of named build stage.
+     *
+     * @param baseImage the base image
+     * @param stage     name of stage
+     */
+    public void setRequest(String baseImage, String stage) {
+        setRequest(baseImage + " AS " + stage);
+        this.stageName = stage;
+    }
+
+    /**
+     * Gets name of stage started by this FROM.
+     *
+     * @return the stage name, null for unnamed stage
+     */
+    public String getStageName() {
+        return stageName;
     }
 
     @Override
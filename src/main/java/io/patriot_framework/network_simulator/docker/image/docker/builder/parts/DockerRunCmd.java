@@ -17,6 +17,7 @@
 package io.patriot_framework.network_simulator.docker.image.docker.builder.parts;
 
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -46,6 +47,27 @@ public class DockerRunCmd implements DockerFilePart {
         this.commands = commands;
     }
 
+    /**
+     * Gets commands executed by this RUN, request set as plain line is single command.
+     *
+     * @return the commands
+     */
+    public List<String> getCommands() {
+        if (commands != null && !commands.isEmpty()) {
+            return Collections.unmodifiableList(commands);
+        }
+        return Collections.singletonList(plainLine);
+    }
+
+    /**
+     * Checks whether request is in exec form, such RUN is not executed by shell.
+     *
+     * @return true if request is JSON array
+     */
+    public boolean isExecForm() {
+        return (commands == null || commands.isEmpty()) && plainLine != null && plainLine.trim().startsWith("[");
+    }
+
 
     @Override
     public String translate() {
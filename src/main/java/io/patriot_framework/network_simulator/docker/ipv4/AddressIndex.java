@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reverse index from IP address to device and network. Exact addresses are kept in open addressing
+ * hash table of immutable entries, subnets in immutable path compressed binary trie, which is replaced
+ * as a whole on change. Lookups take no lock and allocate nothing, updates are serialized.
+ */
+public class AddressIndex {
+    private static final AddressOwner REMOVED = new AddressOwner(0, null, null);
+    private static final int INITIAL_CAPACITY = 64;
+    private volatile AtomicReferenceArray<AddressOwner> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile Node subnets;
+    private int used;
+    private int size;
+
+    /**
+     * Adds or replaces owner of address.
+     *
+     * @param address the address
+     * @param device  name of device
+     * @param network name of network
+     */
+    public synchronized void putAddress(String address, String device, String network) {
+        AddressOwner owner = new AddressOwner(Ipv4Address.parseInt(address), device, network);
+        if ((used + 1) * 2 > table.length()) {
+            table = rehash();
+        }
+        int slot = find(table, owner.getAddress());
+        if (slot >= 0) {
+            table.set(slot, owner);
+            return;
+        }
+        table.set(freeSlot(table, owner.getAddress()), owner);
+        used++;
+        size++;
+    }
+
+    /**
+     * Removes owner of address.
+     *
+     * @param address the address
+     * @return true if address was indexed
+     */
+    public synchronized boolean removeAddress(String address) {
+        int slot = find(table, Ipv4Address.parseInt(address));
+        if (slot < 0) {
+            return false;
+        }
+        table.set(slot, REMOVED);
+        size--;
+        return true;
+    }
+
+    /**
+     * Finds owner of address.
+     *
+     * @param address the address as int
+     * @return the owner or null when address is not indexed
+     */
+    public AddressOwner findOwner(int address) {
+        AtomicReferenceArray<AddressOwner> current = table;
+        int slot = find(current, address);
+        return slot < 0 ? null : current.get(slot);
+    }
+
+    /**
+     * Finds owner of address.
+     *
+     * @param address the address in dotted decimal notation
+     * @return the owner or null when address is not indexed
+     */
+    public AddressOwner findOwner(CharSequence address) {
+        return findOwner(Ipv4Address.parseInt(address));
+    }
+
+    /**
+     * Adds or replaces subnet of network.
+     *
+     * @param subnet  subnet of network
+     * @param network name of network
+     */
+    public synchronized void putNetwork(Ipv4Cidr subnet, String network) {
+        subnets = put(subnets, subnet.getNetworkInt(), subnet.getPrefix(), network);
+    }
+
+    /**
+     * Removes subnet of network.
+     *
+     * @param subnet subnet of network
+     */
+    public synchronized void removeNetwork(Ipv4Cidr subnet) {
+        subnets = remove(subnets, subnet.getNetworkInt(), subnet.getPrefix());
+    }
+
+    /**
+     * Finds network with the longest prefix containing address.
+     *
+     * @param address the address as int
+     * @return name of network or null when no network contains address
+     */
+    public String findNetwork(int address) {
+        Node node = subnets;
+        String best = null;
+        while (node != null && (address & Ipv4Cidr.mask(node.length)) == node.prefix) {
+            if (node.network != null) {
+                best = node.network;
+            }
+            if (node.length == 32) {
+                break;
+            }
+            node = bit(address, node.length) == 0 ? node.left : node.right;
+        }
+        return best;
+    }
+
+    /**
+     * Finds network with the longest prefix containing address.
+     *
+     * @param address the address in dotted decimal notation
+     * @return name of network or null when no network contains address
+     */
+    public String findNetwork(CharSequence address) {
+        return findNetwork(Ipv4Address.parseInt(address));
+    }
+
+    /**
+     * Gets number of indexed addresses.
+     *
+     * @return the size
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private static int find(AtomicReferenceArray<AddressOwner> table, int address) {
+        int mask = table.length() - 1;
+        for (int slot = hash(address) & mask; ; slot = (slot + 1) & mask) {
+            AddressOwner owner = table.get(slot);
+            if (owner == null) {
+                return -1;
+            }
+            if (owner != REMOVED && owner.getAddress() == address) {
+                return slot;
+            }
+        }
+    }
+
+    private static int freeSlot(AtomicReferenceArray<AddressOwner> table, int address) {
+        int mask = table.length() - 1;
+        int slot = hash(address) & mask;
+        while (table.get(slot) != null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Copies live entries to new table with at most quarter of slots used, so removed entries are dropped.
+     */
+    private AtomicReferenceArray<AddressOwner> rehash() {
+        int capacity = INITIAL_CAPACITY;
+        while ((size + 1) * 4 > capacity) {
+            capacity *= 2;
+        }
+        AtomicReferenceArray<AddressOwner> rehashed = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < table.length(); i++) {
+            AddressOwner owner = table.get(i);
+            if (owner != null && owner != REMOVED) {
+                rehashed.set(freeSlot(rehashed, owner.getAddress()), owner);
+            }
+        }
+        used = size;
+        return rehashed;
+    }
+
+    private static int hash(int address) {
+        int h = address * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int address, int position) {
+        return (address >>> (31 - position)) & 1;
+    }
+
+    private static Node put(Node node, int prefix, int length, String network) {
+        if (node == null) {
+            return new Node(prefix, length, network, null, null);
+        }
+        int common = Math.min(Math.min(length, node.length), Integer.numberOfLeadingZeros(prefix ^ node.prefix));
+        if (common == node.length && common == length) {
+            return new Node(prefix, length, network, node.left, node.right);
+        }
+        if (common == node.length) {
+            return bit(prefix, common) == 0
+                    ? node.withChildren(put(node.left, prefix, length, network), node.right)
+                    : node.withChildren(node.left, put(node.right, prefix, length, network));
+        }
+        if (common == length) {
+            Node inserted = new Node(prefix, length, network, null, null);
+            return bit(node.prefix, common) == 0 ? inserted.withChildren(node, null)
+                    : inserted.withChildren(null, node);
+        }
+        Node branch = new Node(prefix & Ipv4Cidr.mask(common), common, null, null, null);
+        Node leaf = new Node(prefix, length, network, null, null);
+        return bit(prefix, common) == 0 ? branch.withChildren(leaf, node) : branch.withChildren(node, leaf);
+    }
+
+    private static Node remove(Node node, int prefix, int length) {
+        if (node == null || node.length > length || (prefix & Ipv4Cidr.mask(node.length)) != node.prefix) {
+            return node;
+        }
+        if (node.length < length) {
+            return bit(prefix, node.length) == 0
+                    ? compact(node.withChildren(remove(node.left, prefix, length), node.right))
+                    : compact(node.withChildren(node.left, remove(node.right, prefix, length)));
+        }
+        return compact(new Node(node.prefix, node.length, null, node.left, node.right));
+    }
+
+    /**
+     * Removes node without network which does not branch.
+     */
+    private static Node compact(Node node) {
+        if (node.network != null || (node.left != null && node.right != null)) {
+            return node;
+        }
+        return node.left != null ? node.left : node.right;
+    }
+
+    /**
+     * Immutable node of subnet trie. Node without network only branches to its two children.
+     */
+    private static final class Node {
+        private final int prefix;
+        private final int length;
+        private final String network;
+        private final Node left;
+        private final Node right;
+
+        Node(int prefix, int length, String network, Node left, Node right) {
+            this.prefix = prefix;
+            this.length = length;
+            this.network = network;
+            this.left = left;
+            this.right = right;
+        }
+
+        Node withChildren(Node newLeft, Node newRight) {
+            return new Node(prefix, length, network, newLeft, newRight);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+/**
+ * Device and network which IP address belongs to.
+ */
+public final class AddressOwner {
+    private final int address;
+    private final String device;
+    private final String network;
+
+    /**
+     * Instantiates a new Address owner.
+     *
+     * @param address the address as int
+     * @param device  name of device
+     * @param network name of network
+     */
+    public AddressOwner(int address, String device, String network) {
+        this.address = address;
+        this.device = device;
+        this.network = network;
+    }
+
+    public int getAddress() {
+        return address;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getNetwork() {
+        return network;
+    }
+
+    @Override
+    public String toString() {
+        return Ipv4Address.format(address) + " (" + device + " in " + network + ")";
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import java.util.BitSet;
+
+/**
+ * Allocator of host addresses of subnet backed by bitmap. Network address, broadcast address and
+ * the first host address, which docker assigns to gateway, are reserved.
+ */
+public class HostAllocator {
+    private final Ipv4Cidr subnet;
+    private final BitSet used = new BitSet();
+    private final int size;
+    private int searchFrom;
+
+    /**
+     * Instantiates a new Host allocator.
+     *
+     * @param subnet subnet of addresses, /30 or larger
+     */
+    public HostAllocator(Ipv4Cidr subnet) {
+        if (subnet.getPrefix() > 30) {
+            throw new IllegalArgumentException("Subnet " + subnet + " has no room for hosts");
+        }
+        this.subnet = subnet;
+        this.size = (int) subnet.size();
+        used.set(0, 2);
+        used.set(size - 1);
+    }
+
+    /**
+     * Gets subnet.
+     *
+     * @return the subnet
+     */
+    public Ipv4Cidr getSubnet() {
+        return subnet;
+    }
+
+    /**
+     * Allocates free host address with lowest address.
+     *
+     * @return the address
+     * @throws IllegalStateException when subnet is full
+     */
+    public synchronized Ipv4Address allocate() {
+        int index = used.nextClearBit(searchFrom);
+        if (index >= size) {
+            throw new IllegalStateException("No free address left in " + subnet);
+        }
+        used.set(index);
+        searchFrom = index + 1;
+        return Ipv4Address.of(subnet.getNetworkInt() + index);
+    }
+
+    /**
+     * Marks address as used.
+     *
+     * @param address address assigned outside of allocator
+     * @return true if address belongs to subnet and was free
+     */
+    public synchronized boolean reserve(Ipv4Address address) {
+        if (!subnet.contains(address)) {
+            return false;
+        }
+        int index = address.toInt() - subnet.getNetworkInt();
+        boolean free = !used.get(index);
+        used.set(index);
+        return free;
+    }
+
+    /**
+     * Returns host address.
+     *
+     * @param address allocated or reserved address
+     * @return true if address was used
+     */
+    public synchronized boolean release(Ipv4Address address) {
+        int index = address.toInt() - subnet.getNetworkInt();
+        if (!subnet.contains(address) || index <= 1 || index == size - 1 || !used.get(index)) {
+            return false;
+        }
+        used.clear(index);
+        searchFrom = Math.min(searchFrom, index);
+        return true;
+    }
+
+    /**
+     * Gets number of free host addresses.
+     *
+     * @return the number of free addresses
+     */
+    public synchronized int getFree() {
+        return size - used.cardinality();
+    }
+}
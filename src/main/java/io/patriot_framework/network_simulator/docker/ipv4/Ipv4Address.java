@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+/**
+ * Immutable IPv4 address backed by int. Static methods work directly with int representation,
+ * so hot paths can parse, compare and format addresses without allocating objects.
+ */
+public final class Ipv4Address implements Comparable<Ipv4Address> {
+    private final int value;
+
+    private Ipv4Address(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Creates address from its int representation.
+     *
+     * @param value address, first octet in highest byte
+     * @return the address
+     */
+    public static Ipv4Address of(int value) {
+        return new Ipv4Address(value);
+    }
+
+    /**
+     * Parses address in dotted decimal notation.
+     *
+     * @param text address, e.g. 192.168.1.5
+     * @return the address
+     * @throws IllegalArgumentException when text is not valid address
+     */
+    public static Ipv4Address parse(CharSequence text) {
+        return new Ipv4Address(parseInt(text));
+    }
+
+    /**
+     * Parses address in dotted decimal notation to int without allocation.
+     *
+     * @param text address, e.g. 192.168.1.5
+     * @return the address as int
+     * @throws IllegalArgumentException when text is not valid address
+     */
+    public static int parseInt(CharSequence text) {
+        return parseInt(text, 0, text.length());
+    }
+
+    /**
+     * Parses part of text in dotted decimal notation to int without allocation.
+     *
+     * @param text  text containing address
+     * @param start index of first character of address
+     * @param end   index after last character of address
+     * @return the address as int
+     * @throws IllegalArgumentException when part of text is not valid address
+     */
+    public static int parseInt(CharSequence text, int start, int end) {
+        int result = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    throw invalid(text, start, end);
+                }
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                result = (result << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                throw invalid(text, start, end);
+            }
+        }
+        if (octet < 0 || octets != 3) {
+            throw invalid(text, start, end);
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * Formats int address in dotted decimal notation.
+     *
+     * @param value the address
+     * @return the text
+     */
+    public static String format(int value) {
+        return appendTo(new StringBuilder(15), value).toString();
+    }
+
+    /**
+     * Appends int address in dotted decimal notation to builder.
+     *
+     * @param builder the builder
+     * @param value   the address
+     * @return the builder
+     */
+    public static StringBuilder appendTo(StringBuilder builder, int value) {
+        return builder.append(value >>> 24).append('.').append((value >>> 16) & 0xFF).append('.')
+                .append((value >>> 8) & 0xFF).append('.').append(value & 0xFF);
+    }
+
+    /**
+     * Gets int representation.
+     *
+     * @return address, first octet in highest byte
+     */
+    public int toInt() {
+        return value;
+    }
+
+    /**
+     * Gets address following this address, 255.255.255.255 is followed by 0.0.0.0.
+     *
+     * @return the next address
+     */
+    public Ipv4Address next() {
+        return new Ipv4Address(value + 1);
+    }
+
+    @Override
+    public int compareTo(Ipv4Address o) {
+        return Integer.compareUnsigned(value, o.value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Ipv4Address && ((Ipv4Address) o).value == value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return format(value);
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text, int start, int end) {
+        return new IllegalArgumentException("Invalid IPv4 address: " + text.subSequence(start, end));
+    }
+}
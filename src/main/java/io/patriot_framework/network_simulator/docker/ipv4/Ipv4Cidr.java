@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable IPv4 network in CIDR notation backed by int network address and prefix length.
+ * Host bits of address are always cleared, so 192.168.1.5/24 and 192.168.1.0/24 are the same network.
+ */
+public final class Ipv4Cidr {
+    private final int network;
+    private final int prefix;
+
+    private Ipv4Cidr(int network, int prefix) {
+        this.network = network;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Creates network containing address.
+     *
+     * @param address any address of network
+     * @param prefix  prefix length, 0 to 32
+     * @return the network
+     */
+    public static Ipv4Cidr of(int address, int prefix) {
+        return new Ipv4Cidr(address & mask(prefix), prefix);
+    }
+
+    /**
+     * Creates network containing address.
+     *
+     * @param address any address of network
+     * @param prefix  prefix length, 0 to 32
+     * @return the network
+     */
+    public static Ipv4Cidr of(Ipv4Address address, int prefix) {
+        return of(address.toInt(), prefix);
+    }
+
+    /**
+     * Creates network containing address in dotted decimal notation.
+     *
+     * @param address any address of network
+     * @param prefix  prefix length, 0 to 32
+     * @return the network
+     */
+    public static Ipv4Cidr of(String address, int prefix) {
+        return of(Ipv4Address.parseInt(address), prefix);
+    }
+
+    /**
+     * Parses network in CIDR notation.
+     *
+     * @param text network, e.g. 10.0.0.0/8
+     * @return the network
+     * @throws IllegalArgumentException when text is not valid network
+     */
+    public static Ipv4Cidr parse(CharSequence text) {
+        int slash = -1;
+        for (int i = 0; i < text.length() && slash < 0; i++) {
+            if (text.charAt(i) == '/') {
+                slash = i;
+            }
+        }
+        if (slash < 0 || slash == text.length() - 1 || text.length() - slash > 3) {
+            throw new IllegalArgumentException("Invalid IPv4 network: " + text);
+        }
+        int prefix = 0;
+        for (int i = slash + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Invalid IPv4 network: " + text);
+            }
+            prefix = prefix * 10 + (c - '0');
+        }
+        return of(Ipv4Address.parseInt(text, 0, slash), prefix);
+    }
+
+    /**
+     * Converts prefix length to network mask, e.g. 16 to 255.255.0.0.
+     *
+     * @param prefix prefix length, 0 to 32
+     * @return the mask as int
+     * @throws IllegalArgumentException when prefix is out of range
+     */
+    public static int mask(int prefix) {
+        if (prefix < 0 || prefix > 32) {
+            throw new IllegalArgumentException("Invalid IPv4 prefix length: " + prefix);
+        }
+        return prefix == 0 ? 0 : -1 << (32 - prefix);
+    }
+
+    /**
+     * Gets network address.
+     *
+     * @return the network address
+     */
+    public Ipv4Address getNetwork() {
+        return Ipv4Address.of(network);
+    }
+
+    /**
+     * Gets network address as int.
+     *
+     * @return the network address
+     */
+    public int getNetworkInt() {
+        return network;
+    }
+
+    /**
+     * Gets prefix length.
+     *
+     * @return the prefix
+     */
+    public int getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets network mask as int.
+     *
+     * @return the mask
+     */
+    public int getMaskInt() {
+        return mask(prefix);
+    }
+
+    /**
+     * Gets broadcast address, the last address of network, as int.
+     *
+     * @return the broadcast address
+     */
+    public int getBroadcastInt() {
+        return network | ~mask(prefix);
+    }
+
+    /**
+     * Gets number of addresses in network including network and broadcast address.
+     *
+     * @return the size
+     */
+    public long size() {
+        return 1L << (32 - prefix);
+    }
+
+    /**
+     * Gets address of network by its index.
+     *
+     * @param index index of address, 0 is network address
+     * @return the address as int
+     * @throws IndexOutOfBoundsException when index is not lower than size
+     */
+    public int getAddress(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of network " + this);
+        }
+        return network + (int) index;
+    }
+
+    /**
+     * Checks whether network contains address.
+     *
+     * @param address the address as int
+     * @return true if address belongs to network
+     */
+    public boolean contains(int address) {
+        return (address & mask(prefix)) == network;
+    }
+
+    /**
+     * Checks whether network contains address.
+     *
+     * @param address the address
+     * @return true if address belongs to network
+     */
+    public boolean contains(Ipv4Address address) {
+        return contains(address.toInt());
+    }
+
+    /**
+     * Checks whether network contains whole other network.
+     *
+     * @param other the other network
+     * @return true if other network is subnet of this network
+     */
+    public boolean contains(Ipv4Cidr other) {
+        return other.prefix >= prefix && contains(other.network);
+    }
+
+    /**
+     * Checks whether networks share any address.
+     *
+     * @param other the other network
+     * @return true if networks overlap
+     */
+    public boolean overlaps(Ipv4Cidr other) {
+        return contains(other) || other.contains(this);
+    }
+
+    /**
+     * Calls action for every address of network in ascending order, including network and broadcast address.
+     *
+     * @param action action receiving address as int
+     */
+    public void forEachAddress(IntConsumer action) {
+        int last = getBroadcastInt();
+        int address = network;
+        action.accept(address);
+        while (address != last) {
+            address++;
+            action.accept(address);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Ipv4Cidr)) {
+            return false;
+        }
+        Ipv4Cidr other = (Ipv4Cidr) o;
+        return network == other.network && prefix == other.prefix;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * network + prefix;
+    }
+
+    @Override
+    public String toString() {
+        return Ipv4Address.appendTo(new StringBuilder(18), network).append('/').append(prefix).toString();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import java.util.BitSet;
+
+/**
+ * Buddy allocator of non-overlapping subnets of supernet. Every prefix length has bitmap of free blocks,
+ * block is split into two halves when no smaller block is free and halves are merged back when both
+ * are released, so allocation and release touch at most one block per prefix length.
+ * Subnets which already exist outside of simulator are reserved, so they are never handed out.
+ */
+public class SubnetAllocator {
+    private final Ipv4Cidr supernet;
+    private final BitSet[] free;
+    private final BitSet[] allocated;
+    private final int[] searchFrom;
+
+    /**
+     * Instantiates a new Subnet allocator with whole supernet free.
+     *
+     * @param supernet network from which subnets are allocated, /8 or smaller
+     */
+    public SubnetAllocator(Ipv4Cidr supernet) {
+        if (supernet.getPrefix() < 8) {
+            throw new IllegalArgumentException("Supernet " + supernet + " is larger than /8");
+        }
+        this.supernet = supernet;
+        int levels = 33 - supernet.getPrefix();
+        this.free = new BitSet[levels];
+        this.allocated = new BitSet[levels];
+        this.searchFrom = new int[levels];
+        for (int i = 0; i < levels; i++) {
+            free[i] = new BitSet();
+            allocated[i] = new BitSet();
+        }
+        free[0].set(0);
+    }
+
+    /**
+     * Gets supernet.
+     *
+     * @return the supernet
+     */
+    public Ipv4Cidr getSupernet() {
+        return supernet;
+    }
+
+    /**
+     * Allocates free subnet with lowest address.
+     *
+     * @param prefix prefix length of subnet
+     * @return the subnet
+     * @throws IllegalArgumentException when subnet would be larger than supernet
+     * @throws IllegalStateException    when no subnet of requested size is free
+     */
+    public synchronized Ipv4Cidr allocate(int prefix) {
+        int level = level(prefix);
+        int index = take(level);
+        if (index < 0) {
+            throw new IllegalStateException("No free /" + prefix + " subnet left in " + supernet);
+        }
+        allocated[level].set(index);
+        return subnet(level, index);
+    }
+
+    /**
+     * Marks subnet as used, so no overlapping subnet is allocated. Subnets outside of supernet are ignored.
+     *
+     * @param subnet subnet used by other network
+     * @return true if subnet overlaps supernet
+     */
+    public synchronized boolean reserve(Ipv4Cidr subnet) {
+        if (!subnet.overlaps(supernet)) {
+            return false;
+        }
+        if (subnet.contains(supernet)) {
+            reserve(0, 0);
+        } else {
+            reserve(subnet.getPrefix() - supernet.getPrefix(), index(subnet));
+        }
+        return true;
+    }
+
+    /**
+     * Returns allocated subnet, it is merged with its free buddy.
+     *
+     * @param subnet subnet returned by {@link #allocate(int)}
+     * @return true if subnet was allocated by this allocator
+     */
+    public synchronized boolean release(Ipv4Cidr subnet) {
+        if (!supernet.contains(subnet)) {
+            return false;
+        }
+        int level = subnet.getPrefix() - supernet.getPrefix();
+        int index = index(subnet);
+        if (!allocated[level].get(index)) {
+            return false;
+        }
+        allocated[level].clear(index);
+        giveBack(level, index);
+        return true;
+    }
+
+    /**
+     * Takes free block of level, larger free block is split when level has none.
+     */
+    private int take(int level) {
+        int index = free[level].nextSetBit(searchFrom[level]);
+        if (index >= 0) {
+            free[level].clear(index);
+            searchFrom[level] = index;
+            return index;
+        }
+        if (level == 0) {
+            return -1;
+        }
+        int parent = take(level - 1);
+        if (parent < 0) {
+            return -1;
+        }
+        markFree(level, 2 * parent + 1);
+        return 2 * parent;
+    }
+
+    private void giveBack(int level, int index) {
+        int buddy = index ^ 1;
+        if (level > 0 && free[level].get(buddy)) {
+            free[level].clear(buddy);
+            giveBack(level - 1, index >> 1);
+        } else {
+            markFree(level, index);
+        }
+    }
+
+    /**
+     * Removes block from free blocks. When it is part of larger free block, that block is split along the path
+     * to reserved block, otherwise its free descendants are removed.
+     */
+    private void reserve(int level, int index) {
+        for (int ancestor = 0; ancestor <= level; ancestor++) {
+            int ancestorIndex = index >> (level - ancestor);
+            if (free[ancestor].get(ancestorIndex)) {
+                free[ancestor].clear(ancestorIndex);
+                for (int l = ancestor + 1; l <= level; l++) {
+                    markFree(l, (index >> (level - l)) ^ 1);
+                }
+                return;
+            }
+        }
+        for (int l = level; l < free.length; l++) {
+            int shift = l - level;
+            free[l].clear(index << shift, (index + 1) << shift);
+        }
+    }
+
+    private void markFree(int level, int index) {
+        free[level].set(index);
+        searchFrom[level] = Math.min(searchFrom[level], index);
+    }
+
+    private int level(int prefix) {
+        if (prefix < supernet.getPrefix() || prefix > 32) {
+            throw new IllegalArgumentException("Prefix /" + prefix + " does not fit in " + supernet);
+        }
+        return prefix - supernet.getPrefix();
+    }
+
+    private int index(Ipv4Cidr subnet) {
+        return (subnet.getNetworkInt() - supernet.getNetworkInt()) >>> (32 - subnet.getPrefix());
+    }
+
+    private Ipv4Cidr subnet(int level, int index) {
+        int prefix = supernet.getPrefix() + level;
+        return Ipv4Cidr.of(supernet.getNetworkInt() + (int) ((long) index << (32 - prefix)), prefix);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.manager;
+
+import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.exec.ExecOptions;
+import io.patriot_framework.network_simulator.docker.exec.ExecResult;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous docker manager. Operations are executed by blocking {@link DockerManager} on bounded
+ * thread pool, so blocking and asynchronous api share the same implementation.
+ */
+public class AsyncDockerManager implements AsyncManager {
+    /**
+     * Default number of concurrently executed daemon calls.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    private final DockerManager dockerManager;
+    private final ExecutorService executor;
+
+    /**
+     * Instantiates a new Async docker manager with default parallelism.
+     *
+     * @param dockerManager the docker manager
+     */
+    public AsyncDockerManager(DockerManager dockerManager) {
+        this(dockerManager, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Instantiates a new Async docker manager.
+     *
+     * @param dockerManager the docker manager
+     * @param parallelism   maximum number of concurrently executed daemon calls
+     */
+    public AsyncDockerManager(DockerManager dockerManager, int parallelism) {
+        this.dockerManager = dockerManager;
+        this.executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("docker-manager"));
+    }
+
+    /**
+     * Gets blocking manager used for execution.
+     *
+     * @return the docker manager
+     */
+    public DockerManager getDockerManager() {
+        return dockerManager;
+    }
+
+    /**
+     * Gets executor running daemon calls.
+     *
+     * @return the executor
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public CompletableFuture<Container> createContainer(String name, String tag) {
+        return supply(() -> dockerManager.createContainer(name, tag));
+    }
+
+    @Override
+    public CompletableFuture<String> findIpAddress(Container container, Network network) {
+        return supply(() -> dockerManager.findIpAddress(container, network));
+    }
+
+    @Override
+    public CompletableFuture<Network> createNetwork(String name, String subnet) {
+        return supply(() -> dockerManager.createNetwork(name, subnet));
+    }
+
+    @Override
+    public CompletableFuture<List<Container>> listContainers() {
+        return supply(dockerManager::listContainers);
+    }
+
+    @Override
+    public CompletableFuture<List<Network>> listNetworks() {
+        return supply(dockerManager::listNetworks);
+    }
+
+    @Override
+    public CompletableFuture<Void> connectContainerToNetwork(Container container, Network network) {
+        return run(() -> dockerManager.connectContainerToNetwork(container, network));
+    }
+
+    @Override
+    public CompletableFuture<Void> killContainer(Container container) {
+        return run(() -> dockerManager.killContainer(container));
+    }
+
+    @Override
+    public CompletableFuture<Void> disconnectContainer(Container container, Network network) {
+        return run(() -> dockerManager.disconnectContainer(container, network));
+    }
+
+    @Override
+    public CompletableFuture<Void> destroyContainer(Container container) {
+        return run(() -> dockerManager.destroyContainer(container));
+    }
+
+    @Override
+    public CompletableFuture<Void> destroyNetwork(Network network) {
+        return run(() -> dockerManager.destroyNetwork(network));
+    }
+
+    @Override
+    public CompletableFuture<ExecResult> runCommand(Container container, String command) {
+        return supply(() -> dockerManager.submitCommand(container, command, new ExecOptions()))
+                .thenCompose(result -> result);
+    }
+
+    @Override
+    public CompletableFuture<Void> startContainer(Container container) {
+        return run(() -> dockerManager.startContainer(container));
+    }
+
+    @Override
+    public CompletableFuture<Void> buildImage(File dockerfile, Set<String> tag) {
+        return run(() -> dockerManager.buildImage(dockerfile, tag));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteImage(String tag) {
+        return run(() -> dockerManager.deleteImage(tag));
+    }
+
+    /**
+     * Stops accepting new operations, already submitted ones are finished.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    private CompletableFuture<Void> run(Runnable operation) {
+        return CompletableFuture.runAsync(operation, executor);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.manager;
+
+import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.exec.ExecResult;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link Manager}. Every operation is submitted to executor and
+ * returns future, so independent daemon calls can overlap.
+ */
+public interface AsyncManager {
+    /**
+     * Create container container.
+     *
+     * @param name the name
+     * @param tag  the tag
+     * @return future of created container
+     */
+    CompletableFuture<Container> createContainer(String name, String tag);
+
+    /**
+     * Find ip address of container in network.
+     *
+     * @param container the container
+     * @param network   the network
+     * @return future of ip address
+     */
+    CompletableFuture<String> findIpAddress(Container container, Network network);
+
+    /**
+     * Create network network.
+     *
+     * @param name   the name
+     * @param subnet the subnet
+     * @return future of created network
+     */
+    CompletableFuture<Network> createNetwork(String name, String subnet);
+
+    /**
+     * List containers list.
+     *
+     * @return future of container list
+     */
+    CompletableFuture<List<Container>> listContainers();
+
+    /**
+     * List networks list.
+     *
+     * @return future of network list
+     */
+    CompletableFuture<List<Network>> listNetworks();
+
+    /**
+     * Connect container to network.
+     *
+     * @param container the container
+     * @param network   the network
+     * @return future completed when container is connected
+     */
+    CompletableFuture<Void> connectContainerToNetwork(Container container, Network network);
+
+    /**
+     * Kill container.
+     *
+     * @param container the container
+     * @return future completed when container is killed
+     */
+    CompletableFuture<Void> killContainer(Container container);
+
+    /**
+     * Disconnects container from network.
+     *
+     * @param container the container
+     * @param network   the network
+     * @return future completed when container is disconnected
+     */
+    CompletableFuture<Void> disconnectContainer(Container container, Network network);
+
+    /**
+     * Destroy container.
+     *
+     * @param container the container
+     * @return future completed when container is removed
+     */
+    CompletableFuture<Void> destroyContainer(Container container);
+
+    /**
+     * Destroy network.
+     *
+     * @param network the network
+     * @return future completed when network is removed
+     */
+    CompletableFuture<Void> destroyNetwork(Network network);
+
+    /**
+     * Run command.
+     *
+     * @param container the container
+     * @param command   the command
+     * @return future completed with result of command
+     */
+    CompletableFuture<ExecResult> runCommand(Container container, String command);
+
+    /**
+     * Start container.
+     *
+     * @param container the container
+     * @return future completed when container is started
+     */
+    CompletableFuture<Void> startContainer(Container container);
+
+    /**
+     * Build image.
+     *
+     * @param dockerfile the dockerfile
+     * @param tag        the tag
+     * @return future completed when image is built
+     */
+    CompletableFuture<Void> buildImage(File dockerfile, Set<String> tag);
+
+    /**
+     * Delete image.
+     *
+     * @param tag the tag
+     * @return future completed when image is removed
+     */
+    CompletableFuture<Void> deleteImage(String tag);
+}
@@ -17,37 +17,55 @@
 package io.patriot_framework.network_simulator.docker.manager;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerCmd;
 import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.CreateNetworkResponse;
-import com.github.dockerjava.api.command.ExecCreateCmdResponse;
 import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.BuildResponseItem;
 import com.github.dockerjava.api.model.Capability;
+import com.github.dockerjava.api.model.ContainerNetwork;
+import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Image;
 import com.github.dockerjava.api.model.LogConfig;
 import com.github.dockerjava.api.model.Network.Ipam;
 import com.github.dockerjava.api.model.NetworkSettings;
 import com.github.dockerjava.api.model.Volume;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
 import com.github.dockerjava.core.command.BuildImageResultCallback;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
 import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.client.DockerClientRegistry;
+import io.patriot_framework.network_simulator.docker.concurrent.SingleFlightCache;
 import io.patriot_framework.network_simulator.docker.container.Container;
 import io.patriot_framework.network_simulator.docker.container.DockerContainer;
+import io.patriot_framework.network_simulator.docker.exec.ExecException;
+import io.patriot_framework.network_simulator.docker.exec.ExecOptions;
+import io.patriot_framework.network_simulator.docker.exec.ExecResult;
+import io.patriot_framework.network_simulator.docker.exec.ExecRunner;
+import io.patriot_framework.network_simulator.docker.exec.ExecSessionManager;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Address;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Cidr;
+import io.patriot_framework.network_simulator.docker.ipv4.SubnetAllocator;
 import io.patriot_framework.network_simulator.docker.network.DockerNetwork;
+import io.patriot_framework.network_simulator.docker.network.DockerNetworkUtilities;
+import io.patriot_framework.network_simulator.docker.network.RouteProgram;
+import io.patriot_framework.network_simulator.docker.state.ContainerStatus;
+import io.patriot_framework.network_simulator.docker.state.DockerStateModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Class providing connection between Patriot api and java-docker api.
@@ -56,19 +74,168 @@ public class DockerManager implements Manager {
 
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerManager.class);
-    private DockerClient dockerClient = DockerClientBuilder.
-            getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build()).build();
+    /**
+     * Default time for which container inspection is cached.
+     */
+    public static final long DEFAULT_INSPECT_TTL_MILLIS = 10000;
+    /**
+     * Label marking containers and networks created by simulator.
+     */
+    public static final String MANAGED_LABEL = "io.patriot_framework.network_simulator";
+    /**
+     * Network of containers created without network mode.
+     */
+    public static final String DEFAULT_NETWORK = "bridge";
+    private static final Map<String, String> MANAGED_LABELS = Collections.singletonMap(MANAGED_LABEL, "true");
+    private DockerClient dockerClient;
+    private DockerStateModel stateModel;
+    private SingleFlightCache<String, InspectContainerResponse> inspectCache;
+    private volatile ExecSessionManager execSessions;
+    private final ExecRunner execRunner;
+    private ExecRunner streamingExecRunner;
+
+    /**
+     * Instantiates a new Docker manager using shared docker client from registry.
+     */
+    public DockerManager() {
+        this(DockerClientRegistry.sharedClient());
+    }
+
+    /**
+     * Instantiates a new Docker manager.
+     *
+     * @param dockerClient the docker client
+     */
+    public DockerManager(DockerClient dockerClient) {
+        this(dockerClient, DEFAULT_INSPECT_TTL_MILLIS);
+    }
+
+    /**
+     * Instantiates a new Docker manager.
+     *
+     * @param dockerClient     the docker client
+     * @param inspectTtlMillis time for which container inspection is cached
+     */
+    public DockerManager(DockerClient dockerClient, long inspectTtlMillis) {
+        this.dockerClient = dockerClient;
+        this.inspectCache = new SingleFlightCache<>(id -> dockerClient.inspectContainerCmd(id).exec(),
+                inspectTtlMillis);
+        this.execRunner = new ExecRunner(dockerClient);
+    }
+
+    /**
+     * Gets docker client used by this manager.
+     *
+     * @return the docker client
+     */
+    public DockerClient getDockerClient() {
+        return dockerClient;
+    }
+
+    /**
+     * Gets manager of exec sessions, sessions use streaming client from registry.
+     *
+     * @return the exec session manager
+     */
+    public synchronized ExecSessionManager getExecSessions() {
+        if (execSessions == null) {
+            execSessions = new ExecSessionManager(DockerClientRegistry.getInstance().getStreamingClient());
+        }
+        return execSessions;
+    }
+
+    /**
+     * Gets runner of commands, commands with standard input are executed by streaming client from registry.
+     */
+    private synchronized ExecRunner runner(ExecOptions options) {
+        if (options.getStdin() == null) {
+            return execRunner;
+        }
+        if (streamingExecRunner == null) {
+            streamingExecRunner = new ExecRunner(DockerClientRegistry.getInstance().getStreamingClient());
+        }
+        return streamingExecRunner;
+    }
+
+    /**
+     * Gets state model used for answering existence and state queries.
+     *
+     * @return the state model or null if queries are answered by daemon
+     */
+    public DockerStateModel getStateModel() {
+        return stateModel;
+    }
+
+    /**
+     * Sets state model used for answering existence and state queries. Model has to be started.
+     *
+     * @param stateModel the state model
+     */
+    public void setStateModel(DockerStateModel stateModel) {
+        this.stateModel = stateModel;
+    }
+
+    /**
+     * Creates, starts and attaches event driven state model to this manager.
+     *
+     * @return the started state model
+     */
+    public DockerStateModel startStateModel() {
+        DockerStateModel model = new DockerStateModel(dockerClient);
+        model.start();
+        this.stateModel = model;
+        return model;
+    }
+
+    /**
+     * Gets status of container. Status is taken from state model when available, otherwise daemon is asked.
+     *
+     * @param container the container
+     * @return the container status
+     */
+    public ContainerStatus getContainerStatus(Container container) {
+        if (stateModel != null) {
+            return stateModel.getStatus(container.getId());
+        }
+        try {
+            InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(container.getId())
+                    .exec().getState();
+            return ContainerStatus.fromDockerState(state.getStatus());
+        } catch (NotFoundException e) {
+            return ContainerStatus.REMOVED;
+        }
+    }
+
+    /**
+     * Inspects container. Result is cached until container is changed through this manager or until
+     * cache entry expires. Concurrent inspections of the same container are done by single daemon call.
+     *
+     * @param container the container
+     * @return the inspect container response
+     */
+    public InspectContainerResponse inspectContainer(Container container) {
+        return inspectCache.get(container.getId());
+    }
+
+    /**
+     * Drops cached inspection of container.
+     *
+     * @param container the container
+     */
+    public void invalidateInspection(Container container) {
+        inspectCache.invalidate(container.getId());
+    }
 
     @Override
     public String findIpAddress(Container container, Network network) {
-        InspectContainerResponse containerResponse = dockerClient.inspectContainerCmd(container.getId()).exec();
+        InspectContainerResponse containerResponse = inspectContainer(container);
         NetworkSettings netSettings = containerResponse.getNetworkSettings();
 
         return netSettings.getNetworks().get(network.getName()).getIpAddress();
     }
 
     public String findIpAddress(Container container) {
-        InspectContainerResponse containerResponse = dockerClient.inspectContainerCmd(container.getId()).exec();
+        InspectContainerResponse containerResponse = inspectContainer(container);
         NetworkSettings netSettings = containerResponse.getNetworkSettings();
 
         return netSettings.getIpAddress();
@@ -79,6 +246,80 @@ public class DockerManager implements Manager {
         dockerClient.buildImageCmd(dockerfile).withTags(tag).exec(new BuildImageResultCallback()).awaitImageId();
     }
 
+    /**
+     * Builds image with labels.
+     *
+     * @param dockerfile Dockerfile, its directory is build context
+     * @param tag        tags of image
+     * @param labels     labels of image
+     * @return id of built image
+     */
+    public String buildImage(File dockerfile, Set<String> tag, Map<String, String> labels) {
+        return dockerClient.buildImageCmd(dockerfile).withTags(tag).withLabels(labels)
+                .exec(new BuildImageResultCallback()).awaitImageId();
+    }
+
+    /**
+     * Builds image from tar stream of build context.
+     *
+     * @param context tar of build context with Dockerfile in its root
+     * @param tag     tags of image
+     * @param labels  labels of image
+     * @return id of built image
+     */
+    public String buildImage(InputStream context, Set<String> tag, Map<String, String> labels) {
+        return buildImage(context, tag, labels, line -> { });
+    }
+
+    /**
+     * Builds image from tar stream of build context and reports its output.
+     *
+     * @param context  tar of build context with Dockerfile in its root
+     * @param tag      tags of image
+     * @param labels   labels of image
+     * @param progress receives output lines of build as they arrive
+     * @return id of built image
+     */
+    public String buildImage(InputStream context, Set<String> tag, Map<String, String> labels,
+                             Consumer<String> progress) {
+        return dockerClient.buildImageCmd(context).withTags(tag).withLabels(labels)
+                .exec(new BuildImageResultCallback() {
+                    @Override
+                    public void onNext(BuildResponseItem item) {
+                        if (item.getStream() != null && !item.getStream().trim().isEmpty()) {
+                            progress.accept(item.getStream().trim());
+                        }
+                        super.onNext(item);
+                    }
+                }).awaitImageId();
+    }
+
+    /**
+     * Finds local image by label.
+     *
+     * @param label label name
+     * @param value label value
+     * @return id of image or null when no image has label
+     */
+    public String findImageByLabel(String label, String value) {
+        List<Image> images = dockerClient.listImagesCmd().withLabelFilter(Collections.singletonMap(label, value))
+                .exec();
+        return images.isEmpty() ? null : images.get(0).getId();
+    }
+
+    /**
+     * Adds tag to image, tag is moved when other image has it.
+     *
+     * @param image id or tag of image
+     * @param tag   new tag in repository:tag form, latest is used when tag part is missing
+     */
+    public void tagImage(String image, String tag) {
+        int colon = tag.lastIndexOf(':');
+        boolean hasTag = colon > tag.lastIndexOf('/');
+        dockerClient.tagImageCmd(image, hasTag ? tag.substring(0, colon) : tag,
+                hasTag ? tag.substring(colon + 1) : "latest").withForce().exec();
+    }
+
     @Override
     public void deleteImage(String tag) {
         dockerClient.removeImageCmd(tag).exec();
@@ -92,10 +333,90 @@ public class DockerManager implements Manager {
                 .withHostConfig(new HostConfig()
                     .withCapAdd(Capability.NET_ADMIN)
                 )
+                .withLabels(MANAGED_LABELS)
+                .withName(name)
+                .exec();
+        LOGGER.info("Container created with id: " + containerResponse.getId());
+        return created(name, containerResponse.getId());
+    }
+
+    /**
+     * Create container with environment variables.
+     *
+     * @param name                 the name
+     * @param tag                  the tag
+     * @param environmentVariables the environment variables
+     * @return the container
+     */
+    public Container createContainer(String name, String tag, List<String> environmentVariables) {
+        LOGGER.info("Started creating container");
+
+        CreateContainerResponse containerResponse = dockerClient.createContainerCmd(tag)
+                .withHostConfig(new HostConfig()
+                    .withCapAdd(Capability.NET_ADMIN)
+                )
+                .withEnv(environmentVariables)
+                .withLabels(MANAGED_LABELS)
                 .withName(name)
                 .exec();
         LOGGER.info("Container created with id: " + containerResponse.getId());
-        return new DockerContainer(name, containerResponse.getId(), new DockerManager());
+        return created(name, containerResponse.getId());
+    }
+
+    /**
+     * Create container which is already attached to networks when it is started. First network is set
+     * as network mode of created container, other networks are connected before container start,
+     * so container does not need to be restarted to get its interfaces.
+     *
+     * @param name                 the name
+     * @param tag                  the tag
+     * @param environmentVariables the environment variables
+     * @param networks             networks to which container is attached
+     * @param staticIps            static IPv4 addresses by network name, networks without address use IPAM
+     * @return the container
+     */
+    public Container createContainer(String name, String tag, List<String> environmentVariables,
+                                     List<Network> networks, Map<String, String> staticIps) {
+        if (networks.isEmpty()) {
+            return createContainer(name, tag, environmentVariables);
+        }
+        LOGGER.info("Started creating container attached to " + networks.size() + " networks");
+        Network primary = networks.get(0);
+        CreateContainerCmd command = dockerClient.createContainerCmd(tag)
+                .withHostConfig(new HostConfig()
+                    .withCapAdd(Capability.NET_ADMIN)
+                    .withNetworkMode(primary.getName())
+                )
+                .withEnv(environmentVariables)
+                .withLabels(MANAGED_LABELS)
+                .withName(name);
+        if (staticIps.get(primary.getName()) != null) {
+            command.withIpv4Address(staticIps.get(primary.getName()));
+        }
+        CreateContainerResponse containerResponse = command.exec();
+        LOGGER.info("Container created with id: " + containerResponse.getId());
+        Container container = created(name, containerResponse.getId());
+        connectOrRemove(container, networks.subList(1, networks.size()), staticIps);
+        return container;
+    }
+
+    /**
+     * Connects created container to networks, container is removed when any connection fails.
+     */
+    private void connectOrRemove(Container container, List<Network> networks, Map<String, String> staticIps) {
+        try {
+            for (Network network : networks) {
+                connectContainerToNetwork(container, network, staticIps.get(network.getName()));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Container " + container.getName() + " could not be connected to its networks, removing it");
+            try {
+                destroyContainer(container);
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
     }
 
     /**
@@ -116,10 +437,11 @@ public class DockerManager implements Manager {
                     .withBinds(new Bind(bindPath, volume))
                     .withCapAdd(Capability.NET_ADMIN)
                 )
+                .withLabels(MANAGED_LABELS)
                 .withName(name)
                 .exec();
         LOGGER.info("Container created with id: " + containerResponse.getId());
-        return new DockerContainer(name, containerResponse.getId(), new DockerManager());
+        return created(name, containerResponse.getId());
     }
 
 
@@ -144,10 +466,11 @@ public class DockerManager implements Manager {
                     .withLogConfig(gelfLog)
                 )
                 .withEnv(environmentVariables)
+                .withLabels(MANAGED_LABELS)
                 .withName(name)
                 .exec();
         LOGGER.info("Container created with id: " + containerResponse.getId());
-        return new DockerContainer(name, containerResponse.getId(), new DockerManager());
+        return created(name, containerResponse.getId());
     }
     public Container createContainer(String name, String tag, String elasticIP, Integer logshtashPort) {
         return createContainer(name, tag, elasticIP, logshtashPort, new ArrayList<>());
@@ -159,13 +482,27 @@ public class DockerManager implements Manager {
         Ipam ipam = new Ipam().withConfig(new Ipam.Config().withSubnet(subnet));
 
         CreateNetworkResponse networkResponse = dockerClient.createNetworkCmd().withName(name)
+                .withLabels(MANAGED_LABELS)
                 .withDriver("bridge")
                 .withIpam(ipam)
                 .exec();
-
+        if (stateModel != null) {
+            stateModel.applyNetworkEvent("create", networkResponse.getId(), name, null);
+        }
         return new DockerNetwork(name, networkResponse.getId());
     }
 
+    /**
+     * Creates bridge network with subnet.
+     *
+     * @param name   network name
+     * @param subnet network subnet
+     * @return created network
+     */
+    public Network createNetwork(String name, Ipv4Cidr subnet) {
+        return createNetwork(name, subnet.toString());
+    }
+
     /**
      * Method providing service for finding containers and return list of all created containers
      *
@@ -182,6 +519,24 @@ public class DockerManager implements Manager {
         return dockerContainers;
     }
 
+    /**
+     * Method finds container by its exact name. Lookup is filtered by daemon, so only matching
+     * containers are transferred.
+     *
+     * @param name name of container
+     * @return found container or null if container does not exist
+     */
+    public Container findContainer(String name) {
+        List<com.github.dockerjava.api.model.Container> outputConts = dockerClient.listContainersCmd()
+                .withShowAll(true).withNameFilter(Collections.singletonList(name)).exec();
+        for (com.github.dockerjava.api.model.Container c : outputConts) {
+            if (Arrays.asList(c.getNames()).contains("/" + name)) {
+                return new DockerContainer(name, c.getId(), this);
+            }
+        }
+        return null;
+    }
+
     /**
      * Method providing service for finding networks and return list of all created networks
      * @return returns all networks running in docker
@@ -196,20 +551,77 @@ public class DockerManager implements Manager {
         return networks;
     }
 
+    /**
+     * Lists IPv4 subnets of all daemon networks.
+     *
+     * @return the subnets
+     */
+    public List<Ipv4Cidr> listSubnets() {
+        List<Ipv4Cidr> subnets = new ArrayList<>();
+        for (com.github.dockerjava.api.model.Network network : dockerClient.listNetworksCmd().exec()) {
+            if (network.getIpam() == null || network.getIpam().getConfig() == null) {
+                continue;
+            }
+            for (Ipam.Config config : network.getIpam().getConfig()) {
+                if (config.getSubnet() != null && !config.getSubnet().contains(":")) {
+                    subnets.add(Ipv4Cidr.parse(config.getSubnet()));
+                }
+            }
+        }
+        return subnets;
+    }
+
+    /**
+     * Creates allocator of subnets of supernet with subnets of existing daemon networks reserved.
+     *
+     * @param supernet network from which subnets are allocated
+     * @return the subnet allocator
+     */
+    public SubnetAllocator newSubnetAllocator(Ipv4Cidr supernet) {
+        SubnetAllocator allocator = new SubnetAllocator(supernet);
+        listSubnets().forEach(allocator::reserve);
+        return allocator;
+    }
+
     @Override
     public void connectContainerToNetwork(Container container, Network network) {
-        dockerClient.connectToNetworkCmd().withNetworkId(network.getId()).withContainerId(container.getId()).exec();
+        changeNetwork("connect", network, container.getId(), () -> dockerClient.connectToNetworkCmd()
+                .withNetworkId(network.getId()).withContainerId(container.getId()).exec());
+        invalidateInspection(container);
+    }
+
+    /**
+     * Connect container to network with static IPv4 address.
+     *
+     * @param container   the container
+     * @param network     the network
+     * @param ipv4Address address of container in network, IPAM assigns address when null
+     */
+    public void connectContainerToNetwork(Container container, Network network, String ipv4Address) {
+        if (ipv4Address == null) {
+            connectContainerToNetwork(container, network);
+            return;
+        }
+        changeNetwork("connect", network, container.getId(), () -> dockerClient.connectToNetworkCmd()
+                .withNetworkId(network.getId()).withContainerId(container.getId())
+                .withContainerNetwork(new ContainerNetwork()
+                    .withIpamConfig(new ContainerNetwork.Ipam().withIpv4Address(ipv4Address)))
+                .exec());
+        invalidateInspection(container);
     }
 
     @Override
     public void killContainer(Container container) {
-        dockerClient.killContainerCmd(container.getId()).exec();
+        changeContainer("die", container.getId(), container.getName(),
+                () -> dockerClient.killContainerCmd(container.getId()).exec());
+        invalidateInspection(container);
     }
 
     @Override
     public void disconnectContainer(Container container, Network network) {
-        dockerClient.disconnectFromNetworkCmd().withContainerId(container.getId())
-                .withNetworkId(network.getId()).exec();
+        changeNetwork("disconnect", network, container.getId(), () -> dockerClient.disconnectFromNetworkCmd()
+                .withContainerId(container.getId()).withNetworkId(network.getId()).exec());
+        invalidateInspection(container);
     }
 
     /**
@@ -220,6 +632,9 @@ public class DockerManager implements Manager {
     @Override
     public void destroyContainer(Container container) {
         List<com.github.dockerjava.api.model.Container> outputCont;
+        if (execSessions != null) {
+            execSessions.close(container);
+        }
 
         if (container.getId() == null || container.getId().isEmpty()) {
             outputCont = dockerClient.listContainersCmd().withShowAll(true)
@@ -231,12 +646,15 @@ public class DockerManager implements Manager {
 
         if (!outputCont.isEmpty() && !outputCont.isEmpty()) {
 
-            if (!outputCont.get(0).getStatus().contains("Exited") &&
-                    !outputCont.get(0).getStatus().contains("Created")) {
-                dockerClient.killContainerCmd(container.getId()).exec();
-            }
-            dockerClient.removeContainerCmd(outputCont.get(0).getNames()[0])
-                    .withContainerId(outputCont.get(0).getId()).exec();
+            changeContainer("destroy", outputCont.get(0).getId(), container.getName(), () -> {
+                if (!outputCont.get(0).getStatus().contains("Exited") &&
+                        !outputCont.get(0).getStatus().contains("Created")) {
+                    dockerClient.killContainerCmd(container.getId()).exec();
+                }
+                dockerClient.removeContainerCmd(outputCont.get(0).getNames()[0])
+                        .withContainerId(outputCont.get(0).getId()).exec();
+            });
+            inspectCache.invalidate(outputCont.get(0).getId());
         } else {
             throw new NullPointerException("Container not found!");
         }
@@ -250,32 +668,75 @@ public class DockerManager implements Manager {
      */
     @Override
     public void destroyNetwork(Network network) {
-        dockerClient.removeNetworkCmd(network.getName()).withNetworkId(network.getId()).exec();
+        changeNetwork("destroy", network, null,
+                () -> dockerClient.removeNetworkCmd(network.getName()).withNetworkId(network.getId()).exec());
     }
 
     /**
      * Method is providing execution of commands directly in running docker container.
+     * Command is split on whitespace and executed with default options.
      *
      * @param container container in which will be command executed
      * @param command command which will be executed
+     * @return result of command
+     * @throws ExecException when command times out or waiting for it is interrupted
      */
     @Override
-    public void runCommand(Container container, String command) {
+    public ExecResult runCommand(Container container, String command) {
+        return runCommand(container, command, new ExecOptions());
+    }
 
-        try {
-            String[] commandWithArguments = command.split("\\s+");
-            ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(container.getId())
-                    .withPrivileged(true)
-                    .withAttachStdout(true)
-                    .withCmd(commandWithArguments)
-                    .withUser("root")
-                    .exec();
-            dockerClient.execStartCmd(execCreateCmdResponse.getId())
-                    .exec(new ExecStartResultCallback(System.out, System.err))
-                    .awaitCompletion(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Executes command in running container and waits for its result.
+     *
+     * @param container container in which will be command executed
+     * @param command   command which will be executed, split on whitespace
+     * @param options   timeout and output limit
+     * @return result of command
+     * @throws ExecException when command times out or waiting for it is interrupted
+     */
+    public ExecResult runCommand(Container container, String command, ExecOptions options) {
+        return runner(options).run(container.getId(), command.split("\\s+"), options);
+    }
+
+    /**
+     * Executes command given by its arguments in running container, arguments are not split.
+     *
+     * @param container container in which will be command executed
+     * @param command   command with arguments
+     * @param options   timeout and output limit
+     * @return result of command
+     * @throws ExecException when command times out or waiting for it is interrupted
+     */
+    public ExecResult runCommand(Container container, String[] command, ExecOptions options) {
+        return runner(options).run(container.getId(), command, options);
+    }
+
+    /**
+     * Starts command in running container without waiting for it. Cancelling returned future closes
+     * output stream of command.
+     *
+     * @param container container in which will be command executed
+     * @param command   command which will be executed, split on whitespace
+     * @param options   timeout and output limit
+     * @return future completed with result of command
+     */
+    public CompletableFuture<ExecResult> submitCommand(Container container, String command, ExecOptions options) {
+        return runner(options).submit(container.getId(), command.split("\\s+"), options);
+    }
+
+    /**
+     * Starts command in running container and passes its output frames to consumer without keeping them.
+     *
+     * @param container container in which will be command executed
+     * @param command   command which will be executed, split on whitespace
+     * @param options   timeout of command
+     * @param consumer  consumer of output frames
+     * @return future completed with result of command without output
+     */
+    public CompletableFuture<ExecResult> streamCommand(Container container, String command, ExecOptions options,
+                                                       Consumer<Frame> consumer) {
+        return runner(options).stream(container.getId(), command.split("\\s+"), options, consumer);
     }
 
     /**
@@ -286,20 +747,122 @@ public class DockerManager implements Manager {
     @Override
     public void startContainer(Container container) {
         LOGGER.info("Starting container");
-        dockerClient.startContainerCmd(container.getId()).exec();
+        changeContainer("start", container.getId(), container.getName(),
+                () -> dockerClient.startContainerCmd(container.getId()).exec());
+        invalidateInspection(container);
+    }
+
+    /**
+     * Freezes all processes of container.
+     *
+     * @param container container which will be paused
+     */
+    public void pauseContainer(Container container) {
+        changeContainer("pause", container.getId(), container.getName(),
+                () -> dockerClient.pauseContainerCmd(container.getId()).exec());
+        invalidateInspection(container);
+    }
+
+    /**
+     * Resumes processes of paused container.
+     *
+     * @param container container which will be unpaused
+     */
+    public void unpauseContainer(Container container) {
+        changeContainer("unpause", container.getId(), container.getName(),
+                () -> dockerClient.unpauseContainerCmd(container.getId()).exec());
+        invalidateInspection(container);
+    }
+
+    /**
+     * Renames container.
+     *
+     * @param container container which will be renamed
+     * @param name      new name of container
+     * @return container with new name
+     */
+    public Container renameContainer(Container container, String name) {
+        changeContainer("rename", container.getId(), name,
+                () -> dockerClient.renameContainerCmd(container.getId()).withName(name).exec());
+        invalidateInspection(container);
+        return new DockerContainer(name, container.getId(), this);
+    }
+
+    /**
+     * Records container created by this manager in state model, so it is found before its event arrives.
+     */
+    private Container created(String name, String containerId) {
+        if (stateModel != null) {
+            stateModel.applyContainerEvent("create", containerId, name);
+        }
+        return new DockerContainer(name, containerId, this);
+    }
+
+    /**
+     * Runs command changing container and applies its change to state model once command succeeds.
+     *
+     * @param action      action of event which command causes
+     * @param containerId container id
+     * @param name        container name after change
+     * @param command     command sent to daemon
+     */
+    private void changeContainer(String action, String containerId, String name, Runnable command) {
+        DockerStateModel model = stateModel;
+        if (model == null) {
+            command.run();
+            return;
+        }
+        model.expectContainerEvent(action, containerId);
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            model.cancelContainerEvent(action, containerId);
+            throw e;
+        }
+        model.applyContainerEvent(action, containerId, name);
+    }
+
+    /**
+     * Runs command changing network and applies its change to state model once command succeeds.
+     *
+     * @param action      action of event which command causes
+     * @param network     network
+     * @param containerId container id of connect and disconnect, null otherwise
+     * @param command     command sent to daemon
+     */
+    private void changeNetwork(String action, Network network, String containerId, Runnable command) {
+        DockerStateModel model = stateModel;
+        if (model == null) {
+            command.run();
+            return;
+        }
+        model.expectNetworkEvent(action, network.getId(), containerId);
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            model.cancelNetworkEvent(action, network.getId(), containerId);
+            throw e;
+        }
+        model.applyNetworkEvent(action, network.getId(), network.getName(), containerId);
     }
 
     public String getGatewayIP(Container container) {
-        String ip = dockerClient.inspectContainerCmd(container.getId())
-                .withContainerId(container.getId()).exec().getNetworkSettings().getGateway();
+        String ip = inspectContainer(container).getNetworkSettings().getGateway();
         return ip;
     }
 
     public String getDefaultGwNetworkIp(Container container) {
-        String ip = dockerClient.inspectContainerCmd(container.getId())
-                .withContainerId(container.getId()).exec().getNetworkSettings().getGateway();
-        int mask = getDefaultGwNetworkMask(container);
-        return convertToNetworkIp(ip, mask);
+        return getDefaultGwNetwork(container).getNetwork().toString();
+    }
+
+    /**
+     * Gets network of default gateway of container.
+     *
+     * @param container the container
+     * @return the network
+     */
+    public Ipv4Cidr getDefaultGwNetwork(Container container) {
+        return Ipv4Cidr.of(getGatewayIP(container), getDefaultGwNetworkMask(container));
     }
 
     /**
@@ -309,66 +872,29 @@ public class DockerManager implements Manager {
      * @return network mask (decimal)
      */
     public Integer getDefaultGwNetworkMask(Container container) {
-        return dockerClient.inspectContainerCmd(container.getName()).withContainerId(container.getId())
-                .exec().getNetworkSettings().getIpPrefixLen();
+        return inspectContainer(container).getNetworkSettings().getIpPrefixLen();
     }
 
     /**
      * Method converts host ip address to ip address of network or subnet.
      * Docker api doesn't store ip address of network in containers config so
-     * we have to convert it from container's ip and mask. Convert uses logic
-     * AND function.
+     * we have to convert it from container's ip and mask.
      *
      * @param ip   IP Address of container in target network.
      * @param mask mask of containers ip addres in target network.
      * @return Network IP Address
      */
     public String convertToNetworkIp(String ip, int mask) {
-        String[] s = ip.split(Pattern.quote("."));
-        long binIp = 0;
-        for (int i = 0; i < s.length; i++) {
-            if (i == 0) {
-                binIp = Integer.parseInt(s[i]);
-            } else {
-                binIp = (binIp << 8) | Integer.parseInt(s[i]);
-            }
-        }
-        long binMask = convertCidrToBinMask(mask);
-        String networkIp = "";
-
-        long binNetworkIp = binIp & binMask;
-        for (int i = 24; i >= 0; i -= 8) {
-            networkIp += ((binNetworkIp >> i) & 0xFF);
-            if (i != 0) {
-                networkIp += ".";
-            }
-        }
-
-        return networkIp;
+        return Ipv4Address.format(Ipv4Address.parseInt(ip) & Ipv4Cidr.mask(mask));
     }
 
     /**
-     * Method converts CIDR mask to binary mask (16 -> 11111111 11111111 00000000 00000000).
-     * Binary mask is used for converting host ip to network ip.
+     * Removes default route of container.
      *
-     * @param mask CIDR mask
-     * @return ArrayList with binary mask (each index is 1 bit)
+     * @param container the container
      */
-    private long convertCidrToBinMask(int mask) {
-        long binMask = 1;
-        for (int i = 0; i < 32; i++) {
-            if (mask > 0) {
-                binMask = (binMask << 1) + 1;
-            } else {
-                binMask = binMask << 1;
-            }
-            mask--;
-        }
-        return binMask;
-    }
-
     public void delDefaultGateway(DockerContainer container) {
-        this.runCommand(container, "ip route del default");
+        new DockerNetworkUtilities().applyRoutes(container, new RouteProgram().removeDefault(), this);
     }
 
 
@@ -18,6 +18,7 @@ package io.patriot_framework.network_simulator.docker.manager;
 
 import io.patriot_framework.network.simulator.api.model.network.Network;
 import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.exec.ExecResult;
 
 import java.io.File;
 import java.util.List;
@@ -110,8 +111,9 @@ public interface Manager {
      *
      * @param container the container
      * @param command   the command
+     * @return result of command
      */
-    void runCommand(Container container, String command);
+    ExecResult runCommand(Container container, String command);
 
     /**
      * Start container.
@@ -17,6 +17,7 @@
 package io.patriot_framework.network_simulator.docker.network;
 
 import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
 import io.patriot_framework.network_simulator.docker.manager.Manager;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class DockerNetwork extends Network {
 
 
     public boolean exists(Manager dockerManager) {
+        if (dockerManager instanceof DockerManager && ((DockerManager) dockerManager).getStateModel() != null) {
+            return ((DockerManager) dockerManager).getStateModel().networkExists(super.getId());
+        }
         List<Network> networks = dockerManager.listNetworks().stream()
                 .filter(Network -> Network.getId().equals(super.getId()))
                 .collect(Collectors.toList());
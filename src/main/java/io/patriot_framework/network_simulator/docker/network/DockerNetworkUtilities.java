@@ -16,13 +16,25 @@
 
 package io.patriot_framework.network_simulator.docker.network;
 
+import io.patriot_framework.network_simulator.docker.container.Container;
 import io.patriot_framework.network_simulator.docker.container.DockerContainer;
+import io.patriot_framework.network_simulator.docker.exec.ExecOptions;
+import io.patriot_framework.network_simulator.docker.exec.ExecResult;
 import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The type Docker network utilities.
  */
 public class DockerNetworkUtilities {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DockerNetworkUtilities.class);
 
     /**
      * Sets default gw.
@@ -32,7 +44,105 @@ public class DockerNetworkUtilities {
      * @param manager   the manager
      */
     public void setDefaultGw(DockerContainer container, String gateway, DockerManager manager) {
-        manager.runCommand(container, "route del default");
-        manager.runCommand(container, "route add default gw " + gateway);
+        IpBatchResult result = applyRoutes(container, new RouteProgram().replaceDefault(gateway), manager);
+        if (!result.isSuccess()) {
+            LOGGER.warn("Default gateway of container " + container.getName() + " was not set: " + result);
+        }
+    }
+
+    /**
+     * Applies routing table change in single exec through iproute2 batch mode, program is passed on standard
+     * input. All lines are applied even when some of them fail.
+     *
+     * @param container the container
+     * @param program   change of routing table
+     * @param manager   the manager
+     * @return failed lines of program
+     */
+    public IpBatchResult applyRoutes(Container container, RouteProgram program, DockerManager manager) {
+        if (program.isEmpty()) {
+            return new IpBatchResult(Collections.emptyMap());
+        }
+        return applyBatch(container, new String[]{"ip", "-force", "-batch", "-"}, program.getLines(),
+                program.toBatch(), manager);
+    }
+
+    /**
+     * Applies change of link impairments in single exec through tc batch mode, program is passed on standard
+     * input. All lines are applied even when some of them fail.
+     *
+     * @param container the container
+     * @param program   change of link impairments
+     * @param manager   the manager
+     * @return failed lines of program
+     */
+    public IpBatchResult applyLinks(Container container, LinkProgram program, DockerManager manager) {
+        if (program.isEmpty()) {
+            return new IpBatchResult(Collections.emptyMap());
+        }
+        return applyBatch(container, new String[]{"tc", "-force", "-batch", "-"}, program.getLines(),
+                program.toBatch(), manager);
+    }
+
+    /**
+     * Finds interfaces of container by their IPv4 addresses.
+     *
+     * @param container the container
+     * @param manager   the manager
+     * @return interface names by IP address
+     */
+    public Map<String, String> findInterfaces(Container container, DockerManager manager) {
+        ExecResult exec = manager.runCommand(container, new String[]{"ip", "-o", "-4", "addr", "show"},
+                new ExecOptions());
+        if (!exec.isSuccess()) {
+            throw new IllegalStateException("Interfaces of container " + container.getName()
+                    + " could not be listed: " + exec.getStderr().trim());
+        }
+        return parseInterfaces(exec.getStdout());
+    }
+
+    /**
+     * Parses one line per address output of ip, e.g.
+     * "52: eth0    inet 172.18.0.2/16 brd 172.18.255.255 scope global eth0".
+     *
+     * @param output output of ip -o -4 addr show
+     * @return interface names by IP address
+     */
+    static Map<String, String> parseInterfaces(String output) {
+        Map<String, String> interfaces = new HashMap<>();
+        for (String line : output.split("\n")) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 4 || !"inet".equals(fields[2])) {
+                continue;
+            }
+            String name = fields[1].split("@")[0];
+            interfaces.put(fields[3].split("/")[0], name);
+        }
+        return interfaces;
+    }
+
+    private IpBatchResult applyBatch(Container container, String[] command, List<String> lines, String batch,
+                                     DockerManager manager) {
+        ExecResult exec = manager.runCommand(container, command,
+                new ExecOptions().withStdin(batch.getBytes(StandardCharsets.UTF_8)));
+        IpBatchResult result = IpBatchResult.parse(lines, exec.getStderr());
+        if (result.isSuccess() && !exec.isSuccess()) {
+            return new IpBatchResult(Collections.singletonMap(String.join("\n", lines), exec.getStderr().trim()));
+        }
+        return result;
+    }
+
+    /**
+     * Replaces tables of iptables present in ruleset in single iptables-restore exec. Each table is
+     * committed at once, so packets never see partially applied table.
+     *
+     * @param container the container
+     * @param ruleset   complete ruleset
+     * @param manager   the manager
+     * @return result of iptables-restore
+     */
+    public ExecResult applyFirewall(Container container, FirewallRuleset ruleset, DockerManager manager) {
+        return manager.runCommand(container, new String[]{"iptables-restore"},
+                new ExecOptions().withStdin(ruleset.render().getBytes(StandardCharsets.UTF_8)));
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Complete iptables ruleset of device rendered in iptables-restore format. Every table present in
+ * ruleset is replaced as a whole when it is applied, tables which are not present are not touched.
+ */
+public class FirewallRuleset {
+    /**
+     * Default table of iptables.
+     */
+    public static final String FILTER = "filter";
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    /**
+     * Sets policy of built-in chain of filter table.
+     *
+     * @param chain  chain name, e.g. FORWARD
+     * @param target ACCEPT or DROP
+     * @return this ruleset
+     */
+    public FirewallRuleset policy(String chain, String target) {
+        return policy(FILTER, chain, target);
+    }
+
+    /**
+     * Sets policy of built-in chain.
+     *
+     * @param table  table name
+     * @param chain  chain name
+     * @param target ACCEPT or DROP
+     * @return this ruleset
+     */
+    public FirewallRuleset policy(String table, String chain, String target) {
+        table(table).chains.put(chain, target);
+        return this;
+    }
+
+    /**
+     * Declares user defined chain.
+     *
+     * @param table table name
+     * @param chain chain name
+     * @return this ruleset
+     */
+    public FirewallRuleset chain(String table, String chain) {
+        table(table).chains.putIfAbsent(chain, "-");
+        return this;
+    }
+
+    /**
+     * Appends rule to chain of filter table.
+     *
+     * @param chain chain name
+     * @param rule  rule specification, e.g. "-s 10.0.1.0/24 -d 10.0.2.0/24 -j DROP"
+     * @return this ruleset
+     */
+    public FirewallRuleset append(String chain, String rule) {
+        return append(FILTER, chain, rule);
+    }
+
+    /**
+     * Appends rule to chain.
+     *
+     * @param table table name
+     * @param chain chain name
+     * @param rule  rule specification
+     * @return this ruleset
+     */
+    public FirewallRuleset append(String table, String chain, String rule) {
+        table(table).rules.add("-A " + chain + " " + rule);
+        return this;
+    }
+
+    /**
+     * Renders ruleset as input of iptables-restore.
+     *
+     * @return the rendered ruleset
+     */
+    public String render() {
+        StringBuilder restore = new StringBuilder();
+        tables.forEach((name, table) -> {
+            restore.append('*').append(name).append('\n');
+            table.chains.forEach((chain, policy) ->
+                    restore.append(':').append(chain).append(' ').append(policy).append(" [0:0]\n"));
+            table.rules.forEach(rule -> restore.append(rule).append('\n'));
+            restore.append("COMMIT\n");
+        });
+        return restore.toString();
+    }
+
+    private Table table(String name) {
+        return tables.computeIfAbsent(name, k -> new Table());
+    }
+
+    /**
+     * Chains and rules of single table.
+     */
+    private static class Table {
+        private final Map<String, String> chains = new LinkedHashMap<>();
+        private final List<String> rules = new ArrayList<>();
+    }
+}
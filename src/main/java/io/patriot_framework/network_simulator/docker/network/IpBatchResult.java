@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Result of iproute2 batch (ip -batch or tc -batch) with failed lines of batch.
+ */
+public class IpBatchResult {
+    private static final Pattern FAILED_LINE = Pattern.compile("Command failed .*:(\\d+)\\s*$");
+    private final Map<String, String> failures;
+
+    /**
+     * Instantiates a new Ip batch result.
+     *
+     * @param failures error messages by failed batch line
+     */
+    public IpBatchResult(Map<String, String> failures) {
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Parses error output of batch mode. Every failed line is reported by its error messages followed
+     * by "Command failed -:N" line.
+     *
+     * @param lines  lines of applied batch
+     * @param stderr error output of ip or tc
+     * @return the result
+     */
+    public static IpBatchResult parse(List<String> lines, String stderr) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        StringBuilder message = new StringBuilder();
+        for (String line : stderr.split("\n")) {
+            Matcher matcher = FAILED_LINE.matcher(line);
+            if (matcher.find()) {
+                int index = Integer.parseInt(matcher.group(1)) - 1;
+                String failed = index < lines.size() ? lines.get(index) : "line " + (index + 1);
+                failures.put(failed, message.toString().trim());
+                message.setLength(0);
+            } else if (!line.trim().isEmpty()) {
+                message.append(line.trim()).append('\n');
+            }
+        }
+        return new IpBatchResult(failures);
+    }
+
+    /**
+     * Gets failed lines of batch with their error messages.
+     *
+     * @return the failures
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "IpBatchResult" + failures;
+    }
+}
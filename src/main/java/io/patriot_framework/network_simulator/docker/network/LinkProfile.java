@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Impairment of link between device and network emulated by netem queueing discipline.
+ * Profile without any impairment lets packets pass unchanged.
+ */
+public class LinkProfile {
+    private double delayMillis;
+    private double jitterMillis;
+    private double lossPercent;
+    private long rateKbit;
+    private double corruptPercent;
+    private double reorderPercent;
+
+    /**
+     * Sets delay of every packet.
+     *
+     * @param delayMillis delay in milliseconds
+     * @return this profile
+     */
+    public LinkProfile withDelay(double delayMillis) {
+        this.delayMillis = requireNonNegative(delayMillis, "delay");
+        return this;
+    }
+
+    /**
+     * Sets delay of every packet with random variation.
+     *
+     * @param delayMillis  delay in milliseconds
+     * @param jitterMillis maximum variation of delay in milliseconds
+     * @return this profile
+     */
+    public LinkProfile withDelay(double delayMillis, double jitterMillis) {
+        this.jitterMillis = requireNonNegative(jitterMillis, "jitter");
+        return withDelay(delayMillis);
+    }
+
+    /**
+     * Sets probability of packet loss.
+     *
+     * @param lossPercent loss in percent
+     * @return this profile
+     */
+    public LinkProfile withLoss(double lossPercent) {
+        this.lossPercent = requirePercent(lossPercent, "loss");
+        return this;
+    }
+
+    /**
+     * Sets bandwidth limit of link.
+     *
+     * @param rateKbit bandwidth in kilobits per second, 0 means unlimited
+     * @return this profile
+     */
+    public LinkProfile withRate(long rateKbit) {
+        if (rateKbit < 0) {
+            throw new IllegalArgumentException("Rate must not be negative: " + rateKbit);
+        }
+        this.rateKbit = rateKbit;
+        return this;
+    }
+
+    /**
+     * Sets probability of single bit error in packet.
+     *
+     * @param corruptPercent corruption in percent
+     * @return this profile
+     */
+    public LinkProfile withCorruption(double corruptPercent) {
+        this.corruptPercent = requirePercent(corruptPercent, "corruption");
+        return this;
+    }
+
+    /**
+     * Sets probability of packet being sent immediately, while others are delayed. Reordering
+     * takes effect only together with delay.
+     *
+     * @param reorderPercent reordering in percent
+     * @return this profile
+     */
+    public LinkProfile withReordering(double reorderPercent) {
+        this.reorderPercent = requirePercent(reorderPercent, "reordering");
+        return this;
+    }
+
+    /**
+     * Gets delay in milliseconds.
+     *
+     * @return the delay
+     */
+    public double getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * Gets jitter in milliseconds.
+     *
+     * @return the jitter
+     */
+    public double getJitterMillis() {
+        return jitterMillis;
+    }
+
+    /**
+     * Gets loss in percent.
+     *
+     * @return the loss
+     */
+    public double getLossPercent() {
+        return lossPercent;
+    }
+
+    /**
+     * Gets bandwidth in kilobits per second.
+     *
+     * @return the rate, 0 if unlimited
+     */
+    public long getRateKbit() {
+        return rateKbit;
+    }
+
+    /**
+     * Gets corruption in percent.
+     *
+     * @return the corruption
+     */
+    public double getCorruptPercent() {
+        return corruptPercent;
+    }
+
+    /**
+     * Gets reordering in percent.
+     *
+     * @return the reordering
+     */
+    public double getReorderPercent() {
+        return reorderPercent;
+    }
+
+    /**
+     * Renders parameters of netem queueing discipline.
+     *
+     * @return netem parameters, empty when profile has no impairment
+     */
+    public String toNetemArgs() {
+        StringBuilder args = new StringBuilder();
+        if (delayMillis > 0 || jitterMillis > 0) {
+            args.append(" delay ").append(format(delayMillis)).append("ms");
+            if (jitterMillis > 0) {
+                args.append(' ').append(format(jitterMillis)).append("ms");
+            }
+        }
+        appendPercent(args, "loss", lossPercent);
+        if (rateKbit > 0) {
+            args.append(" rate ").append(rateKbit).append("kbit");
+        }
+        appendPercent(args, "corrupt", corruptPercent);
+        appendPercent(args, "reorder", reorderPercent);
+        return args.toString().trim();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LinkProfile)) {
+            return false;
+        }
+        return toNetemArgs().equals(((LinkProfile) o).toNetemArgs());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(toNetemArgs());
+    }
+
+    @Override
+    public String toString() {
+        String args = toNetemArgs();
+        return args.isEmpty() ? "unimpaired" : args;
+    }
+
+    private static void appendPercent(StringBuilder args, String name, double percent) {
+        if (percent > 0) {
+            args.append(' ').append(name).append(' ').append(format(percent)).append('%');
+        }
+    }
+
+    private static String format(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static double requireNonNegative(double value, String name) {
+        if (value < 0 || Double.isNaN(value)) {
+            throw new IllegalArgumentException(name + " must not be negative: " + value);
+        }
+        return value;
+    }
+
+    private static double requirePercent(double value, String name) {
+        if (requireNonNegative(value, name) > 100) {
+            throw new IllegalArgumentException(name + " must not exceed 100 %: " + value);
+        }
+        return value;
+    }
+}
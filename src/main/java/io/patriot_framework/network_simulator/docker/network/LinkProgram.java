@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Change of link impairments of container interfaces, rendered as tc batch. Impairment is replaced
+ * in place, so packets already queued on interface are not dropped and program can be applied repeatedly.
+ */
+public class LinkProgram {
+    private final List<String> lines = new ArrayList<>();
+
+    /**
+     * Sets impairment of interface.
+     *
+     * @param device  interface name
+     * @param profile impairment of interface
+     * @return this program
+     */
+    public LinkProgram set(String device, LinkProfile profile) {
+        String args = profile.toNetemArgs();
+        lines.add("qdisc replace dev " + device + " root netem" + (args.isEmpty() ? "" : " " + args));
+        return this;
+    }
+
+    /**
+     * Removes impairment of interface, interface falls back to default queueing discipline.
+     *
+     * @param device interface name
+     * @return this program
+     */
+    public LinkProgram clear(String device) {
+        lines.add("qdisc del dev " + device + " root");
+        return this;
+    }
+
+    /**
+     * Gets batch lines, line numbers reported by tc start with 1.
+     *
+     * @return the lines
+     */
+    public List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * Renders program as input of tc batch mode.
+     *
+     * @return the batch
+     */
+    public String toBatch() {
+        StringBuilder batch = new StringBuilder();
+        lines.forEach(line -> batch.append(line).append('\n'));
+        return batch.toString();
+    }
+}
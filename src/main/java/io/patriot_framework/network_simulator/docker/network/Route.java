@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.util.Objects;
+
+/**
+ * Static route of container. Destination is network in CIDR notation or default.
+ */
+public class Route {
+    /**
+     * Destination of default route.
+     */
+    public static final String DEFAULT = "default";
+    private final String destination;
+    private final String gateway;
+    private final String device;
+
+    /**
+     * Instantiates a new Route through gateway.
+     *
+     * @param destination destination network in CIDR notation or default
+     * @param gateway     IP address of next hop
+     */
+    public Route(String destination, String gateway) {
+        this(destination, gateway, null);
+    }
+
+    /**
+     * Instantiates a new Route through gateway and interface.
+     *
+     * @param destination destination network in CIDR notation or default
+     * @param gateway     IP address of next hop
+     * @param device      name of outgoing interface, may be null
+     */
+    public Route(String destination, String gateway, String device) {
+        this.destination = destination;
+        this.gateway = gateway;
+        this.device = device;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getGateway() {
+        return gateway;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Route)) {
+            return false;
+        }
+        Route route = (Route) o;
+        return destination.equals(route.destination) && Objects.equals(gateway, route.gateway)
+                && Objects.equals(device, route.device);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(destination, gateway, device);
+    }
+
+    @Override
+    public String toString() {
+        return destination + " via " + gateway + (device == null ? "" : " dev " + device);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Change of routing table of container, rendered as iproute2 batch. Added routes replace existing
+ * routes to the same destination, so program can be applied repeatedly.
+ */
+public class RouteProgram {
+    private final List<String> lines = new ArrayList<>();
+
+    /**
+     * Adds or replaces route.
+     *
+     * @param route the route
+     * @return this program
+     */
+    public RouteProgram add(Route route) {
+        lines.add(replaceLine(route));
+        return this;
+    }
+
+    /**
+     * Removes route to destination.
+     *
+     * @param destination destination network in CIDR notation or default
+     * @return this program
+     */
+    public RouteProgram remove(String destination) {
+        lines.add(removeLine(destination));
+        return this;
+    }
+
+    /**
+     * Sets default gateway.
+     *
+     * @param gateway IP address of default gateway
+     * @return this program
+     */
+    public RouteProgram replaceDefault(String gateway) {
+        return add(new Route(Route.DEFAULT, gateway));
+    }
+
+    /**
+     * Removes default route.
+     *
+     * @return this program
+     */
+    public RouteProgram removeDefault() {
+        return remove(Route.DEFAULT);
+    }
+
+    /**
+     * Renders line which adds or replaces route.
+     *
+     * @param route the route
+     * @return the line
+     */
+    static String replaceLine(Route route) {
+        return "route replace " + route;
+    }
+
+    /**
+     * Renders line which removes route to destination.
+     *
+     * @param destination destination network in CIDR notation or default
+     * @return the line
+     */
+    static String removeLine(String destination) {
+        return "route del " + destination;
+    }
+
+    /**
+     * Gets batch lines, line numbers reported by ip start with 1.
+     *
+     * @return the lines
+     */
+    public List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * Renders program as input of ip batch mode.
+     *
+     * @return the batch
+     */
+    public String toBatch() {
+        StringBuilder batch = new StringBuilder();
+        lines.forEach(line -> batch.append(line).append('\n'));
+        return batch.toString();
+    }
+}
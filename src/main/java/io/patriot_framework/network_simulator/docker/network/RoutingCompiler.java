@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes static routes of all devices from their attachments to networks. Networks and routers form
+ * bipartite graph, routes to each network are found by breadth first search started from that network,
+ * so every device reaches it over the lowest number of routers. Devices do not get routes to directly
+ * attached networks and to networks which are not reachable.
+ * Graph is indexed into arrays once, so single search does not allocate except for found routes.
+ * Devices which are not routers and are attached to single network share routes of that network.
+ */
+public class RoutingCompiler {
+    private final String[] networkCidrs;
+    private final String[] deviceNames;
+    private final boolean[] routers;
+    private final int[][] devicesOfNetwork;
+    private final int[][] networksOfDevice;
+    private final String[][] addressesOfDevice;
+
+    /**
+     * Instantiates a new Routing compiler.
+     *
+     * @param networkCidrs networks in CIDR notation by network name
+     * @param attachments  IP addresses of devices by device name and network name
+     * @param routers      names of devices which forward packets between networks
+     */
+    public RoutingCompiler(Map<String, String> networkCidrs, Map<String, Map<String, String>> attachments,
+                           Set<String> routers) {
+        Map<String, Integer> networkIds = new HashMap<>();
+        this.networkCidrs = new String[networkCidrs.size()];
+        networkCidrs.forEach((name, cidr) -> {
+            this.networkCidrs[networkIds.size()] = cidr;
+            networkIds.put(name, networkIds.size());
+        });
+        this.deviceNames = attachments.keySet().toArray(new String[0]);
+        this.routers = new boolean[deviceNames.length];
+        this.networksOfDevice = new int[deviceNames.length][];
+        this.addressesOfDevice = new String[deviceNames.length][];
+        List<List<Integer>> devices = new ArrayList<>();
+        networkIds.forEach((name, id) -> devices.add(new ArrayList<>()));
+        for (int device = 0; device < deviceNames.length; device++) {
+            this.routers[device] = routers.contains(deviceNames[device]);
+            indexDevice(device, attachments.get(deviceNames[device]), networkIds, devices);
+        }
+        this.devicesOfNetwork = new int[devices.size()][];
+        for (int network = 0; network < devices.size(); network++) {
+            devicesOfNetwork[network] = devices.get(network).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private void indexDevice(int device, Map<String, String> addresses, Map<String, Integer> networkIds,
+                             List<List<Integer>> devices) {
+        List<Integer> networks = new ArrayList<>();
+        List<String> ips = new ArrayList<>();
+        addresses.forEach((network, ip) -> {
+            Integer id = networkIds.get(network);
+            if (id != null && ip != null && !ip.isEmpty()) {
+                networks.add(id);
+                ips.add(ip);
+                devices.get(id).add(device);
+            }
+        });
+        networksOfDevice[device] = networks.stream().mapToInt(Integer::intValue).toArray();
+        addressesOfDevice[device] = ips.toArray(new String[0]);
+    }
+
+    /**
+     * Computes routes of all devices.
+     *
+     * @return routes by device name, device without routes has empty list
+     */
+    public Map<String, List<Route>> compile() {
+        List<List<Route>> networkRoutes = new ArrayList<>();
+        for (int network = 0; network < networkCidrs.length; network++) {
+            networkRoutes.add(new ArrayList<>());
+        }
+        List<List<Route>> routes = new ArrayList<>();
+        for (int device = 0; device < deviceNames.length; device++) {
+            routes.add(isSingleHomedHost(device) ? networkRoutes.get(networksOfDevice[device][0])
+                    : new ArrayList<>(networkCidrs.length));
+        }
+        int[] seenDevice = new int[deviceNames.length];
+        int[] seenNetwork = new int[networkCidrs.length];
+        String[] gateways = new String[networkCidrs.length];
+        int[] queue = new int[networkCidrs.length];
+        for (int destination = 0; destination < networkCidrs.length; destination++) {
+            routeTo(destination, new Search(seenDevice, seenNetwork, gateways, queue, destination + 1), routes,
+                    networkRoutes);
+        }
+        Map<String, List<Route>> result = new HashMap<>();
+        for (int device = 0; device < deviceNames.length; device++) {
+            result.put(deviceNames[device], routes.get(device));
+        }
+        return result;
+    }
+
+    /**
+     * Computes routing table change from previously applied routes to new ones.
+     *
+     * @param previous applied routes, may be empty
+     * @param desired  new routes
+     * @return program which is empty when nothing changed
+     */
+    public static RouteProgram delta(Collection<Route> previous, Collection<Route> desired) {
+        RouteProgram program = new RouteProgram();
+        if (previous.equals(desired)) {
+            return program;
+        }
+        Set<Route> applied = new HashSet<>(previous);
+        Set<String> desiredDestinations = new HashSet<>();
+        for (Route route : desired) {
+            desiredDestinations.add(route.getDestination());
+            if (!applied.contains(route)) {
+                program.add(route);
+            }
+        }
+        for (Route route : previous) {
+            if (!desiredDestinations.contains(route.getDestination())) {
+                program.remove(route.getDestination());
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Computes routes present in container after delta from previous to desired routes was applied.
+     * Destinations of failed lines keep their previous route, so next delta retries them. When whole batch
+     * failed, previous routes are kept.
+     *
+     * @param previous routes applied before delta
+     * @param desired  new routes
+     * @param result   result of applied delta
+     * @return routes present in container
+     */
+    public static List<Route> applied(Collection<Route> previous, Collection<Route> desired, IpBatchResult result) {
+        Set<String> failed = result.getFailures().keySet();
+        if (!delta(previous, desired).getLines().containsAll(failed)) {
+            return new ArrayList<>(previous);
+        }
+        Map<String, Route> state = new LinkedHashMap<>();
+        previous.forEach(route -> state.put(route.getDestination(), route));
+        Set<String> desiredDestinations = new HashSet<>();
+        for (Route route : desired) {
+            desiredDestinations.add(route.getDestination());
+            if (!failed.contains(RouteProgram.replaceLine(route))) {
+                state.put(route.getDestination(), route);
+            }
+        }
+        for (Route route : previous) {
+            if (!desiredDestinations.contains(route.getDestination())
+                    && !failed.contains(RouteProgram.removeLine(route.getDestination()))) {
+                state.remove(route.getDestination());
+            }
+        }
+        return new ArrayList<>(state.values());
+    }
+
+    /**
+     * Breadth first search from destination network. Gateway of network is address of router through
+     * which search entered it, device routes destination through gateway of first network it was found in.
+     * Devices of one network share single route instance.
+     */
+    private void routeTo(int destination, Search search, List<List<Route>> routes, List<List<Route>> networkRoutes) {
+        int head = 0;
+        int tail = 0;
+        search.queue[tail++] = destination;
+        search.seenNetwork[destination] = search.stamp;
+        search.gateways[destination] = null;
+        while (head < tail) {
+            int network = search.queue[head++];
+            Route route = search.gateways[network] == null ? null
+                    : new Route(networkCidrs[destination], search.gateways[network]);
+            if (route != null) {
+                networkRoutes.get(network).add(route);
+            }
+            for (int device : devicesOfNetwork[network]) {
+                if (search.seenDevice[device] == search.stamp) {
+                    continue;
+                }
+                search.seenDevice[device] = search.stamp;
+                if (route != null && !isSingleHomedHost(device)) {
+                    routes.get(device).add(route);
+                }
+                if (routers[device]) {
+                    tail = enqueueNetworks(device, search, tail);
+                }
+            }
+        }
+    }
+
+    private boolean isSingleHomedHost(int device) {
+        return !routers[device] && networksOfDevice[device].length == 1;
+    }
+
+    private int enqueueNetworks(int router, Search search, int tail) {
+        for (int i = 0; i < networksOfDevice[router].length; i++) {
+            int network = networksOfDevice[router][i];
+            if (search.seenNetwork[network] != search.stamp) {
+                search.seenNetwork[network] = search.stamp;
+                search.gateways[network] = addressesOfDevice[router][i];
+                search.queue[tail++] = network;
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Work arrays of single search, shared between searches. Entries are valid only when they carry stamp of
+     * current search, so arrays do not have to be cleared.
+     */
+    private static class Search {
+        private final int[] seenDevice;
+        private final int[] seenNetwork;
+        private final String[] gateways;
+        private final int[] queue;
+        private final int stamp;
+
+        Search(int[] seenDevice, int[] seenNetwork, String[] gateways, int[] queue, int stamp) {
+            this.seenDevice = seenDevice;
+            this.seenNetwork = seenNetwork;
+            this.gateways = gateways;
+            this.queue = queue;
+            this.stamp = stamp;
+        }
+    }
+}
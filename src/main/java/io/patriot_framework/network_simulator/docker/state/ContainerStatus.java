@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.state;
+
+/**
+ * Lifecycle state of container.
+ */
+public enum ContainerStatus {
+    /**
+     * Container is created but was never started.
+     */
+    CREATED,
+    /**
+     * Container is running.
+     */
+    RUNNING,
+    /**
+     * Container processes are frozen.
+     */
+    PAUSED,
+    /**
+     * Container process died or container was stopped.
+     */
+    EXITED,
+    /**
+     * Container does not exist.
+     */
+    REMOVED;
+
+    /**
+     * Converts docker state name (as reported by container list) to status.
+     *
+     * @param state docker state name
+     * @return the container status
+     */
+    public static ContainerStatus fromDockerState(String state) {
+        if (state == null) {
+            return EXITED;
+        }
+        switch (state) {
+            case "created":
+                return CREATED;
+            case "running":
+            case "restarting":
+                return RUNNING;
+            case "paused":
+                return PAUSED;
+            default:
+                return EXITED;
+        }
+    }
+}
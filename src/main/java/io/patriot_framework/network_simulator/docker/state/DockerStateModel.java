@@ -0,0 +1,536 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.state;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.ContainerNetwork;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.github.dockerjava.api.model.Network;
+import com.github.dockerjava.core.command.EventsResultCallback;
+import io.patriot_framework.network_simulator.docker.concurrent.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * In-memory model of containers and networks of docker daemon. Model is loaded once by list calls
+ * and then kept up to date from daemon events stream, so existence and state queries do not
+ * touch the daemon and waiting for state changes does not need polling. When events stream ends
+ * unexpectedly, model is reloaded and subscribed again with growing delay between attempts and keeps
+ * previous state until reload succeeds. Changes made by this process are applied at once, before their events
+ * arrive, so queries see them immediately; events of such changes are not applied again.
+ */
+public class DockerStateModel implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DockerStateModel.class);
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 500;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+    private static final ScheduledExecutorService RECONNECTS =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("state-model-reconnect"));
+
+    private final DockerClient dockerClient;
+    private final Map<String, Integer> expectedEvents = new HashMap<>();
+    private volatile Map<String, ContainerEntry> containers = new ConcurrentHashMap<>();
+    private volatile Map<String, String> containerIds = new ConcurrentHashMap<>();
+    private volatile Map<String, String> networks = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile Closeable subscription;
+    private volatile boolean closed;
+    private ScheduledFuture<?> reconnect;
+    private long reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+
+    /**
+     * Instantiates a new Docker state model. Model is empty until it is started.
+     *
+     * @param dockerClient the docker client
+     */
+    public DockerStateModel(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * Subscribes to daemon events and loads current state. Events received while state is loading
+     * are applied after it, so no change is lost. When loading fails, previous state is kept.
+     */
+    public synchronized void start() {
+        closed = false;
+        ModelEventsCallback callback = new ModelEventsCallback();
+        subscription = callback;
+        dockerClient.eventsCmd().exec(callback);
+        try {
+            load(dockerClient.listContainersCmd().withShowAll(true).exec(), dockerClient.listNetworksCmd().exec());
+        } catch (RuntimeException e) {
+            subscription = null;
+            closeQuietly(callback);
+            throw e;
+        }
+        notifyWaiters();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            if (reconnect != null) {
+                reconnect.cancel(false);
+            }
+        }
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Builds new maps and swaps them in, so concurrent queries never see partially loaded model.
+     */
+    private void load(List<Container> listedContainers, List<Network> listedNetworks) {
+        Map<String, ContainerEntry> loadedContainers = new ConcurrentHashMap<>();
+        Map<String, String> loadedIds = new ConcurrentHashMap<>();
+        Map<String, String> loadedNetworks = new ConcurrentHashMap<>();
+        for (Container container : listedContainers) {
+            ContainerEntry entry = new ContainerEntry(container.getNames()[0].substring(1),
+                    ContainerStatus.fromDockerState(container.getState()));
+            if (container.getNetworkSettings() != null) {
+                for (ContainerNetwork network : container.getNetworkSettings().getNetworks().values()) {
+                    entry.networks.add(network.getNetworkID());
+                }
+            }
+            loadedContainers.put(container.getId(), entry);
+            loadedIds.put(entry.name, container.getId());
+        }
+        for (Network network : listedNetworks) {
+            loadedNetworks.put(network.getId(), network.getName());
+        }
+        containers = loadedContainers;
+        containerIds = loadedIds;
+        networks = loadedNetworks;
+        expectedEvents.clear();
+        LOGGER.info("State model loaded with " + containers.size() + " containers and "
+                + networks.size() + " networks");
+    }
+
+    /**
+     * Schedules reload and subscription on reconnect thread, so events callback is not blocked and
+     * unavailable daemon is not retried in tight loop.
+     */
+    private synchronized void scheduleReconnect() {
+        if (closed || reconnect != null) {
+            return;
+        }
+        LOGGER.info("Resubscribing to docker events in " + reconnectDelayMillis + " ms");
+        reconnect = RECONNECTS.schedule(this::reconnect, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void reconnect() {
+        reconnect = null;
+        if (closed) {
+            return;
+        }
+        try {
+            start();
+            reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Reloading of docker state failed", e);
+            reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+            scheduleReconnect();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.debug("Closing of docker events stream failed", e);
+        }
+    }
+
+    /**
+     * Checks whether container exists.
+     *
+     * @param containerId container id
+     * @return true if container exists
+     */
+    public boolean containerExists(String containerId) {
+        return containers.containsKey(containerId);
+    }
+
+    /**
+     * Checks whether network exists.
+     *
+     * @param networkId network id
+     * @return true if network exists
+     */
+    public boolean networkExists(String networkId) {
+        return networks.containsKey(networkId);
+    }
+
+    /**
+     * Finds id of container by its name.
+     *
+     * @param name container name
+     * @return container id or null if container does not exist
+     */
+    public String findContainerId(String name) {
+        return containerIds.get(name);
+    }
+
+    /**
+     * Gets status of container.
+     *
+     * @param containerId container id
+     * @return the container status, REMOVED if container does not exist
+     */
+    public ContainerStatus getStatus(String containerId) {
+        ContainerEntry entry = containers.get(containerId);
+        return entry == null ? ContainerStatus.REMOVED : entry.status;
+    }
+
+    /**
+     * Gets ids of networks container is attached to.
+     *
+     * @param containerId container id
+     * @return set of network ids
+     */
+    public Set<String> getAttachedNetworks(String containerId) {
+        ContainerEntry entry = containers.get(containerId);
+        return entry == null ? Collections.emptySet() : Collections.unmodifiableSet(entry.networks);
+    }
+
+    /**
+     * Waits until container reaches status.
+     *
+     * @param containerId container id
+     * @param status      expected status
+     * @return future completed when container is in expected status
+     */
+    public CompletableFuture<Void> awaitStatus(String containerId, ContainerStatus status) {
+        return await(() -> getStatus(containerId) == status);
+    }
+
+    /**
+     * Waits until container is attached to network.
+     *
+     * @param containerId container id
+     * @param networkId   network id
+     * @return future completed when container is attached
+     */
+    public CompletableFuture<Void> awaitAttached(String containerId, String networkId) {
+        return await(() -> getAttachedNetworks(containerId).contains(networkId));
+    }
+
+    /**
+     * Announces change of container which this process is about to make, its event will not be applied
+     * again. Container being removed ignores all its events until its removal event arrives.
+     *
+     * @param action      action of expected event
+     * @param containerId container id
+     */
+    public synchronized void expectContainerEvent(String action, String containerId) {
+        expectedEvents.merge(containerKey(action, containerId), 1, Integer::sum);
+    }
+
+    /**
+     * Withdraws announced change of container which failed.
+     *
+     * @param action      action of expected event
+     * @param containerId container id
+     */
+    public synchronized void cancelContainerEvent(String action, String containerId) {
+        consumeExpected(containerKey(action, containerId));
+    }
+
+    /**
+     * Announces change of network which this process is about to make, its event will not be applied again.
+     *
+     * @param action      action of expected event
+     * @param networkId   network id
+     * @param containerId container id of connect and disconnect events, null otherwise
+     */
+    public synchronized void expectNetworkEvent(String action, String networkId, String containerId) {
+        expectedEvents.merge(networkKey(action, networkId, containerId), 1, Integer::sum);
+    }
+
+    /**
+     * Withdraws announced change of network which failed.
+     *
+     * @param action      action of expected event
+     * @param networkId   network id
+     * @param containerId container id of connect and disconnect events, null otherwise
+     */
+    public synchronized void cancelNetworkEvent(String action, String networkId, String containerId) {
+        consumeExpected(networkKey(action, networkId, containerId));
+    }
+
+    /**
+     * Applies container change to model. Used for daemon events and for changes made by this process.
+     * Creation of container which is already in model is ignored.
+     *
+     * @param action      event action
+     * @param containerId container id
+     * @param name        container name, may be null
+     */
+    public synchronized void applyContainerEvent(String action, String containerId, String name) {
+        switch (action) {
+            case "create":
+                if (!containers.containsKey(containerId)) {
+                    putContainer(containerId, name, ContainerStatus.CREATED);
+                }
+                break;
+            case "start":
+            case "restart":
+            case "unpause":
+                updateStatus(containerId, name, ContainerStatus.RUNNING);
+                break;
+            case "pause":
+                updateStatus(containerId, name, ContainerStatus.PAUSED);
+                break;
+            case "die":
+            case "stop":
+                updateStatus(containerId, name, ContainerStatus.EXITED);
+                break;
+            case "rename":
+                renameContainer(containerId, name);
+                break;
+            case "destroy":
+                removeContainer(containerId);
+                break;
+            default:
+                return;
+        }
+        notifyWaiters();
+    }
+
+    /**
+     * Applies network change to model. Used for daemon events and for changes made by this process.
+     *
+     * @param action      event action
+     * @param networkId   network id
+     * @param networkName network name
+     * @param containerId container id of connect and disconnect events
+     */
+    public synchronized void applyNetworkEvent(String action, String networkId, String networkName,
+                                               String containerId) {
+        ContainerEntry entry = containerId == null ? null : containers.get(containerId);
+        switch (action) {
+            case "create":
+                networks.put(networkId, networkName);
+                break;
+            case "destroy":
+                networks.remove(networkId);
+                break;
+            case "connect":
+                if (entry != null) {
+                    entry.networks.add(networkId);
+                }
+                break;
+            case "disconnect":
+                if (entry != null) {
+                    entry.networks.remove(networkId);
+                }
+                break;
+            default:
+                return;
+        }
+        notifyWaiters();
+    }
+
+    private ContainerEntry putContainer(String containerId, String name, ContainerStatus status) {
+        ContainerEntry entry = new ContainerEntry(name, status);
+        containers.put(containerId, entry);
+        if (name != null) {
+            containerIds.put(name, containerId);
+        }
+        return entry;
+    }
+
+    private void renameContainer(String containerId, String name) {
+        ContainerEntry entry = containers.get(containerId);
+        if (entry != null) {
+            containerIds.remove(entry.name);
+            putContainer(containerId, name, entry.status).networks.addAll(entry.networks);
+        }
+    }
+
+    private void removeContainer(String containerId) {
+        ContainerEntry entry = containers.remove(containerId);
+        if (entry != null) {
+            containerIds.remove(entry.name);
+        }
+    }
+
+    private void updateStatus(String containerId, String name, ContainerStatus status) {
+        ContainerEntry entry = containers.get(containerId);
+        if (entry == null) {
+            putContainer(containerId, name, status);
+        } else {
+            entry.status = status;
+        }
+    }
+
+    private CompletableFuture<Void> await(BooleanSupplier condition) {
+        Waiter waiter = new Waiter(condition);
+        waiters.add(waiter);
+        waiter.check();
+        if (waiter.future.isDone()) {
+            waiters.remove(waiter);
+        }
+        return waiter.future;
+    }
+
+    private void notifyWaiters() {
+        waiters.removeIf(Waiter::check);
+    }
+
+    private void onEvent(Event event) {
+        if (event.getActor() == null) {
+            return;
+        }
+        Map<String, String> attributes = event.getActor().getAttributes() == null
+                ? new HashMap<>() : event.getActor().getAttributes();
+        String action = event.getAction() == null ? event.getStatus() : event.getAction();
+        if (action == null) {
+            return;
+        }
+        if (event.getType() == EventType.CONTAINER) {
+            receiveContainerEvent(action, event.getActor().getId(), attributes.get("name"));
+        } else if (event.getType() == EventType.NETWORK) {
+            receiveNetworkEvent(action, event.getActor().getId(), attributes.get("name"),
+                    attributes.get("container"));
+        }
+    }
+
+    /**
+     * Applies container event of daemon unless it belongs to change already applied by this process.
+     */
+    synchronized void receiveContainerEvent(String action, String containerId, String name) {
+        boolean expected = consumeExpected(containerKey(action, containerId));
+        if (!expected && !expectedEvents.containsKey(containerKey("destroy", containerId))) {
+            applyContainerEvent(action, containerId, name);
+        }
+    }
+
+    /**
+     * Applies network event of daemon unless it belongs to change already applied by this process.
+     */
+    synchronized void receiveNetworkEvent(String action, String networkId, String networkName, String containerId) {
+        if (!consumeExpected(networkKey(action, networkId, containerId))) {
+            applyNetworkEvent(action, networkId, networkName, containerId);
+        }
+    }
+
+    private boolean consumeExpected(String key) {
+        Integer count = expectedEvents.get(key);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            expectedEvents.remove(key);
+        } else {
+            expectedEvents.put(key, count - 1);
+        }
+        return true;
+    }
+
+    private static String containerKey(String action, String containerId) {
+        return "container/" + action + "/" + containerId;
+    }
+
+    private static String networkKey(String action, String networkId, String containerId) {
+        return "network/" + action + "/" + networkId + "/" + containerId;
+    }
+
+    /**
+     * Callback receiving daemon events. When stream ends unexpectedly model is reloaded and subscribed again,
+     * streams which were already replaced are ignored.
+     */
+    private class ModelEventsCallback extends EventsResultCallback {
+        @Override
+        public void onNext(Event event) {
+            onEvent(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOGGER.warn("Docker events stream failed", throwable);
+            resubscribe();
+        }
+
+        @Override
+        public void onComplete() {
+            resubscribe();
+        }
+
+        private void resubscribe() {
+            if (subscription == this) {
+                scheduleReconnect();
+            }
+        }
+    }
+
+    /**
+     * Cached state of single container.
+     */
+    private static class ContainerEntry {
+        private final String name;
+        private final Set<String> networks = ConcurrentHashMap.newKeySet();
+        private volatile ContainerStatus status;
+
+        ContainerEntry(String name, ContainerStatus status) {
+            this.name = name;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Pending wait for condition over model.
+     */
+    private static class Waiter {
+        private final BooleanSupplier condition;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Waiter(BooleanSupplier condition) {
+            this.condition = condition;
+        }
+
+        boolean check() {
+            if (future.isDone()) {
+                return true;
+            }
+            if (condition.getAsBoolean()) {
+                future.complete(null);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker;
+
+import com.github.dockerjava.api.DockerClient;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Docker client for tests without daemon. Methods of client are answered by handlers registered by
+ * method name, calls of other methods fail.
+ */
+public class StubDockerClient implements InvocationHandler {
+    private final Map<String, Function<Object[], Object>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers handler of client method.
+     *
+     * @param method  name of client method
+     * @param handler receives arguments of call and returns its result
+     * @return this stub
+     */
+    public StubDockerClient on(String method, Function<Object[], Object> handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    /**
+     * Creates client answered by this stub.
+     *
+     * @return the docker client
+     */
+    public DockerClient client() {
+        return (DockerClient) Proxy.newProxyInstance(DockerClient.class.getClassLoader(),
+                new Class<?>[]{DockerClient.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "StubDockerClient";
+            }
+        }
+        Function<Object[], Object> handler = handlers.get(method.getName());
+        if (handler == null) {
+            throw new UnsupportedOperationException("Method " + method.getName() + " is not stubbed");
+        }
+        return handler.apply(args == null ? new Object[0] : args);
+    }
+}
@@ -17,8 +17,7 @@
 package io.patriot_framework.network_simulator.docker;
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
+import io.patriot_framework.network_simulator.docker.client.DockerClientRegistry;
 import io.patriot_framework.network_simulator.docker.manager.DockerManager;
 
 /**
@@ -28,8 +27,7 @@ public class TestClass {
     /**
      * The Docker client.
      */
-    protected DockerClient dockerClient = DockerClientBuilder.
-            getInstance(DefaultDockerClientConfig.createDefaultConfigBuilder().build()).build();
+    protected DockerClient dockerClient = DockerClientRegistry.sharedClient();
 
     /**
      * The Docker manager.
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The type Single flight cache test.
+ */
+class SingleFlightCacheTest {
+
+    /**
+     * Concurrent requests for the same key share one load.
+     */
+    @Test
+    void concurrentRequestsAreCoalesced() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(key -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key + "-value";
+        }, 60000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> cache.get("router"), executor));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (CompletableFuture<String> result : results) {
+            assertEquals("router-value", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+    }
+
+    /**
+     * Invalidated and expired values are loaded again.
+     */
+    @Test
+    void invalidationAndExpiration() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(key -> loads.incrementAndGet(), 50);
+        assertEquals(1, (int) cache.get("a"));
+        assertEquals(1, (int) cache.get("a"));
+        cache.invalidate("a");
+        assertEquals(2, (int) cache.get("a"));
+        Thread.sleep(80);
+        assertEquals(3, (int) cache.get("a"));
+    }
+
+    /**
+     * Failed loads are propagated and not cached.
+     */
+    @Test
+    void failuresAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("daemon unavailable");
+            }
+            return loads.get();
+        }, 60000);
+        assertThrows(IllegalStateException.class, () -> cache.get("a"));
+        assertEquals(2, (int) cache.get("a"));
+    }
+
+    /**
+     * Error thrown by loader is propagated and next caller loads again instead of waiting.
+     */
+    @Test
+    void errorsAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new StackOverflowError();
+            }
+            return loads.get();
+        }, 60000);
+        assertThrows(StackOverflowError.class, () -> cache.get("a"));
+        assertEquals(2, (int) cache.get("a"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Task graph test.
+ */
+class TaskGraphTest {
+
+    /**
+     * Dependent tasks are executed after their dependencies.
+     */
+    @Test
+    void executeRespectsDependencies() {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        TaskGraph graph = new TaskGraph()
+                .addTask("network", () -> executed.add("network"))
+                .addTask("container", () -> executed.add("container"))
+                .addTask("connect", () -> executed.add("connect"), "network", "container")
+                .addTask("start", () -> executed.add("start"), "connect");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        graph.execute(executor);
+        executor.shutdown();
+
+        assertEquals(4, executed.size());
+        assertTrue(executed.indexOf("connect") > executed.indexOf("network"));
+        assertTrue(executed.indexOf("connect") > executed.indexOf("container"));
+        assertEquals("start", executed.get(3));
+    }
+
+    /**
+     * Completed tasks are rolled back in reverse order and dependants of failed task are skipped.
+     */
+    @Test
+    void failureRollsBackCompletedTasks() {
+        List<String> rolledBack = Collections.synchronizedList(new ArrayList<>());
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        TaskGraph graph = new TaskGraph()
+                .addTask("network", () -> executed.add("network"), () -> rolledBack.add("network"))
+                .addTask("container", () -> executed.add("container"), () -> rolledBack.add("container"), "network")
+                .addTask("connect", () -> {
+                    throw new IllegalStateException("connect failed");
+                }, "container")
+                .addTask("start", () -> executed.add("start"), "connect");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        TaskGraphException e = assertThrows(TaskGraphException.class, () -> graph.execute(executor));
+        executor.shutdown();
+
+        assertEquals("connect", e.getTaskId());
+        assertEquals(2, executed.size());
+        assertEquals("container", rolledBack.get(0));
+        assertEquals("network", rolledBack.get(1));
+    }
+
+    /**
+     * Error thrown by task is recorded as failure and completed tasks are rolled back.
+     */
+    @Test
+    void errorRollsBackCompletedTasks() {
+        List<String> rolledBack = Collections.synchronizedList(new ArrayList<>());
+        TaskGraph graph = new TaskGraph()
+                .addTask("network", () -> { }, () -> rolledBack.add("network"))
+                .addTask("container", () -> {
+                    throw new AssertionError("container failed");
+                }, "network");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TaskGraphException e = assertThrows(TaskGraphException.class, () -> graph.execute(executor));
+        executor.shutdown();
+
+        assertEquals("container", e.getTaskId());
+        assertTrue(e.getCause() instanceof AssertionError);
+        assertEquals(Collections.singletonList("network"), rolledBack);
+    }
+
+    /**
+     * Task rejected by executor fails execution instead of being silently skipped.
+     */
+    @Test
+    void rejectedTaskFailsExecution() {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        TaskGraph graph = new TaskGraph()
+                .addTask("network", () -> executed.add("network"))
+                .addTask("start", () -> executed.add("start"), "network");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        TaskGraphException e = assertThrows(TaskGraphException.class, () -> graph.execute(executor));
+
+        assertEquals("network", e.getTaskId());
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertTrue(executed.isEmpty());
+    }
+
+    /**
+     * Graph with cycle is rejected.
+     */
+    @Test
+    void cycleIsRejected() {
+        TaskGraph graph = new TaskGraph()
+                .addTask("a", () -> { }, "b")
+                .addTask("b", () -> { }, "a");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        assertThrows(IllegalArgumentException.class, () -> graph.execute(executor));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network.simulator.api.model.network.TopologyNetwork;
+import com.github.dockerjava.api.command.CreateNetworkResponse;
+import com.github.dockerjava.core.command.CreateNetworkCmdImpl;
+import com.github.dockerjava.core.command.ListNetworksCmdImpl;
+import io.patriot_framework.network_simulator.docker.StubDockerClient;
+import io.patriot_framework.network_simulator.docker.ipv4.Ipv4Cidr;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import io.patriot_framework.network_simulator.docker.network.IpBatchResult;
+import io.patriot_framework.network_simulator.docker.network.LinkProfile;
+import io.patriot_framework.network_simulator.docker.network.LinkProgram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The type Docker controller test.
+ */
+class DockerControllerTest {
+
+    /**
+     * Failed link keeps its previous impairment, impairment of link which succeeded is cleared later.
+     */
+    @Test
+    void failedLinkDoesNotForgetOtherLinks() {
+        Network lan = network("lan", "192.168.10.0");
+        Network wan = network("wan", "10.0.0.0");
+        Map<String, String> applied = new HashMap<>();
+        Map<Network, LinkProfile> profiles = new LinkedHashMap<>();
+        profiles.put(lan, new LinkProfile().withDelay(50));
+        profiles.put(wan, new LinkProfile().withLoss(5));
+        Map<String, String> lines = new HashMap<>();
+        LinkProgram program = DockerController.linkProgram(profiles, applied, lines, this::interfaceOf);
+
+        DockerController.recordLinks(applied, profiles, lines, new IpBatchResult(
+                Collections.singletonMap(program.getLines().get(0), "RTNETLINK answers: No such device")));
+
+        assertFalse(applied.containsKey("lan"));
+        assertEquals("loss 5%", applied.get("wan"));
+        LinkProgram clear = DockerController.linkProgram(Collections.singletonMap(wan, null), applied,
+                new HashMap<>(), this::interfaceOf);
+        assertEquals("qdisc del dev eth1 root\n", clear.toBatch());
+    }
+
+    /**
+     * Subnet assigned to network which daemon failed to create is released and network keeps no address.
+     */
+    @Test
+    void failedNetworkReleasesSubnet() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        StubDockerClient stub = new StubDockerClient()
+                .on("listNetworksCmd", args -> new ListNetworksCmdImpl(command -> new ArrayList<>()))
+                .on("createNetworkCmd", args -> new CreateNetworkCmdImpl(command -> {
+                    if (fail.getAndSet(false)) {
+                        throw new IllegalStateException("pool overlaps");
+                    }
+                    CreateNetworkResponse response = new CreateNetworkResponse();
+                    response.setId("n1");
+                    return response;
+                }));
+        DockerController controller = new DockerController(new DockerManager(stub.client()));
+        controller.setSubnetAllocation(Ipv4Cidr.parse("10.128.0.0/16"), 24);
+        TopologyNetwork network = new TopologyNetwork();
+        network.setName("lan");
+        network.setCreator("Docker");
+
+        assertThrows(IllegalStateException.class, () -> controller.createNetwork(network));
+
+        assertNull(network.getIPAddress());
+        assertEquals(0, network.getMask());
+        controller.createNetwork(network);
+        assertEquals("10.128.0.0", network.getIPAddress());
+        assertEquals(24, network.getMask());
+    }
+
+    private String interfaceOf(String network) {
+        return "lan".equals(network) ? "eth0" : "eth1";
+    }
+
+    private static Network network(String name, String ipAddress) {
+        TopologyNetwork network = new TopologyNetwork();
+        network.setName(name);
+        network.setCreator("Docker");
+        network.setIPAddress(ipAddress);
+        network.setMask(24);
+        return network;
+    }
+}
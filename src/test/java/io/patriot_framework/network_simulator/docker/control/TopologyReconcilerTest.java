@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.control;
+
+import io.patriot_framework.network.simulator.api.model.devices.Device;
+import io.patriot_framework.network.simulator.api.model.network.Network;
+import io.patriot_framework.network.simulator.api.model.network.TopologyNetwork;
+import io.patriot_framework.network_simulator.docker.control.ActualTopology.ActualDevice;
+import io.patriot_framework.network_simulator.docker.control.ActualTopology.ActualNetwork;
+import io.patriot_framework.network_simulator.docker.control.ReconcilePlan.Action;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Topology reconciler test.
+ */
+class TopologyReconcilerTest {
+
+    /**
+     * Empty daemon gets every network and device created.
+     */
+    @Test
+    void createsMissingTopology() {
+        Network network = network("lan", "192.168.10.0", 24);
+        TopologySpec spec = new TopologySpec().addNetwork(network)
+                .addDevice(new DeviceDeployment(device("router"), "router").withNetworks(Arrays.asList(network)));
+
+        ReconcilePlan plan = TopologyReconciler.diff(spec, new ActualTopology());
+
+        assertTrue(plan.contains(Action.CREATE_NETWORK, null, "lan"));
+        assertTrue(plan.contains(Action.CREATE_DEVICE, "router", null));
+        assertTrue(plan.contains(Action.START, "router", null));
+        assertEquals(3, plan.getOperations().size());
+    }
+
+    /**
+     * Topology which already matches produces empty plan.
+     */
+    @Test
+    void matchingTopologyIsNoop() {
+        Network network = network("lan", "192.168.10.0", 24);
+        TopologySpec spec = new TopologySpec().addNetwork(network)
+                .addDevice(new DeviceDeployment(device("router"), "router").withNetworks(Arrays.asList(network))
+                        .withEnvVars(Collections.singletonList("MODE=test")));
+        ActualTopology actual = new ActualTopology();
+        actual.addNetwork(new ActualNetwork("lan", "n1", "192.168.10.0/24", true));
+        actual.addDevice(new ActualDevice("router", "c1", "router:latest", true, true,
+                new HashSet<>(Collections.singletonList("lan")), Arrays.asList("PATH=/bin", "MODE=test")));
+
+        assertTrue(TopologyReconciler.diff(spec, actual).isEmpty());
+    }
+
+    /**
+     * Only changed parts of topology are touched, leftovers of previous run are removed.
+     */
+    @Test
+    void changedTopologyProducesMinimalPlan() {
+        Network lan = network("lan", "192.168.10.0", 24);
+        Network wan = network("wan", "10.0.0.0", 24);
+        TopologySpec spec = new TopologySpec().addNetwork(lan).addNetwork(wan)
+                .addDevice(new DeviceDeployment(device("router"), "router").withNetworks(Arrays.asList(lan, wan)));
+        ActualTopology actual = new ActualTopology();
+        actual.addNetwork(new ActualNetwork("lan", "n1", "192.168.10.0/24", true));
+        actual.addNetwork(new ActualNetwork("old", "n2", "172.30.0.0/24", true));
+        actual.addNetwork(new ActualNetwork("bridge", "n3", "172.17.0.0/16", false));
+        actual.addDevice(new ActualDevice("router", "c1", "router", false, true,
+                new HashSet<>(Arrays.asList("lan", "old")), Collections.emptyList()));
+        actual.addDevice(new ActualDevice("client", "c2", "client", true, true,
+                new HashSet<>(Collections.singletonList("old")), null));
+        actual.addDevice(new ActualDevice("pool_client_1", "c3", "client", true, true,
+                new HashSet<>(Collections.singletonList("bridge")), null));
+
+        ReconcilePlan plan = TopologyReconciler.diff(spec, actual);
+
+        assertTrue(plan.contains(Action.CREATE_NETWORK, null, "wan"));
+        assertTrue(plan.contains(Action.DESTROY_NETWORK, null, "old"));
+        assertTrue(plan.contains(Action.CONNECT, "router", "wan"));
+        assertTrue(plan.contains(Action.DISCONNECT, "router", "old"));
+        assertTrue(plan.contains(Action.START, "router", null));
+        assertTrue(plan.contains(Action.DESTROY_DEVICE, "client", null));
+        assertEquals(6, plan.getOperations().size());
+    }
+
+    /**
+     * Device frozen by pause is not started again.
+     */
+    @Test
+    void pausedDeviceIsNotStarted() {
+        TopologySpec spec = new TopologySpec().addDevice(new DeviceDeployment(device("router"), "router"));
+        ActualTopology actual = new ActualTopology();
+        actual.addDevice(new ActualDevice("router", "c1", "router", TopologyReconciler.isRunning("paused"), true,
+                new HashSet<>(Collections.singletonList("bridge")), Collections.emptyList()));
+
+        assertTrue(TopologyReconciler.diff(spec, actual).isEmpty());
+        assertFalse(TopologyReconciler.isRunning("exited"));
+    }
+
+    /**
+     * Device with changed image is recreated.
+     */
+    @Test
+    void changedImageRecreatesDevice() {
+        TopologySpec spec = new TopologySpec().addDevice(new DeviceDeployment(device("router"), "router:2"));
+        ActualTopology actual = new ActualTopology();
+        actual.addDevice(new ActualDevice("router", "c1", "router:1", true, true,
+                new HashSet<>(Collections.singletonList("bridge")), Collections.emptyList()));
+
+        ReconcilePlan plan = TopologyReconciler.diff(spec, actual);
+
+        assertEquals(1, plan.count(Action.DESTROY_DEVICE));
+        assertEquals(1, plan.count(Action.CREATE_DEVICE));
+        assertEquals(1, plan.count(Action.START));
+    }
+
+    /**
+     * Containers not created by simulator are never replaced.
+     */
+    @Test
+    void foreignContainerConflicts() {
+        TopologySpec spec = new TopologySpec().addDevice(new DeviceDeployment(device("router"), "router"));
+        ActualTopology actual = new ActualTopology();
+        actual.addDevice(new ActualDevice("router", "c1", "nginx", true, false,
+                new HashSet<>(), Collections.emptyList()));
+
+        assertThrows(IllegalStateException.class, () -> TopologyReconciler.diff(spec, actual));
+    }
+
+    /**
+     * Foreign container attached to removed network is not disconnected, plan fails instead.
+     */
+    @Test
+    void foreignContainerOnRemovedNetworkConflicts() {
+        ActualTopology actual = new ActualTopology();
+        actual.addNetwork(new ActualNetwork("old", "n1", "172.30.0.0/24", true));
+        actual.addDevice(new ActualDevice("nginx", "c1", "nginx", true, false,
+                new HashSet<>(Collections.singletonList("old")), null));
+
+        assertThrows(IllegalStateException.class, () -> TopologyReconciler.diff(new TopologySpec(), actual));
+    }
+
+    private static Network network(String name, String ipAddress, int mask) {
+        Network network = new TopologyNetwork();
+        network.setName(name);
+        network.setIPAddress(ipAddress);
+        network.setMask(mask);
+        return network;
+    }
+
+    private static Device device(String name) {
+        return new TestDevice(name);
+    }
+
+    /**
+     * Device without behaviour, reconciler uses only its name.
+     */
+    private static class TestDevice implements Device {
+        private final String name;
+        private final Map<String, String> addresses = new HashMap<>();
+        private String ip;
+        private Integer managementPort;
+
+        TestDevice(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void setIPAddress(String ipAddress) {
+            ip = ipAddress;
+        }
+
+        @Override
+        public String getIPAddress() {
+            return ip;
+        }
+
+        @Override
+        public List<Network> getConnectedNetworks() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getAddressForNetwork(String network) {
+            return addresses.get(network);
+        }
+
+        @Override
+        public boolean addAddressForNetwork(String ipAddress, String network) {
+            return addresses.putIfAbsent(network, ipAddress) == null;
+        }
+
+        @Override
+        public Integer getManagementPort() {
+            return managementPort;
+        }
+
+        @Override
+        public void setManagementPort(Integer port) {
+            managementPort = port;
+        }
+
+        @Override
+        public String getCreator() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.dockerfile;
+
+import io.patriot_framework.network_simulator.docker.image.docker.builder.DockerFileBuilder;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.DockerFileOptimizer;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.OptimizationReport;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Docker file optimizer test.
+ */
+class DockerFileOptimizerTest {
+    private static final String LINE = " && \\" + System.lineSeparator();
+
+    /**
+     * Package installs and ENV are moved ahead of artifact, adjacent RUNs are merged and apt cache is removed.
+     */
+    @Test
+    void mergesRunsAndMovesStableInstructions() {
+        DockerFileBuilder builder = new DockerFileBuilder().from("ubuntu:18.04")
+                .run("apt-get -y update")
+                .add(Paths.get("/tmp/app.jar"), Paths.get("/opt/app.jar"))
+                .run("DEBIAN_FRONTEND=noninteractive apt-get install -y iproute2")
+                .env("JAVA_HOME", "/usr/lib/jvm")
+                .run("chmod +x /opt/app.jar")
+                .cmd(Arrays.asList("java", "-jar", "/opt/app.jar"));
+
+        OptimizationReport report = builder.optimize();
+
+        assertEquals(render("FROM ubuntu:18.04",
+                "RUN apt-get -y update" + LINE + "DEBIAN_FRONTEND=noninteractive apt-get install -y iproute2"
+                        + LINE + "rm -rf /var/lib/apt/lists/*",
+                "ENV JAVA_HOME /usr/lib/jvm",
+                "ADD /tmp/app.jar /opt/app.jar",
+                "RUN chmod +x /opt/app.jar",
+                "CMD [\"java\", \"-jar\", \"/opt/app.jar\"]"), builder.render());
+        assertEquals(4, report.getLayersBefore());
+        assertEquals(3, report.getLayersAfter());
+        assertEquals(1, report.getLayersSaved());
+        assertEquals(2, report.getMovedInstructions());
+        assertEquals(1, report.getMergedRuns());
+        assertEquals(1, report.getCleanedRuns());
+    }
+
+    /**
+     * RUN changing shell state is not merged and RUN using added file stays after ADD.
+     */
+    @Test
+    void keepsUnsafeInstructions() {
+        DockerFileBuilder builder = new DockerFileBuilder().from("ubuntu:18.04")
+                .add(Paths.get("/tmp/tool.deb"), Paths.get("/tmp/tool.deb"))
+                .run("apt-get install -y /tmp/tool.deb")
+                .run("cd /opt")
+                .run("make");
+
+        OptimizationReport report = new DockerFileOptimizer().withCleanup(false).optimize(builder.getFileContent());
+
+        assertEquals(render("FROM ubuntu:18.04",
+                "ADD /tmp/tool.deb /tmp/tool.deb",
+                "RUN apt-get install -y /tmp/tool.deb" + LINE + "cd /opt",
+                "RUN make"), builder.render());
+        assertEquals(0, report.getMovedInstructions());
+        assertEquals(1, report.getMergedRuns());
+        assertEquals(0, report.getCleanedRuns());
+    }
+
+    /**
+     * Package install stays after ADD of package manager configuration.
+     */
+    @Test
+    void keepsInstallAfterPackageManagerConfig() {
+        DockerFileBuilder builder = new DockerFileBuilder().from("ubuntu:18.04")
+                .add(Paths.get("/tmp/mirror.list"), Paths.get("/etc/apt/sources.list"))
+                .run("apt-get update && apt-get install -y iproute2");
+
+        OptimizationReport report = new DockerFileOptimizer().withCleanup(false).optimize(builder.getFileContent());
+
+        assertEquals(render("FROM ubuntu:18.04",
+                "ADD /tmp/mirror.list /etc/apt/sources.list",
+                "RUN apt-get update && apt-get install -y iproute2"), builder.render());
+        assertEquals(0, report.getMovedInstructions());
+    }
+
+    private static String render(String... lines) {
+        StringBuilder dockerfile = new StringBuilder();
+        for (String line : lines) {
+            dockerfile.append(line).append(System.lineSeparator());
+        }
+        return dockerfile.toString();
+    }
+}
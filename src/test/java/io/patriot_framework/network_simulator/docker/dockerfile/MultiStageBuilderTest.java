@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.dockerfile;
+
+import io.patriot_framework.network_simulator.docker.image.docker.builder.DockerFileBuilder;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.OptimizationReport;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.TarBuildContext;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Multi stage builder test.
+ */
+class MultiStageBuilderTest {
+    private static final String LINE = " && \\" + System.lineSeparator();
+
+    /**
+     * Stages are rendered before final stage, which copies only built artifact.
+     */
+    @Test
+    void rendersStagesBeforeFinalStage() {
+        DockerFileBuilder builder = new DockerFileBuilder().from("alpine:3.9")
+                .copyFrom("build", Paths.get("/go/bin/iptables-api"), Paths.get("/usr/local/bin/iptables-api"))
+                .entrypoint(Arrays.asList("/usr/local/bin/iptables-api"));
+        builder.stage("golang:1.12", "build")
+                .workdir("/src")
+                .run("go build -o /go/bin/iptables-api");
+
+        assertEquals(render("FROM golang:1.12 AS build",
+                "WORKDIR /src",
+                "RUN go build -o /go/bin/iptables-api",
+                "FROM alpine:3.9",
+                "COPY --from=build /go/bin/iptables-api /usr/local/bin/iptables-api",
+                "ENTRYPOINT [\"/usr/local/bin/iptables-api\"]"), builder.render());
+        assertEquals(1, builder.getStages().size());
+    }
+
+    /**
+     * Local sources of all stages are added to context, files copied from stage are not.
+     */
+    @Test
+    void addsLocalSourcesOfAllStages() {
+        DockerFileBuilder builder = new DockerFileBuilder().from("alpine:3.9")
+                .copyFrom("build", Paths.get("/out/app"), Paths.get("/app"));
+        builder.stage("golang:1.12", "build")
+                .copy(Paths.get("/tmp/src/main.go"), Paths.get("/src/main.go"));
+
+        TarBuildContext context = new TarBuildContext(builder);
+
+        assertEquals("FROM golang:1.12 AS build\nCOPY context/0/main.go /src/main.go\nFROM alpine:3.9\n"
+                + "COPY --from=build /out/app /app\n", new String(context.getDockerfile(), StandardCharsets.UTF_8));
+        assertEquals(Paths.get("/tmp/src/main.go"), context.getSources().get("context/0/main.go"));
+        assertEquals(1, context.getSources().size());
+    }
+
+    /**
+     * Every stage is optimized separately and reports are summed.
+     */
+    @Test
+    void optimizesEveryStage() {
+        DockerFileBuilder builder = new DockerFileBuilder().from("debian:9")
+                .run("apt-get update")
+                .run("apt-get install -y iptables");
+        builder.stage("golang:1.12", "build")
+                .run("go get github.com/gorilla/mux")
+                .run("go build -o /out/app");
+
+        OptimizationReport report = builder.optimize();
+
+        assertEquals(render("FROM golang:1.12 AS build",
+                "RUN go get github.com/gorilla/mux" + LINE + "go build -o /out/app",
+                "FROM debian:9",
+                "RUN apt-get update" + LINE + "apt-get install -y iptables" + LINE + "rm -rf /var/lib/apt/lists/*"),
+                builder.render());
+        assertEquals(2, report.getMergedRuns());
+        assertEquals(2, report.getLayersSaved());
+    }
+
+    private static String render(String... lines) {
+        StringBuilder dockerfile = new StringBuilder();
+        for (String line : lines) {
+            dockerfile.append(line).append(System.lineSeparator());
+        }
+        return dockerfile.toString();
+    }
+}
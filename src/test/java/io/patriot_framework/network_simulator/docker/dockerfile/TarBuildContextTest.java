@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.dockerfile;
+
+import io.patriot_framework.network_simulator.docker.image.docker.builder.DockerFileBuilder;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.TarBuildContext;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Tar build context test.
+ */
+class TarBuildContextTest {
+
+    /**
+     * Added sources are renamed into context and streamed together with Dockerfile.
+     *
+     * @throws IOException when sources could not be written
+     */
+    @Test
+    void streamsDockerfileWithSources() throws IOException {
+        Path dir = Files.createTempDirectory("sources");
+        Path artifact = Files.write(dir.resolve("app.jar"), new byte[]{1, 2, 3});
+        Files.createDirectories(dir.resolve("conf/sub"));
+        Files.write(dir.resolve("conf/sub/app.properties"), "a=b".getBytes(StandardCharsets.UTF_8));
+        DockerFileBuilder builder = new DockerFileBuilder().from("alpine").add(artifact, Paths.get("/app.jar"))
+                .add(dir.resolve("conf"), Paths.get("/etc/app"));
+        TarBuildContext context = new TarBuildContext(builder);
+
+        Map<String, String> entries;
+        try (InputStream in = context.open()) {
+            entries = readTar(in);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+
+        assertEquals("FROM alpine\nADD context/0/app.jar /app.jar\nADD context/1/conf /etc/app\n",
+                entries.get(TarBuildContext.DOCKERFILE));
+        assertEquals(3, entries.size());
+        assertEquals("a=b", entries.get("context/1/conf/sub/app.properties"));
+        assertEquals(3, entries.get("context/0/app.jar").length());
+    }
+
+    /**
+     * Streamed tar is the same as tar written directly.
+     *
+     * @throws IOException when tar could not be written
+     */
+    @Test
+    void streamEqualsWrittenTar() throws IOException {
+        TarBuildContext context = new TarBuildContext("FROM alpine\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        context.writeTo(written);
+
+        byte[] streamed;
+        try (InputStream in = context.open()) {
+            streamed = IOUtils.toByteArray(in);
+        }
+
+        assertArrayEquals(written.toByteArray(), streamed);
+        assertEquals("FROM alpine\n", readTar(new ByteArrayInputStream(streamed)).get(TarBuildContext.DOCKERFILE));
+    }
+
+    private static Map<String, String> readTar(InputStream in) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        TarArchiveInputStream tar = new TarArchiveInputStream(in);
+        TarArchiveEntry entry = tar.getNextTarEntry();
+        while (entry != null) {
+            entries.put(entry.getName(), new String(IOUtils.toByteArray(tar), StandardCharsets.ISO_8859_1));
+            entry = tar.getNextTarEntry();
+        }
+        return entries;
+    }
+}
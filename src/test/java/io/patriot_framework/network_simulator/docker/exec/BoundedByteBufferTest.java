@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Bounded byte buffer test.
+ */
+class BoundedByteBufferTest {
+
+    /**
+     * Output fitting into capacity is kept whole.
+     */
+    @Test
+    void keepsOutputUnderCapacity() {
+        BoundedByteBuffer buffer = new BoundedByteBuffer(16);
+        buffer.write("eth0\n".getBytes(StandardCharsets.UTF_8));
+        buffer.write("eth1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("eth0\neth1\n", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        assertFalse(buffer.isTruncated());
+    }
+
+    /**
+     * Output over capacity is cut and marked as truncated.
+     */
+    @Test
+    void dropsOutputOverCapacity() {
+        BoundedByteBuffer buffer = new BoundedByteBuffer(6);
+        buffer.write("eth0\n".getBytes(StandardCharsets.UTF_8));
+        buffer.write("eth1\n".getBytes(StandardCharsets.UTF_8));
+        buffer.write("eth2\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("eth0\ne", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(buffer.isTruncated());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The type Bulk exec result test.
+ */
+class BulkExecResultTest {
+
+    /**
+     * Percentiles use nearest rank.
+     */
+    @Test
+    void percentiles() {
+        long[] durations = new long[100];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = i + 1;
+        }
+        assertEquals(50, BulkExecResult.percentile(durations, 50));
+        assertEquals(99, BulkExecResult.percentile(durations, 99));
+        assertEquals(7, BulkExecResult.percentile(new long[]{7}, 99));
+        assertEquals(0, BulkExecResult.percentile(new long[0], 50));
+    }
+
+    /**
+     * Non-zero exit codes and errors are counted as failures.
+     */
+    @Test
+    void countsFailures() {
+        Map<String, ExecResult> results = new HashMap<>();
+        results.put("router", result(0, 10));
+        results.put("client", result(1, 30));
+        Map<String, Throwable> errors = Collections.singletonMap("server", new IllegalStateException());
+
+        BulkExecResult bulk = new BulkExecResult(results, errors, Collections.singleton("printer"));
+
+        assertEquals(1, bulk.getSucceeded());
+        assertEquals(2, bulk.getFailed());
+        assertEquals(10, bulk.getP50DurationMillis());
+        assertEquals(30, bulk.getP99DurationMillis());
+        assertFalse(bulk.isSuccess());
+    }
+
+    private static ExecResult result(int exitCode, long duration) {
+        return new ExecResult(exitCode, new byte[0], new byte[0], false, duration);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.container.DockerContainer;
+import io.patriot_framework.network_simulator.docker.manager.DockerManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Bulk exec test.
+ */
+class BulkExecTest {
+
+    /**
+     * Command which was already running when other command failed is reported with its result, not as skipped.
+     */
+    @Test
+    void failFastReportsRunningCommands() {
+        CountDownLatch started = new CountDownLatch(1);
+        DockerManager dockerManager = new DockerManager(null) {
+            @Override
+            public ExecResult runCommand(Container container, String command, ExecOptions options) {
+                try {
+                    if (container.getName().equals("failing")) {
+                        started.await();
+                        return new ExecResult(1, new byte[0], new byte[0], false, 0);
+                    }
+                    started.countDown();
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new ExecResult(0, new byte[0], new byte[0], false, 200);
+            }
+        };
+        Map<String, Container> targets = new LinkedHashMap<>();
+        targets.put("failing", new DockerContainer("failing", "1", dockerManager));
+        targets.put("running", new DockerContainer("running", "2", dockerManager));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        BulkExecResult result = new BulkExec(dockerManager, executor)
+                .run(targets, "true", new ExecOptions(), BulkExecMode.FAIL_FAST);
+        executor.shutdown();
+
+        assertTrue(result.getSkipped().isEmpty());
+        assertEquals(1, result.getFailed());
+        assertTrue(result.getResults().get("running").isSuccess());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.exec;
+
+import com.github.dockerjava.api.model.StreamType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Exec session test.
+ */
+class ExecSessionTest {
+
+    /**
+     * Output of pipelined commands is split by markers, also when marker is split between frames.
+     */
+    @Test
+    void splitsPipelinedOutput() {
+        ExecSession session = new ExecSession(null, "c1");
+        String marker = session.getMarker();
+        CompletableFuture<ExecResult> first = session.submit("ip route");
+        CompletableFuture<ExecResult> second = session.submit("false");
+
+        frame(session, StreamType.STDOUT, "default via 10.0.0.1\n\n" + marker.substring(0, 5));
+        assertFalse(first.isDone());
+        frame(session, StreamType.STDOUT, marker.substring(5) + " 0\n\n" + marker + " 1\n");
+        frame(session, StreamType.STDERR, "\n" + marker + "\nwarning\n\n" + marker + "\n");
+
+        assertTrue(first.join().isSuccess());
+        assertEquals("default via 10.0.0.1\n", first.join().getStdout());
+        assertEquals("", first.join().getStderr());
+        assertEquals(1, second.join().getExitCode());
+        assertEquals("", second.join().getStdout());
+        assertEquals("warning\n", second.join().getStderr());
+    }
+
+    /**
+     * Output is bounded while frames arrive, so long output of command is truncated.
+     */
+    @Test
+    void truncatesLongOutput() {
+        ExecSession session = new ExecSession(null, "c1", 64);
+        String marker = session.getMarker();
+        CompletableFuture<ExecResult> pending = session.submit("yes");
+
+        for (int i = 0; i < 100; i++) {
+            frame(session, StreamType.STDOUT, "y\ny\ny\ny\n");
+        }
+        frame(session, StreamType.STDOUT, "\n" + marker + " 0\n");
+        frame(session, StreamType.STDERR, "\n" + marker + "\n");
+
+        assertTrue(pending.join().isTruncated());
+        assertTrue(pending.join().getStdout().length() <= 64);
+    }
+
+    /**
+     * Closed session fails pending commands and rejects new ones.
+     */
+    @Test
+    void closeFailsPendingCommands() {
+        ExecSession session = new ExecSession(null, "c1");
+        CompletableFuture<ExecResult> pending = session.submit("sleep 10");
+
+        session.close();
+
+        assertTrue(pending.isCompletedExceptionally());
+        assertFalse(session.isOpen());
+        assertThrows(IllegalStateException.class, () -> session.submit("true"));
+    }
+
+    /**
+     * Command reaching its timeout fails and closes session, so commands queued behind it fail too.
+     */
+    @Test
+    void timeoutClosesSession() {
+        ExecSession session = new ExecSession(null, "c1");
+        CompletableFuture<ExecResult> hanging = session.submit("ping 10.0.0.1",
+                new ExecOptions().withTimeoutMillis(50));
+        CompletableFuture<ExecResult> queued = session.submit("true", new ExecOptions().withTimeoutMillis(0));
+
+        ExecutionException timeout = assertThrows(ExecutionException.class, hanging::get);
+
+        assertTrue(timeout.getCause() instanceof TimeoutException);
+        assertThrows(ExecutionException.class, queued::get);
+        assertFalse(session.isOpen());
+    }
+
+    private static void frame(ExecSession session, StreamType type, String text) {
+        session.onFrame(type, text.getBytes(StandardCharsets.UTF_8));
+    }
+}
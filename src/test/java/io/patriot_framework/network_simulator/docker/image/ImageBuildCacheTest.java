@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image;
+
+import io.patriot_framework.network_simulator.docker.image.docker.ImageBuildCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Image build cache test.
+ */
+class ImageBuildCacheTest {
+
+    /**
+     * Hash depends on Dockerfile and on names and contents of context files.
+     *
+     * @throws IOException when context could not be written
+     */
+    @Test
+    void hashesDockerfileAndContext() throws IOException {
+        byte[] dockerfile = "FROM alpine\nADD app.jar /app.jar\n".getBytes(StandardCharsets.UTF_8);
+        Path context = Files.createTempDirectory("context");
+        Path artifact = Files.write(context.resolve("app.jar"), new byte[]{1, 2, 3});
+        try {
+            String hash = ImageBuildCache.hash(dockerfile, context);
+
+            assertEquals(hash, ImageBuildCache.hash(dockerfile, context));
+            assertNotEquals(hash, ImageBuildCache.hash(dockerfile, null));
+            assertNotEquals(hash, ImageBuildCache.hash("FROM alpine\n".getBytes(StandardCharsets.UTF_8), context));
+            Files.write(artifact, new byte[]{1, 2, 4});
+            assertNotEquals(hash, ImageBuildCache.hash(dockerfile, context));
+            Files.write(artifact, new byte[]{1, 2, 3});
+            Files.move(artifact, context.resolve("other.jar"));
+            assertNotEquals(hash, ImageBuildCache.hash(dockerfile, context));
+        } finally {
+            Files.deleteIfExists(context.resolve("other.jar"));
+            Files.delete(context);
+        }
+    }
+
+    /**
+     * Content tag is derived from hash.
+     */
+    @Test
+    void derivesContentTag() {
+        String hash = ImageBuildCache.hash(new byte[0], null);
+
+        assertEquals(64, hash.length());
+        assertTrue(ImageBuildCache.contentTag(hash).startsWith(ImageBuildCache.REPOSITORY + ":"));
+        assertEquals(ImageBuildCache.REPOSITORY + ":" + hash.substring(0, 16), ImageBuildCache.contentTag(hash));
+    }
+}
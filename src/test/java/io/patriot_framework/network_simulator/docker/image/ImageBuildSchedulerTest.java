@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.image;
+
+import io.patriot_framework.network_simulator.docker.image.docker.ImageBuildCache;
+import io.patriot_framework.network_simulator.docker.image.docker.ImageBuildScheduler;
+import io.patriot_framework.network_simulator.docker.image.docker.builder.TarBuildContext;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The type Image build scheduler test.
+ */
+class ImageBuildSchedulerTest {
+
+    /**
+     * Base images of all stages are found, platform flags and stage names are skipped.
+     */
+    @Test
+    void findsBaseImages() {
+        byte[] dockerfile = bytes("FROM --platform=linux/amd64 alpine:3.9 AS build\nRUN make\n"
+                + "from app_base\nCOPY --from=build /out /out\n");
+
+        assertEquals(Arrays.asList("alpine:3.9", "app_base"), ImageBuildScheduler.baseImages(dockerfile));
+        assertEquals(Collections.emptyList(), ImageBuildScheduler.baseImages(bytes("RUN echo FROM x\n")));
+    }
+
+    /**
+     * Stage based on previous stage is not base image, even when requested tag has the same name.
+     */
+    @Test
+    void skipsPreviousStages() {
+        byte[] dockerfile = bytes("FROM golang AS build\nRUN make\nFROM build AS test\nFROM alpine\n");
+        Map<String, String> built = new HashMap<>();
+        built.put("build:latest", "patriot-build:0123456789abcdef");
+
+        assertEquals(Arrays.asList("golang", "alpine"), ImageBuildScheduler.baseImages(dockerfile));
+        assertEquals(new String(dockerfile, StandardCharsets.UTF_8),
+                new String(ImageBuildScheduler.pin(dockerfile, built), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Built base images are replaced by content tags, other bases are kept.
+     */
+    @Test
+    void pinsBuiltBaseImages() {
+        Map<String, String> built = new HashMap<>();
+        built.put("app_base:latest", "patriot-build:0123456789abcdef");
+        built.put("router:01", "patriot-build:fedcba9876543210");
+        byte[] dockerfile = bytes("FROM app_base\nRUN make\nFROM router:01 AS final\nFROM alpine\n");
+
+        assertEquals("FROM patriot-build:0123456789abcdef\nRUN make\nFROM patriot-build:fedcba9876543210 AS final\n"
+                + "FROM alpine\n", new String(ImageBuildScheduler.pin(dockerfile, built), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Only base image is replaced, also when flag or keyword contains its name.
+     */
+    @Test
+    void pinsOnlyBaseToken() {
+        Map<String, String> built = new HashMap<>();
+        built.put("arm:latest", "patriot-build:0123456789abcdef");
+        built.put("from:latest", "patriot-build:fedcba9876543210");
+        byte[] dockerfile = bytes("FROM --platform=linux/arm arm AS build\nfrom from\n");
+
+        assertEquals("FROM --platform=linux/arm patriot-build:0123456789abcdef AS build\n"
+                + "from patriot-build:fedcba9876543210\n",
+                new String(ImageBuildScheduler.pin(dockerfile, built), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The same tag may be requested repeatedly only with the same content.
+     */
+    @Test
+    void rejectsConflictingRequests() {
+        ImageBuildScheduler scheduler = new ImageBuildScheduler(new ImageBuildCache(null), 2, event -> { });
+        scheduler.submit("app", new TarBuildContext(bytes("FROM alpine\n")))
+                .submit("app:latest", new TarBuildContext(bytes("FROM alpine\n")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> scheduler.submit("app", new TarBuildContext(bytes("FROM busybox\n"))));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Address index test.
+ */
+class AddressIndexTest {
+
+    /**
+     * Exact addresses are found after table grows and removed addresses are not.
+     */
+    @Test
+    void findsExactAddresses() {
+        AddressIndex index = new AddressIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.putAddress(Ipv4Address.format(0x0A000000 + i), "device" + i, "net");
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(index.removeAddress(Ipv4Address.format(0x0A000000 + i)));
+        }
+        index.putAddress("10.0.0.1", "router", "net");
+
+        assertEquals(500, index.size());
+        assertEquals("router", index.findOwner("10.0.0.1").getDevice());
+        assertEquals("device999", index.findOwner("10.0.3.231").getDevice());
+        assertNull(index.findOwner("10.0.0.2"));
+        assertFalse(index.removeAddress("10.0.0.2"));
+    }
+
+    /**
+     * Network with the longest prefix containing address is found.
+     */
+    @Test
+    void findsLongestPrefix() {
+        AddressIndex index = new AddressIndex();
+        index.putNetwork(Ipv4Cidr.parse("10.0.0.0/8"), "backbone");
+        index.putNetwork(Ipv4Cidr.parse("10.1.0.0/16"), "site");
+        index.putNetwork(Ipv4Cidr.parse("10.1.2.0/24"), "lan");
+        index.putNetwork(Ipv4Cidr.parse("10.1.2.128/25"), "dmz");
+        index.putNetwork(Ipv4Cidr.parse("192.168.0.0/16"), "home");
+
+        assertEquals("dmz", index.findNetwork("10.1.2.200"));
+        assertEquals("lan", index.findNetwork("10.1.2.5"));
+        assertEquals("site", index.findNetwork("10.1.3.5"));
+        assertEquals("backbone", index.findNetwork("10.200.0.1"));
+        assertEquals("home", index.findNetwork("192.168.1.1"));
+        assertNull(index.findNetwork("172.16.0.1"));
+
+        index.removeNetwork(Ipv4Cidr.parse("10.1.2.0/24"));
+        index.removeNetwork(Ipv4Cidr.parse("10.0.0.0/8"));
+
+        assertEquals("site", index.findNetwork("10.1.2.5"));
+        assertEquals("dmz", index.findNetwork("10.1.2.200"));
+        assertNull(index.findNetwork("10.200.0.1"));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Ipv4 cidr test.
+ */
+class Ipv4CidrTest {
+
+    /**
+     * Addresses are parsed to int with first octet in highest byte and formatted back.
+     */
+    @Test
+    void parsesAndFormatsAddress() {
+        assertEquals(0xC0A80105, Ipv4Address.parseInt("192.168.1.5"));
+        assertEquals("255.255.255.255", Ipv4Address.format(Ipv4Address.parseInt("255.255.255.255")));
+        assertEquals("10.0.0.1", Ipv4Address.parse("10.0.0.0").next().toString());
+        assertTrue(Ipv4Address.parse("200.0.0.1").compareTo(Ipv4Address.parse("10.0.0.1")) > 0);
+        for (String invalid : Arrays.asList("", "1.2.3", "1.2.3.4.5", "1.2.3.256", "1..2.3", "1.2.3.a", "1.2.3.")) {
+            assertThrows(IllegalArgumentException.class, () -> Ipv4Address.parseInt(invalid));
+        }
+    }
+
+    /**
+     * Host bits are cleared, so network is the same regardless of address used.
+     */
+    @Test
+    void masksHostBits() {
+        Ipv4Cidr network = Ipv4Cidr.parse("192.168.1.5/24");
+
+        assertEquals("192.168.1.0/24", network.toString());
+        assertEquals(Ipv4Cidr.of("192.168.1.200", 24), network);
+        assertEquals(0xFFFFFF00, network.getMaskInt());
+        assertEquals("192.168.1.255", Ipv4Address.format(network.getBroadcastInt()));
+        assertEquals(256, network.size());
+        assertEquals("0.0.0.0/0", Ipv4Cidr.parse("10.1.2.3/0").toString());
+        assertEquals(1L << 32, Ipv4Cidr.parse("10.1.2.3/0").size());
+        assertThrows(IllegalArgumentException.class, () -> Ipv4Cidr.parse("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> Ipv4Cidr.parse("10.0.0.0"));
+    }
+
+    /**
+     * Containment of addresses and networks.
+     */
+    @Test
+    void checksContainment() {
+        Ipv4Cidr network = Ipv4Cidr.parse("10.1.0.0/16");
+
+        assertTrue(network.contains(Ipv4Address.parse("10.1.255.1")));
+        assertFalse(network.contains(Ipv4Address.parse("10.2.0.1")));
+        assertTrue(network.contains(Ipv4Cidr.parse("10.1.4.0/24")));
+        assertFalse(network.contains(Ipv4Cidr.parse("10.0.0.0/8")));
+        assertTrue(network.overlaps(Ipv4Cidr.parse("10.0.0.0/8")));
+        assertFalse(network.overlaps(Ipv4Cidr.parse("10.2.0.0/16")));
+        assertTrue(Ipv4Cidr.parse("0.0.0.0/0").contains(Ipv4Address.parse("255.255.255.255")));
+    }
+
+    /**
+     * All addresses of network are iterated in order, also at the end of address space.
+     */
+    @Test
+    void iteratesAddresses() {
+        List<String> addresses = new ArrayList<>();
+        Ipv4Cidr.parse("255.255.255.252/30").forEachAddress(a -> addresses.add(Ipv4Address.format(a)));
+
+        assertEquals(Arrays.asList("255.255.255.252", "255.255.255.253", "255.255.255.254", "255.255.255.255"),
+                addresses);
+        assertEquals("10.0.0.3", Ipv4Address.format(Ipv4Cidr.parse("10.0.0.0/30").getAddress(3)));
+        assertThrows(IndexOutOfBoundsException.class, () -> Ipv4Cidr.parse("10.0.0.0/30").getAddress(4));
+    }
+}
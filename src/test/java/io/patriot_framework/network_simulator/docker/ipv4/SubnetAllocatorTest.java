@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.ipv4;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Subnet allocator test.
+ */
+class SubnetAllocatorTest {
+
+    /**
+     * Subnets of different sizes are allocated from lowest address without overlap.
+     */
+    @Test
+    void allocatesNonOverlappingSubnets() {
+        SubnetAllocator allocator = new SubnetAllocator(Ipv4Cidr.parse("10.0.0.0/16"));
+
+        assertEquals("10.0.0.0/24", allocator.allocate(24).toString());
+        assertEquals("10.0.1.0/29", allocator.allocate(29).toString());
+        assertEquals("10.0.1.8/29", allocator.allocate(29).toString());
+        assertEquals("10.0.2.0/23", allocator.allocate(23).toString());
+        assertEquals("10.0.1.16/28", allocator.allocate(28).toString());
+    }
+
+    /**
+     * Subnets of existing networks are skipped, subnets outside of supernet are ignored.
+     */
+    @Test
+    void skipsReservedSubnets() {
+        SubnetAllocator allocator = new SubnetAllocator(Ipv4Cidr.parse("172.16.0.0/12"));
+
+        assertTrue(allocator.reserve(Ipv4Cidr.parse("172.16.0.0/16")));
+        assertTrue(allocator.reserve(Ipv4Cidr.parse("172.17.0.0/24")));
+        assertFalse(allocator.reserve(Ipv4Cidr.parse("192.168.0.0/16")));
+
+        assertEquals("172.17.1.0/24", allocator.allocate(24).toString());
+        assertEquals("172.18.0.0/16", allocator.allocate(16).toString());
+        assertFalse(allocator.release(Ipv4Cidr.parse("172.16.0.0/16")));
+    }
+
+    /**
+     * Released buddies are merged, so larger subnet can be allocated again.
+     */
+    @Test
+    void mergesReleasedBuddies() {
+        SubnetAllocator allocator = new SubnetAllocator(Ipv4Cidr.parse("10.0.0.0/24"));
+        List<Ipv4Cidr> subnets = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            subnets.add(allocator.allocate(29));
+        }
+        assertThrows(IllegalStateException.class, () -> allocator.allocate(29));
+
+        subnets.forEach(subnet -> assertTrue(allocator.release(subnet)));
+
+        assertEquals("10.0.0.0/24", allocator.allocate(24).toString());
+    }
+
+    /**
+     * Tens of thousands of subnets are distinct.
+     */
+    @Test
+    void allocatesManySubnets() {
+        SubnetAllocator allocator = new SubnetAllocator(Ipv4Cidr.parse("10.0.0.0/8"));
+        Set<Ipv4Cidr> subnets = new HashSet<>();
+        for (int i = 0; i < 50000; i++) {
+            subnets.add(allocator.allocate(i % 2 == 0 ? 29 : 24));
+        }
+
+        assertEquals(50000, subnets.size());
+    }
+
+    /**
+     * Host addresses skip network, gateway, broadcast and reserved addresses.
+     */
+    @Test
+    void allocatesHostAddresses() {
+        HostAllocator hosts = new HostAllocator(Ipv4Cidr.parse("192.168.5.0/29"));
+        assertTrue(hosts.reserve(Ipv4Address.parse("192.168.5.3")));
+
+        assertEquals("192.168.5.2", hosts.allocate().toString());
+        assertEquals("192.168.5.4", hosts.allocate().toString());
+        assertEquals(2, hosts.getFree());
+        assertTrue(hosts.release(Ipv4Address.parse("192.168.5.2")));
+        assertFalse(hosts.release(Ipv4Address.parse("192.168.5.1")));
+        assertEquals("192.168.5.2", hosts.allocate().toString());
+    }
+}
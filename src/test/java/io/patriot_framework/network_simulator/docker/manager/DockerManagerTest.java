@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.manager;
+
+import com.github.dockerjava.api.command.CreateContainerCmd;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.core.command.CreateContainerCmdImpl;
+import io.patriot_framework.network_simulator.docker.StubDockerClient;
+import io.patriot_framework.network_simulator.docker.container.Container;
+import io.patriot_framework.network_simulator.docker.network.DockerNetwork;
+import io.patriot_framework.network_simulator.docker.state.ContainerStatus;
+import io.patriot_framework.network_simulator.docker.state.DockerStateModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The type Docker manager test.
+ */
+class DockerManagerTest {
+
+    /**
+     * Container attached to network without static address is created without IPAM config.
+     */
+    @Test
+    void createContainerWithoutStaticIp() {
+        AtomicReference<CreateContainerCmd> created = new AtomicReference<>();
+        StubDockerClient stub = new StubDockerClient().on("createContainerCmd",
+                args -> new CreateContainerCmdImpl(command -> {
+                    created.set(command);
+                    CreateContainerResponse response = new CreateContainerResponse();
+                    response.setId("c1");
+                    return response;
+                }, null, (String) args[0]));
+        DockerManager dockerManager = new DockerManager(stub.client());
+
+        Container container = dockerManager.createContainer("device", "router:01", Collections.emptyList(),
+                Collections.singletonList(new DockerNetwork("lan", "n1")), Collections.emptyMap());
+
+        assertEquals("c1", container.getId());
+        assertEquals("lan", created.get().getHostConfig().getNetworkMode());
+        assertNull(created.get().getIpv4Address());
+    }
+
+    /**
+     * Container created by manager is in state model before its event arrives.
+     */
+    @Test
+    void createdContainerIsInStateModel() {
+        StubDockerClient stub = new StubDockerClient().on("createContainerCmd",
+                args -> new CreateContainerCmdImpl(command -> {
+                    CreateContainerResponse response = new CreateContainerResponse();
+                    response.setId("c1");
+                    return response;
+                }, null, (String) args[0]));
+        DockerManager dockerManager = new DockerManager(stub.client());
+        DockerStateModel stateModel = new DockerStateModel(stub.client());
+        dockerManager.setStateModel(stateModel);
+
+        dockerManager.createContainer("device", "router:01");
+
+        assertEquals("c1", stateModel.findContainerId("device"));
+        assertEquals(ContainerStatus.CREATED, stateModel.getStatus("c1"));
+    }
+}
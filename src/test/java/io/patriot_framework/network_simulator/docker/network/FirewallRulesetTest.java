@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Firewall ruleset test.
+ */
+class FirewallRulesetTest {
+
+    /**
+     * Ruleset is rendered in iptables-restore format, one block per table.
+     */
+    @Test
+    void rendersRestoreFormat() {
+        FirewallRuleset ruleset = new FirewallRuleset()
+                .policy("FORWARD", "DROP")
+                .chain(FirewallRuleset.FILTER, "ACL")
+                .append("FORWARD", "-j ACL")
+                .append("ACL", "-s 10.0.1.0/24 -d 10.0.2.0/24 -j ACCEPT")
+                .policy("nat", "POSTROUTING", "ACCEPT")
+                .append("nat", "POSTROUTING", "-o eth0 -j MASQUERADE");
+
+        assertEquals("*filter\n"
+                + ":FORWARD DROP [0:0]\n"
+                + ":ACL - [0:0]\n"
+                + "-A FORWARD -j ACL\n"
+                + "-A ACL -s 10.0.1.0/24 -d 10.0.2.0/24 -j ACCEPT\n"
+                + "COMMIT\n"
+                + "*nat\n"
+                + ":POSTROUTING ACCEPT [0:0]\n"
+                + "-A POSTROUTING -o eth0 -j MASQUERADE\n"
+                + "COMMIT\n", ruleset.render());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The type Link program test.
+ */
+class LinkProgramTest {
+
+    /**
+     * Impairments are rendered as netem queueing discipline replaced in place.
+     */
+    @Test
+    void rendersNetemBatch() {
+        LinkProgram program = new LinkProgram()
+                .set("eth0", new LinkProfile().withDelay(50, 10).withLoss(1.5).withRate(1000)
+                        .withCorruption(0.1).withReordering(25))
+                .set("eth1", new LinkProfile())
+                .clear("eth2");
+
+        assertEquals("qdisc replace dev eth0 root netem delay 50ms 10ms loss 1.5% rate 1000kbit corrupt 0.1%"
+                + " reorder 25%\n"
+                + "qdisc replace dev eth1 root netem\n"
+                + "qdisc del dev eth2 root\n", program.toBatch());
+    }
+
+    /**
+     * Profiles with the same impairments are equal.
+     */
+    @Test
+    void comparesProfilesByImpairments() {
+        assertEquals(new LinkProfile().withDelay(20.0), new LinkProfile().withDelay(20));
+        assertEquals("unimpaired", new LinkProfile().toString());
+        assertThrows(IllegalArgumentException.class, () -> new LinkProfile().withLoss(101));
+    }
+
+    /**
+     * Interfaces are found by their addresses, peer suffix of veth interface is removed.
+     */
+    @Test
+    void parsesInterfaces() {
+        String output = "1: lo    inet 127.0.0.1/8 scope host lo\\       valid_lft forever preferred_lft forever\n"
+                + "52: eth0    inet 172.18.0.2/16 brd 172.18.255.255 scope global eth0\\       valid_lft forever\n"
+                + "54: eth1@if55    inet 10.0.1.5/24 brd 10.0.1.255 scope global eth1\\       valid_lft forever\n";
+
+        Map<String, String> interfaces = DockerNetworkUtilities.parseInterfaces(output);
+
+        assertEquals(3, interfaces.size());
+        assertEquals("eth0", interfaces.get("172.18.0.2"));
+        assertEquals("eth1", interfaces.get("10.0.1.5"));
+    }
+}
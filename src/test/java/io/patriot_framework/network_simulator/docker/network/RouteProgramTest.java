@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Route program test.
+ */
+class RouteProgramTest {
+
+    /**
+     * Program is rendered as ip batch input.
+     */
+    @Test
+    void rendersBatchScript() {
+        RouteProgram program = new RouteProgram()
+                .replaceDefault("10.0.0.1")
+                .add(new Route("192.168.1.0/24", "10.0.0.2", "eth1"))
+                .remove("172.16.0.0/16");
+
+        assertEquals(Arrays.asList("route replace default via 10.0.0.1",
+                "route replace 192.168.1.0/24 via 10.0.0.2 dev eth1",
+                "route del 172.16.0.0/16"), program.getLines());
+        assertEquals("route replace default via 10.0.0.1\n"
+                + "route replace 192.168.1.0/24 via 10.0.0.2 dev eth1\n"
+                + "route del 172.16.0.0/16\n", program.toBatch());
+    }
+
+    /**
+     * Failed lines are matched with their error messages.
+     */
+    @Test
+    void parsesFailedLines() {
+        RouteProgram program = new RouteProgram()
+                .replaceDefault("10.0.0.1")
+                .remove("172.16.0.0/16")
+                .add(new Route("192.168.1.0/24", "10.9.9.9"));
+        String stderr = "RTNETLINK answers: No such process\nCommand failed -:2\n"
+                + "Error: Nexthop has invalid gateway.\nCommand failed -:3\n";
+
+        IpBatchResult result = IpBatchResult.parse(program.getLines(), stderr);
+
+        assertEquals(2, result.getFailures().size());
+        assertEquals("RTNETLINK answers: No such process", result.getFailures().get("route del 172.16.0.0/16"));
+        assertEquals("Error: Nexthop has invalid gateway.",
+                result.getFailures().get("route replace 192.168.1.0/24 via 10.9.9.9"));
+        assertTrue(IpBatchResult.parse(program.getLines(), "").isSuccess());
+    }
+}
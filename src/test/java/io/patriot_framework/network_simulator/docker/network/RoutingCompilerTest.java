@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Routing compiler test.
+ */
+class RoutingCompilerTest {
+
+    /**
+     * Devices in chain of routers get routes through nearest router towards destination.
+     */
+    @Test
+    void routesThroughChainOfRouters() {
+        Map<String, String> cidrs = new HashMap<>();
+        cidrs.put("a", "10.0.1.0/24");
+        cidrs.put("b", "10.0.2.0/24");
+        cidrs.put("c", "10.0.3.0/24");
+        Map<String, Map<String, String>> attachments = new HashMap<>();
+        attach(attachments, "client", "a", "10.0.1.10");
+        attach(attachments, "r1", "a", "10.0.1.1");
+        attach(attachments, "r1", "b", "10.0.2.1");
+        attach(attachments, "r2", "b", "10.0.2.2");
+        attach(attachments, "r2", "c", "10.0.3.1");
+        attach(attachments, "server", "c", "10.0.3.10");
+
+        Map<String, List<Route>> routes = new RoutingCompiler(cidrs, attachments,
+                new HashSet<>(Arrays.asList("r1", "r2"))).compile();
+
+        assertEquals(new HashSet<>(Arrays.asList(new Route("10.0.2.0/24", "10.0.1.1"),
+                new Route("10.0.3.0/24", "10.0.1.1"))), new HashSet<>(routes.get("client")));
+        assertEquals(Collections.singletonList(new Route("10.0.3.0/24", "10.0.2.2")), routes.get("r1"));
+        assertEquals(Collections.singletonList(new Route("10.0.1.0/24", "10.0.2.1")), routes.get("r2"));
+        assertEquals(new HashSet<>(Arrays.asList(new Route("10.0.1.0/24", "10.0.3.1"),
+                new Route("10.0.2.0/24", "10.0.3.1"))), new HashSet<>(routes.get("server")));
+    }
+
+    /**
+     * Shorter of two paths is used and devices which are not routers do not forward.
+     */
+    @Test
+    void prefersShortestPath() {
+        Map<String, String> cidrs = new HashMap<>();
+        cidrs.put("a", "10.0.1.0/24");
+        cidrs.put("b", "10.0.2.0/24");
+        cidrs.put("c", "10.0.3.0/24");
+        Map<String, Map<String, String>> attachments = new HashMap<>();
+        attach(attachments, "host", "a", "10.0.1.10");
+        attach(attachments, "direct", "a", "10.0.1.2");
+        attach(attachments, "direct", "c", "10.0.3.2");
+        attach(attachments, "long", "a", "10.0.1.1");
+        attach(attachments, "long", "b", "10.0.2.1");
+        attach(attachments, "dual", "b", "10.0.2.5");
+        attach(attachments, "dual", "c", "10.0.3.5");
+
+        Map<String, List<Route>> routes = new RoutingCompiler(cidrs, attachments,
+                new HashSet<>(Arrays.asList("direct", "long"))).compile();
+
+        assertTrue(routes.get("host").contains(new Route("10.0.3.0/24", "10.0.1.2")));
+        assertTrue(routes.get("host").contains(new Route("10.0.2.0/24", "10.0.1.1")));
+        assertTrue(routes.get("long").contains(new Route("10.0.3.0/24", "10.0.1.2")));
+    }
+
+    /**
+     * Delta replaces changed routes and removes routes to destinations which are not routed any more.
+     */
+    @Test
+    void deltaContainsOnlyChanges() {
+        Set<Route> previous = new HashSet<>(Arrays.asList(new Route("10.0.2.0/24", "10.0.1.1"),
+                new Route("10.0.3.0/24", "10.0.1.1"), new Route("10.0.4.0/24", "10.0.1.1")));
+        Set<Route> desired = new HashSet<>(Arrays.asList(new Route("10.0.2.0/24", "10.0.1.1"),
+                new Route("10.0.3.0/24", "10.0.1.2")));
+
+        RouteProgram program = RoutingCompiler.delta(previous, desired);
+
+        assertEquals(Arrays.asList("route replace 10.0.3.0/24 via 10.0.1.2", "route del 10.0.4.0/24"),
+                program.getLines());
+        assertTrue(RoutingCompiler.delta(desired, desired).isEmpty());
+    }
+
+    /**
+     * Failed lines of delta keep previous routes of their destinations, failed batch keeps all routes.
+     */
+    @Test
+    void appliedRoutesExcludeFailedLines() {
+        List<Route> previous = Arrays.asList(new Route("10.0.3.0/24", "10.0.1.1"),
+                new Route("10.0.4.0/24", "10.0.1.1"));
+        List<Route> desired = Arrays.asList(new Route("10.0.2.0/24", "10.0.1.1"),
+                new Route("10.0.3.0/24", "10.0.1.2"));
+        Map<String, String> failures = new HashMap<>();
+        failures.put("route replace 10.0.3.0/24 via 10.0.1.2", "Nexthop has invalid gateway.");
+        failures.put("route del 10.0.4.0/24", "No such process");
+
+        List<Route> applied = RoutingCompiler.applied(previous, desired, new IpBatchResult(failures));
+
+        assertEquals(new HashSet<>(Arrays.asList(new Route("10.0.2.0/24", "10.0.1.1"),
+                new Route("10.0.3.0/24", "10.0.1.1"), new Route("10.0.4.0/24", "10.0.1.1"))), new HashSet<>(applied));
+        assertEquals(new HashSet<>(desired), new HashSet<>(RoutingCompiler.applied(previous, desired,
+                new IpBatchResult(Collections.emptyMap()))));
+        assertEquals(previous, RoutingCompiler.applied(previous, desired,
+                new IpBatchResult(Collections.singletonMap("route replace ...\nroute del ...", "exec failed"))));
+    }
+
+    private static void attach(Map<String, Map<String, String>> attachments, String device, String network,
+                               String ip) {
+        attachments.computeIfAbsent(device, k -> new HashMap<>()).put(network, ip);
+    }
+}
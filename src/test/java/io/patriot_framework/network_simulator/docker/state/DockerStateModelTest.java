@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 Patriot project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.patriot_framework.network_simulator.docker.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The type Docker state model test.
+ */
+class DockerStateModelTest {
+
+    /**
+     * Container lifecycle events are reflected in model.
+     */
+    @Test
+    void containerLifecycle() {
+        DockerStateModel model = new DockerStateModel(null);
+        model.applyContainerEvent("create", "c1", "router");
+        assertEquals(ContainerStatus.CREATED, model.getStatus("c1"));
+        assertEquals("c1", model.findContainerId("router"));
+
+        model.applyContainerEvent("start", "c1", "router");
+        assertEquals(ContainerStatus.RUNNING, model.getStatus("c1"));
+        model.applyContainerEvent("pause", "c1", "router");
+        assertEquals(ContainerStatus.PAUSED, model.getStatus("c1"));
+
+        model.applyContainerEvent("destroy", "c1", "router");
+        assertFalse(model.containerExists("c1"));
+        assertNull(model.findContainerId("router"));
+        assertEquals(ContainerStatus.REMOVED, model.getStatus("c1"));
+    }
+
+    /**
+     * Waiting for status completes from event.
+     */
+    @Test
+    void awaitStatusCompletesOnEvent() {
+        DockerStateModel model = new DockerStateModel(null);
+        model.applyContainerEvent("create", "c1", "client");
+        CompletableFuture<Void> running = model.awaitStatus("c1", ContainerStatus.RUNNING);
+        assertFalse(running.isDone());
+
+        model.applyContainerEvent("start", "c1", "client");
+        assertTrue(running.isDone());
+        assertTrue(model.awaitStatus("c1", ContainerStatus.RUNNING).isDone());
+    }
+
+    /**
+     * Network attachments follow connect and disconnect events.
+     */
+    @Test
+    void networkAttachments() {
+        DockerStateModel model = new DockerStateModel(null);
+        model.applyContainerEvent("create", "c1", "server");
+        model.applyNetworkEvent("create", "n1", "server_network", null);
+        CompletableFuture<Void> attached = model.awaitAttached("c1", "n1");
+
+        model.applyNetworkEvent("connect", "n1", "server_network", "c1");
+        assertTrue(attached.isDone());
+        assertTrue(model.networkExists("n1"));
+
+        model.applyNetworkEvent("disconnect", "n1", "server_network", "c1");
+        assertFalse(model.getAttachedNetworks("c1").contains("n1"));
+        model.applyNetworkEvent("destroy", "n1", "server_network", null);
+        assertFalse(model.networkExists("n1"));
+    }
+
+    /**
+     * Change made by this process is visible at once and its later event is not applied again.
+     */
+    @Test
+    void ownChangeIsNotAppliedTwice() {
+        DockerStateModel model = new DockerStateModel(null);
+        model.applyContainerEvent("create", "c1", "router");
+        model.expectContainerEvent("start", "c1");
+        model.applyContainerEvent("start", "c1", "router");
+        model.applyContainerEvent("pause", "c1", "router");
+
+        model.receiveContainerEvent("start", "c1", "router");
+        assertEquals(ContainerStatus.PAUSED, model.getStatus("c1"));
+        model.receiveContainerEvent("start", "c1", "router");
+        assertEquals(ContainerStatus.RUNNING, model.getStatus("c1"));
+    }
+
+    /**
+     * Events of container being removed by this process do not bring it back.
+     */
+    @Test
+    void removedContainerIgnoresItsEvents() {
+        DockerStateModel model = new DockerStateModel(null);
+        model.applyContainerEvent("create", "c1", "server");
+        model.expectContainerEvent("destroy", "c1");
+        model.applyContainerEvent("destroy", "c1", "server");
+
+        model.receiveContainerEvent("die", "c1", "server");
+        model.receiveContainerEvent("destroy", "c1", "server");
+        assertFalse(model.containerExists("c1"));
+        model.receiveContainerEvent("create", "c1", "server");
+        assertTrue(model.containerExists("c1"));
+    }
+
+    /**
+     * Cancelled network change leaves its event to be applied.
+     */
+    @Test
+    void cancelledNetworkChangeIsApplied() {
+        DockerStateModel model = new DockerStateModel(null);
+        model.applyContainerEvent("create", "c1", "client");
+        model.expectNetworkEvent("connect", "n1", "c1");
+        model.cancelNetworkEvent("connect", "n1", "c1");
+
+        model.receiveNetworkEvent("connect", "n1", "client_network", "c1");
+        assertTrue(model.getAttachedNetworks("c1").contains("n1"));
+    }
+}